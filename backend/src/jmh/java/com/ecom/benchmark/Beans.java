@@ -0,0 +1,64 @@
+package com.ecom.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+import org.slf4j.LoggerFactory;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+
+/**
+ * Wires Spring beans by hand for benchmarks: field injection and repository stand-ins.
+ */
+public final class Beans {
+
+    private Beans() {
+    }
+
+    /**
+     * Raises the root log level to WARN so per-invocation INFO lines of the measured
+     * services do not end up in the measurement.
+     */
+    public static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    /**
+     * Sets a private field (an {@code @Autowired} dependency or {@code @Value}) on bean.
+     */
+    public static <T> T set(T bean, String fieldName, Object value) {
+        try {
+            Field field = bean.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(bean, value);
+            return bean;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot set " + bean.getClass().getSimpleName() + "." + fieldName, e);
+        }
+    }
+
+    /**
+     * In-memory implementation of a repository interface. Only the named methods are
+     * implemented; any other call fails, so a benchmark cannot silently measure a stub.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+            Function<Object[], Object> implementation = methods.get(method.getName());
+            if (implementation != null) {
+                return implementation.apply(args);
+            }
+            switch (method.getName()) {
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+        });
+    }
+}
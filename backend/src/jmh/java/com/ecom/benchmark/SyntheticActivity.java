@@ -0,0 +1,172 @@
+package com.ecom.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import com.ecom.model.Product;
+import com.ecom.model.UserActivity;
+import com.ecom.util.NeighborIndex;
+import com.ecom.util.ZipfSampler;
+
+/**
+ * Deterministic synthetic user_activity for benchmarks.
+ *
+ * Users and products are drawn from Zipf distributions, so a few users and products
+ * account for most events. Every user has a home category that most of their events
+ * fall into, which gives co-purchase and co-view real structure. Events span the
+ * last 90 days and are held sorted by (user, time) in primitive arrays.
+ */
+public final class SyntheticActivity {
+
+    public static final int CATEGORIES = 20;
+    private static final String[] ACTIONS = { "VIEW", "CLICK", "ADD_TO_CART", "PURCHASE" };
+    private static final double[] ACTION_WEIGHTS = { 1.0, 2.0, 5.0, 10.0 };
+    // cumulative action mix: 70% views, 15% clicks, 10% add to cart, 5% purchases
+    private static final double[] ACTION_MIX = { 0.70, 0.85, 0.95, 1.0 };
+
+    public final int events;
+    public final int users;
+    public final int productCount;
+    public final Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+    public final int[] userIds;
+    public final int[] productIds;
+    public final byte[] actions;
+    public final long[] timestamps;
+    // per user: events of user u are [userStart[u], userStart[u + 1])
+    private final int[] userStart;
+
+    private SyntheticActivity(int events, long seed) {
+        this.events = events;
+        this.users = Math.max(100, events / 50);
+        this.productCount = Math.max(500, events / 100);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        ZipfSampler userRanks = new ZipfSampler(users, 0.8);
+        ZipfSampler categoryRanks = new ZipfSampler(productCount / CATEGORIES, 1.0);
+        ZipfSampler productRanks = new ZipfSampler(productCount, 1.0);
+        long spanSeconds = Duration.ofDays(90).toSeconds();
+
+        // (user, second) packed so one primitive sort orders events by user, then time
+        long[] keys = new long[events];
+        for (int i = 0; i < events; i++) {
+            keys[i] = ((long) userRanks.sample(random) << 32) | random.nextLong(spanSeconds);
+        }
+        Arrays.sort(keys);
+
+        userIds = new int[events];
+        productIds = new int[events];
+        actions = new byte[events];
+        timestamps = new long[events];
+        userStart = new int[users + 1];
+        long base = now.getEpochSecond() - spanSeconds;
+        for (int i = 0; i < events; i++) {
+            int user = (int) (keys[i] >>> 32);
+            int home = user % CATEGORIES;
+            int product = random.nextDouble() < 0.7
+                ? Math.min(productCount - 1, categoryRanks.sample(random) * CATEGORIES + home)
+                : productRanks.sample(random);
+            userIds[i] = user + 1;
+            productIds[i] = product + 1;
+            actions[i] = (byte) sample(ACTION_MIX, random);
+            timestamps[i] = (base + (keys[i] & 0xFFFFFFFFL)) * 1000;
+            userStart[user + 1]++;
+        }
+        for (int u = 0; u < users; u++) {
+            userStart[u + 1] += userStart[u];
+        }
+    }
+
+    public static SyntheticActivity generate(int events) {
+        return new SyntheticActivity(events, 42);
+    }
+
+    public String action(int event) {
+        return ACTIONS[actions[event]];
+    }
+
+    public double weight(int event) {
+        return ACTION_WEIGHTS[actions[event]];
+    }
+
+    public boolean isPurchase(int event) {
+        return actions[event] == 3;
+    }
+
+    /**
+     * All products, active, category "Category-n" by id.
+     */
+    public List<Product> products() {
+        List<Product> products = new ArrayList<>(productCount);
+        for (int id = 1; id <= productCount; id++) {
+            Product product = new Product();
+            product.setId(id);
+            product.setTitle("Product " + id);
+            product.setCategory("Category-" + ((id - 1) % CATEGORIES));
+            product.setPrice(100.0 + id % 900);
+            product.setDiscountPrice(product.getPrice());
+            product.setStock(10);
+            product.setIsActive(true);
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * Events of one user (1-based id), oldest first, as entities.
+     */
+    public List<UserActivity> activitiesOf(int userId) {
+        int from = userStart[userId - 1];
+        int to = userStart[userId];
+        List<UserActivity> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(new UserActivity(i + 1, userIds[i], productIds[i], action(i),
+                Instant.ofEpochMilli(timestamps[i]), "session-" + userIds[i], weight(i)));
+        }
+        return result;
+    }
+
+    /**
+     * (userId, productId, timestamp) rows of purchases, like UserActivityRepository.streamAllPurchases.
+     */
+    public Stream<Object[]> purchaseRows() {
+        return IntStream.range(0, events).filter(this::isPurchase)
+            .mapToObj(i -> new Object[] { userIds[i], productIds[i], Instant.ofEpochMilli(timestamps[i]) });
+    }
+
+    /**
+     * (userId, productId, timestamp, sessionId) rows of views ordered by user and time,
+     * like UserActivityRepository.streamViewsSince.
+     */
+    public Stream<Object[]> viewRows() {
+        return IntStream.range(0, events).filter(i -> actions[i] == 0)
+            .mapToObj(i -> new Object[] { userIds[i], productIds[i], Instant.ofEpochMilli(timestamps[i]), null });
+    }
+
+    /**
+     * Neighbor index with up to k same-category neighbors per product, scored by
+     * closeness in popularity rank; stands in for a computed product_similarity table.
+     */
+    public NeighborIndex neighbors(int k) {
+        NeighborIndex.Builder builder = new NeighborIndex.Builder();
+        for (int id = 1; id <= productCount; id++) {
+            for (int step = 1; step <= k; step++) {
+                int neighbor = (id - 1 + step * CATEGORIES) % productCount + 1;
+                if (neighbor != id) {
+                    builder.add(id, neighbor, 1.0 / (1 + step));
+                }
+            }
+        }
+        return builder.build(k);
+    }
+
+    private static int sample(double[] cdf, SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, index < 0 ? -index - 1 : index);
+    }
+}
@@ -0,0 +1,196 @@
+package com.ecom.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.benchmark.Beans;
+import com.ecom.benchmark.SyntheticActivity;
+import com.ecom.model.Product;
+import com.ecom.model.UserActivity;
+import com.ecom.repository.ProductRepository;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.repository.UserProductScoreRepository;
+import com.ecom.util.IntDoubleHashMap;
+import com.ecom.util.SlidingWindowCounter;
+
+/**
+ * Per-request and per-user scoring in {@link RecommendationService} over synthetic
+ * activity of {@code activities} events. Repositories are in-memory stand-ins, so
+ * the numbers are the CPU cost of the scoring code without any query time.
+ *
+ * Users are sampled by event, so busy users are picked as often as they show up in
+ * traffic, and requests cycle through them round-robin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationScoringBenchmark {
+
+    private static final int SAMPLED_USERS = 1024;
+
+    @Param({ "10000", "100000", "1000000" })
+    private int activities;
+
+    private SyntheticActivity data;
+    private RecommendationService service;
+    private int[] sampledUsers;
+    private Map<Integer, List<UserActivity>> activitiesByUser;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Beans.quietLogging();
+        data = SyntheticActivity.generate(activities);
+        List<Product> products = data.products();
+        Map<Integer, Product> productsById = new HashMap<>();
+        products.forEach(product -> productsById.put(product.getId(), product));
+        ProductRepository productRepository = Beans.repository(ProductRepository.class, Map.of(
+            "findAll", args -> products,
+            "findAllById", args -> {
+                List<Product> found = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    Product product = productsById.get(id);
+                    if (product != null) {
+                        found.add(product);
+                    }
+                }
+                return found;
+            },
+            // also called with a Pageable by the trending tracker
+            "findByIsActiveTrue", args -> args == null || args.length == 0 ? products
+                : new PageImpl<>(products.subList(0, Math.min(products.size(), ((Pageable) args[0]).getPageSize())))));
+
+        SimilarProductIndex similarProductIndex = new SimilarProductIndex();
+        Beans.set(similarProductIndex, "productRepository", productRepository);
+        Beans.set(similarProductIndex, "index", data.neighbors(20));
+        similarProductIndex.reloadProducts();
+
+        SplittableRandom random = new SplittableRandom(7);
+        sampledUsers = new int[SAMPLED_USERS];
+        activitiesByUser = new HashMap<>();
+        for (int i = 0; i < SAMPLED_USERS; i++) {
+            sampledUsers[i] = data.userIds[random.nextInt(data.events)];
+            activitiesByUser.computeIfAbsent(sampledUsers[i], data::activitiesOf);
+        }
+
+        // what sumScoresByProductSince returns for the 30-day /for-you window
+        long windowStart = data.now.minus(Duration.ofDays(30)).toEpochMilli();
+        Map<Integer, List<Object[]>> weightRows = new HashMap<>();
+        activitiesByUser.forEach((userId, events) -> {
+            IntDoubleHashMap weights = new IntDoubleHashMap();
+            for (UserActivity activity : events) {
+                if (activity.getTimestamp().toEpochMilli() >= windowStart) {
+                    weights.addTo(activity.getProductId(), activity.getScore());
+                }
+            }
+            List<Object[]> rows = new ArrayList<>(weights.size());
+            weights.forEach((productId, weight) -> rows.add(new Object[] { productId, weight }));
+            weightRows.put(userId, rows);
+        });
+        UserActivityRepository activityRepository = Beans.repository(UserActivityRepository.class, Map.of(
+            "sumScoresByProductSince", args -> weightRows.getOrDefault((Integer) args[0], List.of()),
+            // (productId, timestamp) of purchases in [since, until), read by the trending tracker on init
+            "streamPurchasesBetween", args -> data.purchaseRows()
+                .filter(row -> !((Instant) row[2]).isBefore((Instant) args[0]) && ((Instant) row[2]).isBefore((Instant) args[1]))
+                .map(row -> new Object[] { row[1], row[2] })));
+        ActivityPartitionManager activityPartitions = new ActivityPartitionManager();
+        Beans.set(activityPartitions, "activityRepository", activityRepository);
+
+        // users without activity in the last 30 days fall back to trending products
+        TrendingProductTracker trendingTracker = new TrendingProductTracker();
+        Beans.set(trendingTracker, "activityRepository", activityRepository);
+        Beans.set(trendingTracker, "productRepository", productRepository);
+        Beans.set(trendingTracker, "transactionTemplate", new TransactionTemplate() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                return action.doInTransaction(null);
+            }
+        });
+        Beans.set(trendingTracker, "windowHours", 168L);
+        Beans.set(trendingTracker, "bucketMinutes", 60L);
+        Beans.set(trendingTracker, "refreshMs", 5000L);
+        Beans.set(trendingTracker, "maxSize", 100);
+        trendingTracker.init();
+
+        // measure cache misses: the cache is off
+        RecommendationResultCache recommendationCache = new RecommendationResultCache();
+        Beans.set(recommendationCache, "enabled", false);
+        Beans.set(recommendationCache, "maxSize", 10000);
+        Beans.set(recommendationCache, "ttlSeconds", 600L);
+        recommendationCache.init();
+
+        // no stored scores and no trained model, so every request runs neighbor scoring
+        UserProductScoreRepository scoreRepository = Beans.repository(UserProductScoreRepository.class, Map.of(
+            "findTop20ByUserIdOrderByScoreDesc", args -> List.of()));
+
+        service = new RecommendationService();
+        Beans.set(service, "productRepository", productRepository);
+        Beans.set(service, "scoreRepository", scoreRepository);
+        Beans.set(service, "similarProductIndex", similarProductIndex);
+        Beans.set(service, "activityPartitions", activityPartitions);
+        Beans.set(service, "alsModel", new AlsModelService());
+        Beans.set(service, "recommendationCache", recommendationCache);
+        Beans.set(service, "trendingTracker", trendingTracker);
+        Beans.set(service, "scoreHalfLifeDays", 30.0);
+    }
+
+    private int nextUser() {
+        cursor = (cursor + 1) & (SAMPLED_USERS - 1);
+        return sampledUsers[cursor];
+    }
+
+    /**
+     * A /for-you request that misses the result cache and the factor model.
+     */
+    @Benchmark
+    public List<Product> forYouNeighborScoring() {
+        return service.getRecommendationsForUser(nextUser(), 12);
+    }
+
+    /**
+     * The scoring core of computeUserScores for one user, without the score table writes.
+     */
+    @Benchmark
+    public Map<Integer, Double> userScores() {
+        return service.scoreActivities(activitiesByUser.get(nextUser()), data.now);
+    }
+
+    /**
+     * Rebuilding the trending counts from every purchase in the data set, as the
+     * tracker does on startup, and reading the top 100.
+     */
+    @Benchmark
+    public int[] trendingAggregation() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofDays(90), Duration.ofHours(1));
+        for (int i = 0; i < data.events; i++) {
+            if (data.isPurchase(i)) {
+                counter.add(data.productIds[i], data.timestamps[i]);
+            }
+        }
+        counter.advanceTo(data.now.toEpochMilli());
+        return counter.top(100);
+    }
+}
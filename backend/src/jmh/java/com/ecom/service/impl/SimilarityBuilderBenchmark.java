@@ -0,0 +1,111 @@
+package com.ecom.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.ecom.benchmark.Beans;
+import com.ecom.benchmark.SyntheticActivity;
+import com.ecom.model.Product;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.CoPurchaseMatrix;
+import com.ecom.util.MinHashSignatures;
+import com.ecom.util.NeighborIndex;
+
+/**
+ * The nightly similarity builders over synthetic activity of {@code activities}
+ * events: loading the co-purchase matrix, exact and MinHash co-purchase similarity,
+ * and the co-view index. The user_activity streams are served from memory and rows
+ * go to a counting sink instead of the bulk writer, so only the builders are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimilarityBuilderBenchmark {
+
+    @Param({ "10000", "100000", "1000000" })
+    private int activities;
+
+    private SyntheticActivity data;
+    private List<Product> products;
+    private Instant recentSince;
+    private SparseSimilarityEngine sparseEngine;
+    private CoPurchaseMatrix matrix;
+    private MinHashSimilarityEngine minHashEngine;
+    private MinHashSignatures signatures;
+    private CoViewSimilarityBuilder coViewBuilder;
+
+    @Setup
+    public void setup() {
+        Beans.quietLogging();
+        data = SyntheticActivity.generate(activities);
+        products = data.products();
+        recentSince = data.now.minus(Duration.ofDays(30));
+
+        UserActivityRepository activityRepository = Beans.repository(UserActivityRepository.class, Map.of(
+            "streamAllPurchases", args -> data.purchaseRows(),
+            "streamViewsSince", args -> data.viewRows()));
+
+        sparseEngine = Beans.set(new SparseSimilarityEngine(), "activityRepository", activityRepository);
+        matrix = sparseEngine.loadPurchaseMatrix(recentSince);
+
+        minHashEngine = new MinHashSimilarityEngine();
+        Beans.set(minHashEngine, "sparseSimilarityEngine", sparseEngine);
+        Beans.set(minHashEngine, "signatureSize", 128);
+        Beans.set(minHashEngine, "bands", 64);
+        Beans.set(minHashEngine, "minJaccard", 0.05);
+        Beans.set(minHashEngine, "maxBucketSize", 500);
+        Beans.set(minHashEngine, "neighbors", 50);
+        signatures = new MinHashSignatures(128, 64);
+        for (int i = 0; i < data.events; i++) {
+            if (data.isPurchase(i)) {
+                signatures.addPurchase(data.userIds[i], data.productIds[i]);
+            }
+        }
+
+        coViewBuilder = new CoViewSimilarityBuilder();
+        Beans.set(coViewBuilder, "activityRepository", activityRepository);
+        Beans.set(coViewBuilder, "windowMinutes", 30L);
+        Beans.set(coViewBuilder, "sessionProducts", 25);
+        Beans.set(coViewBuilder, "maxPairs", 1_000_000);
+        Beans.set(coViewBuilder, "minCount", 2);
+        Beans.set(coViewBuilder, "neighbors", 20);
+    }
+
+    @Benchmark
+    public CoPurchaseMatrix loadPurchaseMatrix() {
+        return sparseEngine.loadPurchaseMatrix(recentSince);
+    }
+
+    @Benchmark
+    public long sparseCoPurchase() {
+        return sparseEngine.computeSimilarities(matrix, products, (productId, similarProductId, score, basis) -> {
+        });
+    }
+
+    @Benchmark
+    public long minHashCoPurchase() {
+        return minHashEngine.computeSimilarities(signatures, products, (productId, similarProductId, score, basis) -> {
+        });
+    }
+
+    @Benchmark
+    public NeighborIndex coViewIndex() {
+        return coViewBuilder.buildIndex(Instant.EPOCH);
+    }
+}
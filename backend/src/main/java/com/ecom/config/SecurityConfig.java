@@ -126,7 +126,7 @@ public class SecurityConfig {
 								"/api/forgot-password", "/api/reset-password",
 								"/api/validate-reset-token", "/api/home",
 								"/api/products", "/api/product/**",
-								"/api/search", "/api/user-info", "/api/auth/check").permitAll()
+								"/api/search", "/api/search/suggest", "/api/user-info", "/api/auth/check").permitAll()
 
 						// Static resources
 						.requestMatchers("/img/**", "/css/**", "/js/**", "/static/**").permitAll()
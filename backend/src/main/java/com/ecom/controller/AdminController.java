@@ -39,11 +39,19 @@ import com.ecom.model.UserDtls;
 import com.ecom.repository.ProductSimilarityRepository;
 import com.ecom.repository.UserActivityRepository;
 import com.ecom.repository.UserProductScoreRepository;
+import com.ecom.repository.UserScoreWatermarkRepository;
 import com.ecom.service.CartService;
 import com.ecom.service.CategoryService;
 import com.ecom.service.OrderService;
 import com.ecom.service.ProductService;
 import com.ecom.service.UserService;
+import com.ecom.service.impl.ActivityIngestionPipeline;
+import com.ecom.service.impl.ActivityPartitionManager;
+import com.ecom.service.impl.AlsModelService;
+import com.ecom.service.impl.PartitionedUserScoreRunner;
+import com.ecom.service.impl.ProductEmbeddingIndex;
+import com.ecom.service.impl.RecommendationResultCache;
+import com.ecom.service.impl.SessionActivityStore;
 import com.ecom.service.impl.RecommendationService;
 import com.ecom.util.CommonUtil;
 import com.ecom.util.OrderStatus;
@@ -86,6 +94,30 @@ public class AdminController {
     @Autowired
     private UserProductScoreRepository scoreRepository;
 
+    @Autowired
+    private UserScoreWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private PartitionedUserScoreRunner userScoreRunner;
+
+    @Autowired
+    private ActivityIngestionPipeline activityIngestion;
+
+    @Autowired
+    private AlsModelService alsModel;
+
+    @Autowired
+    private ProductEmbeddingIndex embeddingIndex;
+
+    @Autowired
+    private RecommendationResultCache recommendationCache;
+
+    @Autowired
+    private SessionActivityStore sessionStore;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
     // Get admin dashboard data
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardData(Principal principal) {
@@ -307,6 +339,7 @@ public class AdminController {
         Product saveProduct = productService.saveProduct(product);
 
         if (!ObjectUtils.isEmpty(saveProduct)) {
+            recommendationService.onProductChanged(saveProduct.getId());
             if (image != null && !image.isEmpty()) {
                 try {
                     File saveFile = new ClassPathResource("static/img").getFile();
@@ -370,6 +403,7 @@ public class AdminController {
 
         Boolean deleteProduct = productService.deleteProduct(id);
         if (deleteProduct) {
+            recommendationService.onProductChanged(id);
             response.put("success", true);
             response.put("message", "Product and related recommendations deleted successfully");
             return ResponseEntity.ok(response);
@@ -428,6 +462,7 @@ public class AdminController {
 
         Product updateProduct = productService.updateProduct(product, image);
         if (!ObjectUtils.isEmpty(updateProduct)) {
+            recommendationService.onProductChanged(id);
             response.put("success", true);
             response.put("message", "Product updated successfully");
             response.put("product", updateProduct);
@@ -760,8 +795,7 @@ public class AdminController {
             long totalUserScores = scoreRepository.count();
 
             Instant sevenDaysAgo = Instant.now().minus(7, ChronoUnit.DAYS);
-            List<?> recentActivitiesList = activityRepository.findRecentPurchases(sevenDaysAgo);
-            long recentActivities = recentActivitiesList != null ? recentActivitiesList.size() : 0;
+            long recentActivities = activityPartitions.countEventsSince("PURCHASE", sevenDaysAgo);
 
             response.put("success", true);
             response.put("stats", Map.of(
@@ -770,6 +804,13 @@ public class AdminController {
                     "totalUserScores", totalUserScores,
                     "recentPurchases", recentActivities
             ));
+            response.put("userScoreRun", userScoreRunner.status());
+            response.put("activityIngestion", activityIngestion.stats());
+            response.put("alsModel", alsModel.stats());
+            response.put("annIndex", embeddingIndex.stats());
+            response.put("recommendationCache", recommendationCache.stats());
+            response.put("sessionActivity", sessionStore.stats());
+            response.put("activityStorage", activityPartitions.stats());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -839,16 +880,12 @@ public class AdminController {
         }
 
         try {
-            new Thread(() -> {
-                List<UserDtls> users = userService.getUsers("ROLE_USER");
-                for (UserDtls u : users) {
-                    try {
-                        recommendationService.computeUserScores(u.getId());
-                    } catch (Exception e) {
-                        System.err.println("Error computing scores for user " + u.getId() + ": " + e.getMessage());
-                    }
-                }
-            }).start();
+            if (!userScoreRunner.submitRun("admin", true)) {
+                response.put("success", false);
+                response.put("message", "A user score computation is already running");
+                response.put("run", userScoreRunner.status());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
 
             response.put("success", true);
             response.put("message", "User score computation started for all users. This will populate the user_product_score table with personalized recommendations.");
@@ -898,6 +935,50 @@ public class AdminController {
         }
     }
 
+    /**
+     * One-off migration of user_activity to daily partitions (MySQL, with
+     * recommendation.activity.partitioning.enabled). Rebuilds the whole table, so it
+     * runs in the background and should be scheduled for a quiet period.
+     */
+    @PostMapping("/recommendations/partition-activity")
+    public ResponseEntity<Map<String, Object>> partitionActivity(Principal principal) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        UserDtls user = userService.getUserByEmail(principal.getName());
+        if (!"ROLE_ADMIN".equals(user.getRole())) {
+            response.put("success", false);
+            response.put("message", "Admin access required");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+
+        try {
+            if (!activityPartitions.canPartition()) {
+                response.put("success", false);
+                response.put("message", "user_activity is already partitioned, or partitioning is disabled or not supported by this database");
+                response.put("activityStorage", activityPartitions.stats());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+
+            new Thread(() -> {
+                activityPartitions.partitionTable();
+            }).start();
+
+            response.put("success", true);
+            response.put("message", "Partitioning of user_activity started in background. Check activityStorage in the stats.");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error starting partitioning: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Clear all recommendation data (for maintenance/debugging)
      */
@@ -919,9 +1000,20 @@ public class AdminController {
         }
 
         try {
+            if (!userScoreRunner.resetIncrementalCheckpoint()) {
+                response.put("success", false);
+                response.put("message", "A user score computation is already running");
+                response.put("run", userScoreRunner.status());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+
             activityRepository.deleteAll();
+            activityPartitions.reset();
             similarityRepository.deleteAll();
             scoreRepository.deleteAll();
+            watermarkRepository.deleteAll();
+            recommendationService.onSimilaritiesChanged();
+            recommendationCache.invalidateAll();
 
             response.put("success", true);
             response.put("message", "All recommendation data cleared successfully");
@@ -955,6 +1047,7 @@ public class AdminController {
 
         try {
             similarityRepository.deleteAll();
+            recommendationService.onSimilaritiesChanged();
 
             response.put("success", true);
             response.put("message", "Product similarities cleared. Run 'compute-similarities' to rebuild.");
@@ -987,7 +1080,18 @@ public class AdminController {
         }
 
         try {
+            // without scores the watermarks are meaningless; with the incremental checkpoint
+            // reset too, the next run recomputes every user with activity in full
+            if (!userScoreRunner.resetIncrementalCheckpoint()) {
+                response.put("success", false);
+                response.put("message", "A user score computation is already running");
+                response.put("run", userScoreRunner.status());
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+
             scoreRepository.deleteAll();
+            watermarkRepository.deleteAll();
+            recommendationCache.invalidateAll();
 
             response.put("success", true);
             response.put("message", "User scores cleared. Run 'compute-all-user-scores' to rebuild.");
@@ -31,16 +31,18 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.ecom.model.Category;
+import com.ecom.model.FacetedProductPage;
 import com.ecom.model.Product;
+import com.ecom.model.ProductFilter;
 import com.ecom.model.UserDtls;
 import com.ecom.service.CartService;
 import com.ecom.service.CategoryService;
 import com.ecom.service.ProductService;
 import com.ecom.service.UserService;
 import com.ecom.service.impl.RecommendationService;
+import com.ecom.service.impl.SearchSuggestionIndex;
 import com.ecom.util.CommonUtil;
 
-import io.micrometer.common.util.StringUtils;
 import jakarta.mail.MessagingException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -81,6 +83,9 @@ public class HomeController {
     @Autowired
     private RecommendationService recommendationService;
 
+    @Autowired
+    private SearchSuggestionIndex suggestionIndex;
+
     // Fixed login endpoint with proper session management
     @PostMapping("/login")
     public ResponseEntity<Map<String, Object>> login(
@@ -116,6 +121,7 @@ public class HomeController {
 
             // Get user details
             UserDtls user = userService.getUserByEmail(email);
+            recommendationService.mergeSessionHistory(session.getId(), user.getId());
             Integer cartCount = cartService.getCountCart(user.getId());
 
             // Prepare user response (exclude sensitive data)
@@ -255,7 +261,10 @@ public class HomeController {
             @RequestParam(value = "category", defaultValue = "") String category,
             @RequestParam(name = "pageNo", defaultValue = "0") Integer pageNo,
             @RequestParam(name = "pageSize", defaultValue = "12") Integer pageSize,
-            @RequestParam(defaultValue = "") String search) {
+            @RequestParam(defaultValue = "") String search,
+            @RequestParam(required = false) List<Integer> priceBand,
+            @RequestParam(required = false) List<Integer> discountBand,
+            @RequestParam(defaultValue = "false") Boolean inStock) {
 
         Map<String, Object> response = new HashMap<>();
 
@@ -263,12 +272,9 @@ public class HomeController {
         response.put("allCategories", categories);
         response.put("currentCategory", category);
 
-        Page<Product> page;
-        if (StringUtils.isEmpty(search)) {
-            page = productService.getAllActiveProductPagination(pageNo, pageSize, category);
-        } else {
-            page = productService.searchActiveProductPagination(pageNo, pageSize, category, search);
-        }
+        ProductFilter filter = new ProductFilter(category, priceBand, discountBand, inStock);
+        FacetedProductPage result = productService.getActiveProductFacetPagination(pageNo, pageSize, search, filter);
+        Page<Product> page = result.page();
 
         List<Product> products = page.getContent();
 
@@ -287,6 +293,7 @@ public class HomeController {
         response.put("productsCount", products.size());
         response.put("pagination", pagination);
         response.put("searchQuery", search);
+        response.put("facets", result.facets());
 
         return ResponseEntity.ok(response);
     }
@@ -468,4 +475,16 @@ public class HomeController {
 
         return ResponseEntity.ok(response);
     }
+
+    // Typeahead completions for the search box
+    @GetMapping("/search/suggest")
+    public ResponseEntity<Map<String, Object>> suggestSearch(@RequestParam(defaultValue = "") String query,
+            @RequestParam(defaultValue = "8") Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+
+        response.put("suggestions", suggestionIndex.suggest(query, Math.max(1, Math.min(limit, 20))));
+        response.put("searchQuery", query);
+
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 import com.ecom.model.Product;
 import com.ecom.model.UserDtls;
 import com.ecom.service.UserService;
+import com.ecom.service.impl.AlsModelService;
 import com.ecom.service.impl.RecommendationService;
 import jakarta.servlet.http.HttpSession;
 
@@ -32,6 +33,9 @@ public class RecommendationController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AlsModelService alsModel;
+
     @PostMapping("/track")
     public ResponseEntity<Map<String, Object>> trackActivity(
             @RequestBody Map<String, String> request,
@@ -70,10 +74,20 @@ public class RecommendationController {
     @GetMapping("/for-you")
     public ResponseEntity<Map<String, Object>> getPersonalizedRecommendations(
             @RequestParam(defaultValue = "12") int limit,
-            Principal principal) {
+            Principal principal,
+            HttpSession session) {
         
         Map<String, Object> response = new HashMap<>();
 
+        if (principal == null && recommendationService.hasSessionHistory(session.getId())) {
+            List<Product> sessionRecommendations = recommendationService.getRecommendationsForSession(session.getId(), limit);
+            response.put("success", true);
+            response.put("recommendations", sessionRecommendations);
+            response.put("count", sessionRecommendations.size());
+            response.put("type", "session");
+            return ResponseEntity.ok(response);
+        }
+
         if (principal == null) {
             List<Product> trending = recommendationService.getTrendingProducts(limit);
             response.put("success", true);
@@ -177,4 +191,34 @@ public class RecommendationController {
         
         return ResponseEntity.ok(response);
     }
+
+    @PostMapping("/admin/train-als")
+    public ResponseEntity<Map<String, Object>> trainAlsModel(Principal principal) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (principal == null) {
+            response.put("success", false);
+            response.put("message", "Unauthorized");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        UserDtls user = userService.getUserByEmail(principal.getName());
+        if (!"ROLE_ADMIN".equals(user.getRole())) {
+            response.put("success", false);
+            response.put("message", "Admin access required");
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+        }
+
+        if (!alsModel.submitTraining()) {
+            response.put("success", false);
+            response.put("message", "ALS model training is already running");
+            response.put("model", alsModel.stats());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+
+        response.put("success", true);
+        response.put("message", "ALS model training started");
+        
+        return ResponseEntity.ok(response);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.ecom.model;
+
+import java.time.Instant;
+
+/**
+ * Immutable activity event on its way to the user_activity table.
+ */
+public record ActivityEvent(Integer userId, Integer productId, String action, Instant timestamp,
+        String sessionId, double score) {
+}
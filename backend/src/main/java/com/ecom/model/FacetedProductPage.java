@@ -0,0 +1,11 @@
+package com.ecom.model;
+
+import java.util.Map;
+import org.springframework.data.domain.Page;
+
+/**
+ * One page of the product listing with the facet counts of the whole result, empty
+ * while the facet index is not available.
+ */
+public record FacetedProductPage(Page<Product> page, Map<String, Object> facets) {
+}
@@ -0,0 +1,48 @@
+package com.ecom.model;
+
+import java.time.LocalDate;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * user_activity rolled up per (UTC day, product, action).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "product_activity_daily", indexes = {
+    @Index(name = "idx_pad_date_product_action", columnList = "activityDate, productId, action", unique = true),
+    @Index(name = "idx_pad_action_date", columnList = "action, activityDate")
+})
+public class ProductActivityDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false)
+    private Integer productId;
+
+    @Column(length = 50)
+    private String action;
+
+    @Column(nullable = false)
+    private Long events;
+
+    @Column(nullable = false)
+    private Double scoreSum;
+}
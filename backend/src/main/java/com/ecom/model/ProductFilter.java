@@ -0,0 +1,12 @@
+package com.ecom.model;
+
+import java.util.List;
+
+/**
+ * Facet selection of the product listing: a category name, price and discount band
+ * numbers of which any may match, and whether only products in stock are wanted.
+ * Empty values do not filter.
+ */
+public record ProductFilter(String category, List<Integer> priceBands, List<Integer> discountBands,
+        boolean inStockOnly) {
+}
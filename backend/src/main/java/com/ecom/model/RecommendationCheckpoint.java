@@ -0,0 +1,34 @@
+package com.ecom.model;
+
+import java.time.Instant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Named position of a recommendation background job, e.g. the last
+ * UserActivity id an incremental run has consumed.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "recommendation_checkpoint")
+public class RecommendationCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private Long position;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+}
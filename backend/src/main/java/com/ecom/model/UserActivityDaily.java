@@ -0,0 +1,48 @@
+package com.ecom.model;
+
+import java.time.LocalDate;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * user_activity rolled up per (UTC day, user, product); scoreSum is the summed action weight.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "user_activity_daily", indexes = {
+    @Index(name = "idx_uad_date_user_product", columnList = "activityDate, userId, productId", unique = true),
+    @Index(name = "idx_uad_user_date", columnList = "userId, activityDate")
+})
+public class UserActivityDaily {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false)
+    private Integer userId;
+
+    @Column(nullable = false)
+    private Integer productId;
+
+    @Column(nullable = false)
+    private Long events;
+
+    @Column(nullable = false)
+    private Double scoreSum;
+}
@@ -0,0 +1,33 @@
+package com.ecom.model;
+
+import java.time.Instant;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Highest UserActivity id already folded into a user's UserProductScore rows,
+ * and when those rows were last brought up to date (the base for time decay).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(name = "user_score_watermark")
+public class UserScoreWatermark {
+
+    @Id
+    private Integer userId;
+
+    @Column(nullable = false)
+    private Integer lastActivityId;
+
+    @Column(nullable = false)
+    private Instant computedAt;
+}
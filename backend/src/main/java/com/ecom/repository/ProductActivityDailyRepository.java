@@ -0,0 +1,24 @@
+package com.ecom.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ecom.model.ProductActivityDaily;
+
+public interface ProductActivityDailyRepository extends JpaRepository<ProductActivityDaily, Integer> {
+    
+    @Query("SELECT COALESCE(SUM(d.events), 0) FROM ProductActivityDaily d "
+            + "WHERE d.action = :action AND d.activityDate >= :from AND d.activityDate < :until")
+    long sumEvents(@Param("action") String action, @Param("from") LocalDate from, @Param("until") LocalDate until);
+
+    /**
+     * (productId, summed action weight) of the rolled up days in [from, until).
+     */
+    @Query("SELECT d.productId, SUM(d.scoreSum) FROM ProductActivityDaily d "
+            + "WHERE d.activityDate >= :from AND d.activityDate < :until GROUP BY d.productId")
+    List<Object[]> sumScoresByProduct(@Param("from") LocalDate from, @Param("until") LocalDate until);
+}
@@ -1,8 +1,10 @@
 package com.ecom.repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.ecom.model.ProductSimilarity;
 
@@ -15,4 +17,10 @@ public interface ProductSimilarityRepository extends JpaRepository<ProductSimila
     List<ProductSimilarity> findByProductIdAndBasis(Integer productId, String basis);
     
     void deleteByProductId(Integer productId);
+    
+    /**
+     * Streams (productId, similarProductId, similarityScore) for every row; consume inside a transaction.
+     */
+    @Query("SELECT ps.productId, ps.similarProductId, ps.similarityScore FROM ProductSimilarity ps")
+    Stream<Object[]> streamAllScores();
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package com.ecom.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.ecom.model.RecommendationCheckpoint;
+
+public interface RecommendationCheckpointRepository extends JpaRepository<RecommendationCheckpoint, String> {
+}
@@ -0,0 +1,21 @@
+package com.ecom.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ecom.model.UserActivityDaily;
+
+public interface UserActivityDailyRepository extends JpaRepository<UserActivityDaily, Integer> {
+    
+    /**
+     * (productId, summed action weight) of the user's rolled up days in [from, until).
+     */
+    @Query("SELECT d.productId, SUM(d.scoreSum) FROM UserActivityDaily d "
+            + "WHERE d.userId = :userId AND d.activityDate >= :from AND d.activityDate < :until GROUP BY d.productId")
+    List<Object[]> sumScoresByProduct(@Param("userId") Integer userId, @Param("from") LocalDate from,
+            @Param("until") LocalDate until);
+}
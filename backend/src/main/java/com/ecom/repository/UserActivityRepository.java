@@ -1,7 +1,9 @@
 package com.ecom.repository;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -25,4 +27,76 @@ public interface UserActivityRepository extends JpaRepository<UserActivity, Inte
     
     @Query("SELECT ua FROM UserActivity ua WHERE ua.action = 'PURCHASE' AND ua.timestamp >= :since")
     List<UserActivity> findRecentPurchases(@Param("since") Instant since);
+    
+    long countByActionAndTimestampGreaterThanEqual(String action, Instant since);
+    
+    @Query("SELECT ua.productId, SUM(ua.score) FROM UserActivity ua "
+            + "WHERE ua.userId = :userId AND ua.timestamp >= :since GROUP BY ua.productId")
+    List<Object[]> sumScoresByProductSince(@Param("userId") Integer userId, @Param("since") Instant since);
+
+    @Query("SELECT ua.productId, SUM(ua.score) FROM UserActivity ua WHERE ua.timestamp >= :since GROUP BY ua.productId")
+    List<Object[]> sumScoresByProductSince(@Param("since") Instant since);
+    
+    @Query("SELECT MIN(ua.timestamp) FROM UserActivity ua")
+    Instant findMinTimestamp();
+    
+    @Query("SELECT MAX(ua.id) FROM UserActivity ua")
+    Integer findMaxId();
+    
+    @Query("SELECT DISTINCT ua.userId FROM UserActivity ua WHERE ua.id > :afterId AND ua.id <= :upToId ORDER BY ua.userId")
+    List<Integer> findUserIdsWithActivityBetween(@Param("afterId") Integer afterId, @Param("upToId") Integer upToId);
+    
+    @Query("SELECT ua FROM UserActivity ua WHERE ua.userId = :userId AND ua.id > :afterId AND ua.id <= :upToId")
+    List<UserActivity> findNewActivitiesByUser(@Param("userId") Integer userId,
+            @Param("afterId") Integer afterId, @Param("upToId") Integer upToId);
+    
+    /**
+     * Streams (userId, productId, timestamp) for every purchase without hydrating entities.
+     * Rows arrive in hibernate.jdbc.fetch_size chunks (a server-side cursor on MySQL, see
+     * application.properties) instead of as one buffered result. Must be consumed inside a
+     * transaction and closed.
+     */
+    @Query("SELECT ua.userId, ua.productId, ua.timestamp FROM UserActivity ua WHERE ua.action = 'PURCHASE'")
+    Stream<Object[]> streamAllPurchases();
+    
+    /**
+     * Streams (productId, timestamp) for purchases in [since, until), same streaming rules as above.
+     */
+    @Query("SELECT ua.productId, ua.timestamp FROM UserActivity ua WHERE ua.action = 'PURCHASE' "
+            + "AND ua.timestamp >= :since AND ua.timestamp < :until")
+    Stream<Object[]> streamPurchasesBetween(@Param("since") Instant since, @Param("until") Instant until);
+    
+    /**
+     * Streams (userId, productId) for purchases in [since, until).
+     */
+    @Query("SELECT ua.userId, ua.productId FROM UserActivity ua WHERE ua.action = 'PURCHASE' "
+            + "AND ua.timestamp >= :since AND ua.timestamp < :until")
+    Stream<Object[]> streamUserPurchasesBetween(@Param("since") Instant since, @Param("until") Instant until);
+    
+    /**
+     * Streams (userId, productId, timestamp, sessionId) for views since a point in time,
+     * ordered by user and time so sessions can be reassembled on the fly.
+     */
+    @Query("SELECT ua.userId, ua.productId, ua.timestamp, ua.sessionId FROM UserActivity ua "
+            + "WHERE ua.action = 'VIEW' AND ua.timestamp >= :since ORDER BY ua.userId, ua.timestamp")
+    Stream<Object[]> streamViewsSince(@Param("since") Instant since);
+    
+    /**
+     * Streams (userId, productId, summed action weight) per pair with activity since a point in time.
+     */
+    @Query("SELECT ua.userId, ua.productId, SUM(ua.score) FROM UserActivity ua "
+            + "WHERE ua.timestamp >= :since GROUP BY ua.userId, ua.productId")
+    Stream<Object[]> streamInteractionWeights(@Param("since") Instant since);
+    
+    /**
+     * Same as {@link #streamInteractionWeights(Instant)}, but whole days in [fromDate, untilDate)
+     * are read from the user_activity_daily rollup and only events since rawSince from user_activity.
+     */
+    @Query(value = "SELECT t.user_id, t.product_id, SUM(t.weight) FROM ("
+            + "SELECT d.user_id, d.product_id, d.score_sum AS weight FROM user_activity_daily d "
+            + "WHERE d.activity_date >= :fromDate AND d.activity_date < :untilDate "
+            + "UNION ALL SELECT ua.user_id, ua.product_id, ua.score AS weight FROM user_activity ua "
+            + "WHERE ua.timestamp >= :rawSince) t GROUP BY t.user_id, t.product_id", nativeQuery = true)
+    Stream<Object[]> streamInteractionWeightsWithRollups(@Param("fromDate") LocalDate fromDate,
+            @Param("untilDate") LocalDate untilDate, @Param("rawSince") Instant rawSince);
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.ecom.repository;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.ecom.model.UserDtls;
 
@@ -15,4 +17,16 @@ public interface UserRepository extends JpaRepository<UserDtls, Integer> {
 	public UserDtls findByResetToken(String token);
 
 	public Boolean existsByEmail(String email);
+
+	public long countByRole(String role);
+
+	@Query("SELECT MIN(u.id) FROM UserDtls u WHERE u.role = :role")
+	public Integer findMinIdByRole(@Param("role") String role);
+
+	@Query("SELECT MAX(u.id) FROM UserDtls u WHERE u.role = :role")
+	public Integer findMaxIdByRole(@Param("role") String role);
+
+	@Query("SELECT u.id FROM UserDtls u WHERE u.role = :role AND u.id >= :fromId AND u.id < :toId ORDER BY u.id")
+	public List<Integer> findIdsByRoleInRange(@Param("role") String role, @Param("fromId") Integer fromId,
+			@Param("toId") Integer toId);
 }
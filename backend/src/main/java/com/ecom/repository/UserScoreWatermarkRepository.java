@@ -0,0 +1,8 @@
+package com.ecom.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.ecom.model.UserScoreWatermark;
+
+public interface UserScoreWatermarkRepository extends JpaRepository<UserScoreWatermark, Integer> {
+}
@@ -1,12 +1,14 @@
 package com.ecom.scheduler;
 
-import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import com.ecom.model.UserDtls;
-import com.ecom.repository.UserRepository;
+import com.ecom.service.impl.ActivityPartitionManager;
+import com.ecom.service.impl.AlsModelService;
+import com.ecom.service.impl.PartitionedUserScoreRunner;
 import com.ecom.service.impl.RecommendationService;
+import com.ecom.service.impl.SearchSuggestionIndex;
+import com.ecom.service.impl.SessionActivityStore;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -17,7 +19,19 @@ public class RecommendationScheduler {
     private RecommendationService recommendationService;
 
     @Autowired
-    private UserRepository userRepository;
+    private PartitionedUserScoreRunner userScoreRunner;
+
+    @Autowired
+    private AlsModelService alsModel;
+
+    @Autowired
+    private SessionActivityStore sessionStore;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Autowired
+    private SearchSuggestionIndex suggestionIndex;
 
     @Scheduled(cron = "0 0 2 * * ?")
     public void computeProductSimilarities() {
@@ -33,27 +47,34 @@ public class RecommendationScheduler {
     @Scheduled(cron = "0 0 */6 * * ?")
     public void computeUserScores() {
         log.info("Starting scheduled user score computation...");
-        try {
-            List<UserDtls> users = userRepository.findAll();
-            int count = 0;
-            
-            for (UserDtls user : users) {
-                try {
-                    recommendationService.computeUserScores(user.getId());
-                    count++;
-                    
-                    if (count % 100 == 0) {
-                        Thread.sleep(1000);
-                        log.info("Processed {} users", count);
-                    }
-                } catch (Exception e) {
-                    log.error("Error computing scores for user: " + user.getId(), e);
-                }
-            }
-            
-            log.info("User score computation completed. Processed {} users", count);
-        } catch (Exception e) {
-            log.error("Error in user score computation", e);
+        if (!userScoreRunner.submitRun("scheduled")) {
+            log.warn("Previous user score computation is still running, skipping this slot");
         }
     }
+
+    @Scheduled(cron = "${recommendation.als.cron:0 30 3 * * ?}")
+    public void trainAlsModel() {
+        if (!alsModel.isEnabled()) {
+            return;
+        }
+        log.info("Starting scheduled ALS model training...");
+        alsModel.train();
+    }
+
+    @Scheduled(cron = "${recommendation.activity.rollup-cron:0 15 0 * * ?}")
+    public void maintainActivityStorage() {
+        log.info("Starting user_activity rollup and retention...");
+        activityPartitions.runNightly();
+    }
+
+    @Scheduled(cron = "${search.suggest.rebuild-cron:0 45 0 * * ?}")
+    public void rebuildSearchSuggestions() {
+        log.info("Queueing a search suggestion rebuild with fresh popularity...");
+        suggestionIndex.rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${recommendation.session.sweep-ms:60000}")
+    public void evictExpiredSessions() {
+        sessionStore.evictExpired();
+    }
 }
\ No newline at end of file
@@ -5,7 +5,9 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.ecom.model.FacetedProductPage;
 import com.ecom.model.Product;
+import com.ecom.model.ProductFilter;
 
 public interface ProductService {
 
@@ -31,4 +33,7 @@ public interface ProductService {
 
 	public Page<Product> searchActiveProductPagination(Integer pageNo, Integer pageSize, String category, String ch);
 
+	public FacetedProductPage getActiveProductFacetPagination(Integer pageNo, Integer pageSize, String ch,
+			ProductFilter filter);
+
 }
@@ -0,0 +1,213 @@
+package com.ecom.service.impl;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.ecom.model.ActivityEvent;
+import com.ecom.util.BoundedRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-behind ingestion for user activity.
+ *
+ * Request threads drop events into a bounded lock-free ring and return; a single
+ * flusher thread drains it into user_activity with multi-row INSERTs whenever
+ * {@code flush-batch-size} events are waiting or {@code flush-interval-ms} has passed.
+ * With the durable log enabled the flusher appends to {@link DurableActivityLog}
+ * instead, and the log's replayer owns the database writes.
+ * When the ring is full the overflow policy decides what happens:
+ * <ul>
+ * <li>drop - reject the event</li>
+ * <li>sample - above 75% fill, keep only a sample of low-value VIEW/CLICK events</li>
+ * <li>block - wait up to {@code block-timeout-ms} for space, then drop</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ActivityIngestionPipeline {
+
+    public enum OverflowPolicy { DROP, SAMPLE, BLOCK }
+
+    @Autowired
+    private BulkRecommendationWriter bulkWriter;
+
+    @Autowired(required = false)
+    private DurableActivityLog durableLog;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Value("${recommendation.activity.buffer-capacity:65536}")
+    private int bufferCapacity;
+
+    @Value("${recommendation.activity.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${recommendation.activity.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${recommendation.activity.overflow-policy:sample}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${recommendation.activity.sample-rate:0.1}")
+    private double sampleRate;
+
+    @Value("${recommendation.activity.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private BoundedRingBuffer<ActivityEvent> ring;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        ring = new BoundedRingBuffer<>(bufferCapacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "activity-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Activity ingestion started: capacity {}, batch {}, interval {} ms, overflow policy {}",
+            ring.capacity(), flushBatchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    /**
+     * Queues an event for the next flush. Never blocks unless the policy is BLOCK.
+     *
+     * @return false if the event was dropped or sampled out
+     */
+    public boolean submit(ActivityEvent event) {
+        if (overflowPolicy == OverflowPolicy.SAMPLE && isLowValue(event)
+                && ring.size() >= ring.capacity() * 3 / 4
+                && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+
+        boolean queued = ring.offer(event);
+        if (!queued && overflowPolicy == OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+            LockSupport.unpark(flusher);
+            while (!queued && System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                queued = ring.offer(event);
+            }
+        }
+
+        if (!queued) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        if (ring.size() >= flushBatchSize) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("accepted", accepted.get());
+        stats.put("dropped", dropped.get());
+        stats.put("sampledOut", sampledOut.get());
+        stats.put("flushed", flushed.get());
+        stats.put("failed", failed.get());
+        stats.put("buffered", ring.size());
+        stats.put("capacity", ring.capacity());
+        stats.put("overflowPolicy", overflowPolicy.name());
+        if (durableLog != null) {
+            stats.put("durableLog", durableLog.stats());
+        }
+        return stats;
+    }
+
+    private void flushLoop() {
+        BulkRecommendationWriter.ActivityBatch batch = bulkWriter.activityBatch();
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        long lastFlush = System.nanoTime();
+
+        while (running || ring.size() > 0) {
+            long waitNanos = intervalNanos - (System.nanoTime() - lastFlush);
+            if (running && ring.size() < flushBatchSize && waitNanos > 0) {
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+            flushOnce(batch);
+            lastFlush = System.nanoTime();
+        }
+    }
+
+    private void flushOnce(BulkRecommendationWriter.ActivityBatch batch) {
+        if (durableLog != null) {
+            appendToLog();
+            return;
+        }
+
+        // at most one statement's worth per round; a full batch flushes itself on the last add
+        int limit = Math.min(flushBatchSize, batch.capacity());
+        int[] drained = new int[1];
+        do {
+            drained[0] = 0;
+            long before = batch.written();
+            try {
+                ring.drain(event -> {
+                    drained[0]++;
+                    batch.add(event);
+                }, limit);
+                batch.flush();
+            } catch (Exception e) {
+                failed.addAndGet(drained[0]);
+                log.error("Error flushing {} activity events", drained[0], e);
+            }
+            flushed.addAndGet(batch.written() - before);
+            activityPartitions.noteInserted(batch.takeOldestWritten());
+        } while (drained[0] == limit);
+    }
+
+    private void appendToLog() {
+        int[] drained = new int[1];
+        do {
+            drained[0] = 0;
+            try {
+                ring.drain(event -> {
+                    try {
+                        durableLog.append(event);
+                        drained[0]++;
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                        log.error("Error appending activity event to the durable log", e);
+                    }
+                }, flushBatchSize);
+            } finally {
+                durableLog.sync();
+                flushed.addAndGet(drained[0]);
+            }
+        } while (drained[0] == flushBatchSize);
+    }
+
+    private static boolean isLowValue(ActivityEvent event) {
+        return "VIEW".equals(event.action()) || "CLICK".equals(event.action());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        log.info("Activity ingestion stopped: {}", stats());
+    }
+}
@@ -0,0 +1,443 @@
+package com.ecom.service.impl;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.model.RecommendationCheckpoint;
+import com.ecom.repository.ProductActivityDailyRepository;
+import com.ecom.repository.RecommendationCheckpointRepository;
+import com.ecom.repository.UserActivityDailyRepository;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.IntDoubleHashMap;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Storage lifecycle of user_activity: daily partitions, daily rollups and retention.
+ *
+ * On MySQL the table can be range-partitioned by UTC day on its timestamp. Converting
+ * an existing table rebuilds it and changes its primary key, so it never happens on
+ * startup: with {@code partitioning.enabled} an admin runs {@link #partitionTable()}
+ * once. A history partition holds everything from before that, and a MAXVALUE
+ * partition catches the rest. Every night the job adds partitions ahead of time and
+ * rolls each finished day into product_activity_daily and user_activity_daily. It
+ * then drops partitions older than {@code retention-days}, if set. Dropping a partition
+ * is a metadata operation, however many rows it holds. On other databases, or with
+ * partitioning disabled, retention falls back to a single DELETE. Retention is off by
+ * default because the co-purchase similarity jobs read all raw PURCHASE events.
+ *
+ * Readers use the rollups for whole days before {@link #rolledUpUntil()} and raw
+ * events only after it. Windows are therefore rounded down to whole UTC days. Events
+ * can still arrive for a day that is already rolled up, e.g. on log replay after an
+ * outage or from the data generator; writers report them through
+ * {@link #noteInserted(Instant)}, which moves the checkpoint back to that day.
+ */
+@Slf4j
+@Component
+public class ActivityPartitionManager {
+
+    private static final String ROLLUP_CHECKPOINT = "activity.rollup";
+    private static final String HISTORY_PARTITION = "p_history";
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private UserActivityDailyRepository userDailyRepository;
+
+    @Autowired
+    private ProductActivityDailyRepository productDailyRepository;
+
+    @Autowired
+    private RecommendationCheckpointRepository checkpointRepository;
+
+    @Value("${recommendation.activity.partitioning.enabled:false}")
+    private boolean partitioningEnabled;
+
+    @Value("${recommendation.activity.partitioning.days-ahead:7}")
+    private int daysAhead;
+
+    // raw events older than this are dropped; 0 keeps everything
+    @Value("${recommendation.activity.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${recommendation.activity.rollup-retention-days:730}")
+    private int rollupRetentionDays;
+
+    private volatile boolean partitioned;
+    private volatile LocalDate rolledUpUntil;
+
+    @PostConstruct
+    public void init() {
+        try {
+            RecommendationCheckpoint checkpoint = checkpointRepository.findById(ROLLUP_CHECKPOINT).orElse(null);
+            rolledUpUntil = checkpoint == null ? null : LocalDate.ofEpochDay(checkpoint.getPosition());
+            if (partitioningEnabled && isMySql()) {
+                if (partitionBounds().isEmpty()) {
+                    log.warn("user_activity is not partitioned yet; POST /api/admin/recommendations/partition-activity "
+                        + "converts it");
+                } else {
+                    partitioned = true;
+                    maintainPartitions();
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error preparing user_activity partitions", e);
+        }
+    }
+
+    /**
+     * Nightly: create upcoming partitions, roll up finished days, then apply retention.
+     */
+    public void runNightly() {
+        try {
+            maintainPartitions();
+            rollUp();
+            enforceRetention();
+        } catch (Exception e) {
+            log.error("Error maintaining user_activity storage", e);
+        }
+    }
+
+    /**
+     * First UTC day that is not rolled up yet, or null if nothing has been rolled up.
+     */
+    public LocalDate rolledUpUntil() {
+        return rolledUpUntil;
+    }
+
+    /**
+     * Called once activity with the given oldest timestamp is committed. If its day is
+     * already rolled up, the checkpoint moves back to that day: readers take it from
+     * the raw events again, and the next rollup replaces the day's rows. Days before
+     * the retention cutoff are not moved back to, their raw events are going away.
+     */
+    public void noteInserted(Instant oldest) {
+        if (oldest == null) {
+            return;
+        }
+        LocalDate day = LocalDate.ofInstant(oldest, ZoneOffset.UTC);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (!day.isBefore(today)) {
+            // today is never rolled up, and this check keeps the usual flush off the lock
+            return;
+        }
+        synchronized (this) {
+            if (retentionDays > 0 && day.isBefore(today.minusDays(retentionDays))) {
+                log.warn("Activity from {} arrived after the retention cutoff, it is not rolled up again", day);
+                day = today.minusDays(retentionDays);
+            }
+            LocalDate until = rolledUpUntil;
+            if (until == null || !day.isBefore(until)) {
+                return;
+            }
+            checkpointRepository.save(new RecommendationCheckpoint(ROLLUP_CHECKPOINT, day.toEpochDay(), Instant.now()));
+            rolledUpUntil = day;
+            log.info("Activity from {} arrived after its rollup, days from there are rolled up again", day);
+        }
+    }
+
+    /**
+     * Events of one action since a point in time, counted from the product rollup for
+     * whole rolled up days and from user_activity after that.
+     */
+    public long countEventsSince(String action, Instant since) {
+        LocalDate from = LocalDate.ofInstant(since, ZoneOffset.UTC);
+        LocalDate until = rolledUpUntil;
+        if (until == null || !from.isBefore(until)) {
+            return activityRepository.countByActionAndTimestampGreaterThanEqual(action, since);
+        }
+        return productDailyRepository.sumEvents(action, from, until)
+            + activityRepository.countByActionAndTimestampGreaterThanEqual(action, startOf(until));
+    }
+
+    /**
+     * Summed action weight per product of one user's activity since a point in time.
+     */
+    public IntDoubleHashMap userProductWeightsSince(Integer userId, Instant since) {
+        IntDoubleHashMap weights = new IntDoubleHashMap();
+        LocalDate from = LocalDate.ofInstant(since, ZoneOffset.UTC);
+        LocalDate until = rolledUpUntil;
+        Instant rawSince = since;
+        if (until != null && from.isBefore(until)) {
+            for (Object[] row : userDailyRepository.sumScoresByProduct(userId, from, until)) {
+                weights.addTo((Integer) row[0], ((Number) row[1]).doubleValue());
+            }
+            rawSince = startOf(until);
+        }
+        for (Object[] row : activityRepository.sumScoresByProductSince(userId, rawSince)) {
+            if (row[1] != null) {
+                weights.addTo((Integer) row[0], ((Number) row[1]).doubleValue());
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Summed action weight per product of all activity since a point in time.
+     */
+    public IntDoubleHashMap productWeightsSince(Instant since) {
+        IntDoubleHashMap weights = new IntDoubleHashMap();
+        LocalDate from = LocalDate.ofInstant(since, ZoneOffset.UTC);
+        LocalDate until = rolledUpUntil;
+        Instant rawSince = since;
+        if (until != null && from.isBefore(until)) {
+            for (Object[] row : productDailyRepository.sumScoresByProduct(from, until)) {
+                weights.addTo((Integer) row[0], ((Number) row[1]).doubleValue());
+            }
+            rawSince = startOf(until);
+        }
+        for (Object[] row : activityRepository.sumScoresByProductSince(rawSince)) {
+            if (row[1] != null) {
+                weights.addTo((Integer) row[0], ((Number) row[1]).doubleValue());
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Rolls every finished day since the last rollup into the daily tables in one
+     * transaction. All the days are grouped in a single pass over their range, so
+     * the first run over the whole history scans user_activity once per rollup table
+     * rather than once per day. Re-rolling a day replaces its rows.
+     */
+    public synchronized int rollUp() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = rolledUpUntil;
+        if (from == null) {
+            Instant first = activityRepository.findMinTimestamp();
+            from = first == null ? today : LocalDate.ofInstant(first, ZoneOffset.UTC);
+        }
+        int days = 0;
+        if (from.isBefore(today)) {
+            LocalDate rolledFrom = from;
+            long start = System.currentTimeMillis();
+            int[] rows = transactionTemplate.execute(status -> rollUpDays(rolledFrom, today));
+            rolledUpUntil = today;
+            days = (int) (today.toEpochDay() - from.toEpochDay());
+            log.info("Rolled up user_activity from {} to {}: {} product rows, {} user rows in {} ms",
+                from, today.minusDays(1), rows[0], rows[1], System.currentTimeMillis() - start);
+        }
+        if (days == 0 && rolledUpUntil == null) {
+            // empty table: nothing before today can appear any more
+            checkpointRepository.save(new RecommendationCheckpoint(ROLLUP_CHECKPOINT, today.toEpochDay(), Instant.now()));
+            rolledUpUntil = today;
+        }
+        return days;
+    }
+
+    /**
+     * Drops raw events older than retention-days and rollups older than rollup-retention-days.
+     */
+    public void enforceRetention() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        if (retentionDays > 0) {
+            LocalDate cutoff = today.minusDays(retentionDays);
+            if (rolledUpUntil == null || rolledUpUntil.isBefore(cutoff)) {
+                // never drop raw days the rollups do not cover yet
+                log.warn("Skipping user_activity retention, rollups only reach {}", rolledUpUntil);
+            } else if (partitioned) {
+                dropPartitionsBefore(cutoff);
+            } else {
+                Timestamp before = Timestamp.from(startOf(cutoff));
+                Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+                int deleted = jdbcTemplate.update("DELETE FROM user_activity WHERE timestamp < ?",
+                    ps -> ps.setTimestamp(1, before, utc));
+                log.info("Deleted {} user_activity rows before {}", deleted, cutoff);
+            }
+        }
+        if (rollupRetentionDays > 0) {
+            Date cutoff = Date.valueOf(today.minusDays(rollupRetentionDays));
+            jdbcTemplate.update("DELETE FROM product_activity_daily WHERE activity_date < ?", cutoff);
+            jdbcTemplate.update("DELETE FROM user_activity_daily WHERE activity_date < ?", cutoff);
+        }
+    }
+
+    /**
+     * Splits the MAXVALUE partition so daily partitions exist through days-ahead days from today.
+     */
+    public void maintainPartitions() {
+        if (!partitioned) {
+            return;
+        }
+        List<Object[]> bounds = partitionBounds();
+        LocalDate next = null;
+        for (Object[] bound : bounds) {
+            if (bound[1] != null) {
+                next = (LocalDate) bound[1];
+            }
+        }
+        LocalDate last = LocalDate.now(ZoneOffset.UTC).plusDays(daysAhead);
+        if (next == null || next.isAfter(last)) {
+            return;
+        }
+        StringBuilder ddl = new StringBuilder("ALTER TABLE user_activity REORGANIZE PARTITION ")
+            .append(FUTURE_PARTITION).append(" INTO (");
+        for (LocalDate day = next; !day.isAfter(last); day = day.plusDays(1)) {
+            appendDailyPartition(ddl, day);
+        }
+        ddl.append("PARTITION ").append(FUTURE_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+        jdbcTemplate.execute(ddl.toString());
+        log.info("Added user_activity partitions from {} to {}", next, last);
+    }
+
+    /**
+     * Clears the rollups and their checkpoint, e.g. after all activity was deleted.
+     */
+    public synchronized void reset() {
+        productDailyRepository.deleteAllInBatch();
+        userDailyRepository.deleteAllInBatch();
+        checkpointRepository.deleteById(ROLLUP_CHECKPOINT);
+        rolledUpUntil = null;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("partitioned", partitioned);
+        stats.put("partitions", partitioned ? partitionBounds().size() : 0);
+        stats.put("rolledUpUntil", rolledUpUntil);
+        stats.put("retentionDays", retentionDays);
+        return stats;
+    }
+
+    /**
+     * Rolls up the days in [fromDay, untilDay). Timestamps are stored in UTC, so the
+     * DATE cast of an event is its UTC day.
+     */
+    private int[] rollUpDays(LocalDate fromDay, LocalDate untilDay) {
+        Date fromDate = Date.valueOf(fromDay);
+        Date untilDate = Date.valueOf(untilDay);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Timestamp from = Timestamp.from(startOf(fromDay));
+        Timestamp until = Timestamp.from(startOf(untilDay));
+        jdbcTemplate.update("DELETE FROM product_activity_daily WHERE activity_date >= ? AND activity_date < ?",
+            fromDate, untilDate);
+        jdbcTemplate.update("DELETE FROM user_activity_daily WHERE activity_date >= ? AND activity_date < ?",
+            fromDate, untilDate);
+        int products = jdbcTemplate.update("INSERT INTO product_activity_daily "
+            + "(activity_date, product_id, action, events, score_sum) "
+            + "SELECT CAST(timestamp AS DATE), product_id, action, COUNT(*), COALESCE(SUM(score), 0) "
+            + "FROM user_activity WHERE timestamp >= ? AND timestamp < ? "
+            + "GROUP BY CAST(timestamp AS DATE), product_id, action", ps -> {
+                ps.setTimestamp(1, from, utc);
+                ps.setTimestamp(2, until, utc);
+            });
+        int users = jdbcTemplate.update("INSERT INTO user_activity_daily "
+            + "(activity_date, user_id, product_id, events, score_sum) "
+            + "SELECT CAST(timestamp AS DATE), user_id, product_id, COUNT(*), COALESCE(SUM(score), 0) "
+            + "FROM user_activity WHERE timestamp >= ? AND timestamp < ? "
+            + "GROUP BY CAST(timestamp AS DATE), user_id, product_id", ps -> {
+                ps.setTimestamp(1, from, utc);
+                ps.setTimestamp(2, until, utc);
+            });
+        checkpointRepository.save(new RecommendationCheckpoint(ROLLUP_CHECKPOINT, untilDay.toEpochDay(), Instant.now()));
+        return new int[] { products, users };
+    }
+
+    /**
+     * Whether {@link #partitionTable()} can run: partitioning is enabled, the database
+     * is MySQL and user_activity is not partitioned yet.
+     */
+    public boolean canPartition() {
+        return partitioningEnabled && !partitioned && isMySql();
+    }
+
+    /**
+     * Converts the unpartitioned table in place. The primary key must include the
+     * partitioning column, so it becomes (id, timestamp); ids stay unique because
+     * they are still AUTO_INCREMENT. MySQL copies the whole table while writes wait,
+     * so this is an explicit admin migration rather than a startup step.
+     */
+    public synchronized void partitionTable() {
+        if (!canPartition()) {
+            log.warn("Not partitioning user_activity: partitioning is disabled, unsupported or already done");
+            return;
+        }
+        try {
+            if (!partitionBounds().isEmpty()) {
+                partitioned = true;
+                return;
+            }
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            StringBuilder ddl = new StringBuilder("ALTER TABLE user_activity DROP PRIMARY KEY, ADD PRIMARY KEY (id, timestamp) ")
+                .append("PARTITION BY RANGE COLUMNS(timestamp) (PARTITION ").append(HISTORY_PARTITION)
+                .append(" VALUES LESS THAN ('").append(today).append(" 00:00:00'), ");
+            for (LocalDate day = today; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+                appendDailyPartition(ddl, day);
+            }
+            ddl.append("PARTITION ").append(FUTURE_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+            long start = System.currentTimeMillis();
+            jdbcTemplate.execute(ddl.toString());
+            partitioned = true;
+            log.info("Partitioned user_activity by day in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error partitioning user_activity", e);
+        }
+    }
+
+    private void dropPartitionsBefore(LocalDate cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (Object[] bound : partitionBounds()) {
+            LocalDate upper = (LocalDate) bound[1];
+            if (upper != null && !upper.isAfter(cutoff)) {
+                expired.add((String) bound[0]);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE user_activity DROP PARTITION " + String.join(", ", expired));
+        log.info("Dropped {} user_activity partitions before {}", expired.size(), cutoff);
+    }
+
+    private void appendDailyPartition(StringBuilder ddl, LocalDate day) {
+        ddl.append("PARTITION ").append(PARTITION_NAME.format(day))
+            .append(" VALUES LESS THAN ('").append(day.plusDays(1)).append(" 00:00:00'), ");
+    }
+
+    /**
+     * (name, exclusive upper bound day) of each partition in order; the bound is null for MAXVALUE.
+     */
+    private List<Object[]> partitionBounds() {
+        return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'user_activity' AND PARTITION_NAME IS NOT NULL "
+            + "ORDER BY PARTITION_ORDINAL_POSITION", (rs, rowNum) -> {
+                String description = rs.getString(2);
+                LocalDate upper = description == null || description.startsWith("MAXVALUE")
+                    ? null : LocalDate.parse(description.replace("'", "").substring(0, 10));
+                return new Object[] { rs.getString(1), upper };
+            });
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
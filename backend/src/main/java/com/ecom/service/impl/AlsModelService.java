@@ -0,0 +1,213 @@
+package com.ecom.service.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.FactorModel;
+import com.ecom.util.ImplicitAlsTrainer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trains and serves the implicit-feedback ALS model behind /for-you.
+ *
+ * Training reads activity weights summed per (user, product), whole days from the
+ * daily rollup and the rest from user_activity, factorizes them
+ * on a fork-join pool and writes the factors to {@code model-file}; the new model
+ * replaces the served one in a single volatile write. On startup the last written
+ * model is loaded, so serving never waits for a training run.
+ */
+@Slf4j
+@Component
+public class AlsModelService {
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    @Value("${recommendation.als.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.als.model-file:./data/als-model.bin}")
+    private String modelFile;
+
+    @Value("${recommendation.als.factors:32}")
+    private int factors;
+
+    @Value("${recommendation.als.iterations:10}")
+    private int iterations;
+
+    @Value("${recommendation.als.regularization:0.1}")
+    private double regularization;
+
+    @Value("${recommendation.als.alpha:10}")
+    private double alpha;
+
+    @Value("${recommendation.als.lookback-days:180}")
+    private long lookbackDays;
+
+    // 0 = one worker per core
+    @Value("${recommendation.als.threads:0}")
+    private int threads;
+
+    private final AtomicBoolean trainingInProgress = new AtomicBoolean(false);
+    private volatile FactorModel model;
+    private volatile Instant trainedAt;
+
+    @PostConstruct
+    public void init() {
+        Path path = Paths.get(modelFile);
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+        try {
+            model = FactorModel.read(path);
+            trainedAt = Files.getLastModifiedTime(path).toInstant();
+            log.info("Loaded ALS model from {}: {} users, {} products, {} factors",
+                path.toAbsolutePath(), model.userCount(), model.productCount(), model.factors());
+        } catch (Exception e) {
+            log.error("Error loading ALS model from " + path.toAbsolutePath(), e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Top products for userId by predicted preference, or an empty array if the
+     * model is missing or has never seen the user.
+     */
+    public int[] recommend(int userId, int limit, IntPredicate filter) {
+        FactorModel current = model;
+        if (!enabled || current == null) {
+            return new int[0];
+        }
+        return current.topProducts(userId, limit, filter);
+    }
+
+    /**
+     * Trains a new model and swaps it in on the calling thread.
+     *
+     * @return false if a training run is already active or this run failed
+     */
+    public boolean train() {
+        if (!trainingInProgress.compareAndSet(false, true)) {
+            log.warn("ALS training already running, skipping");
+            return false;
+        }
+        return trainClaimed();
+    }
+
+    /**
+     * Starts a training run on the shared task executor.
+     *
+     * @return false if a training run is already active
+     */
+    public boolean submitTraining() {
+        if (!trainingInProgress.compareAndSet(false, true)) {
+            log.warn("ALS training requested while another run is active, skipping");
+            return false;
+        }
+        try {
+            taskExecutor.execute(this::trainClaimed);
+        } catch (RuntimeException e) {
+            trainingInProgress.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    // caller holds trainingInProgress; released here
+    private boolean trainClaimed() {
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            long start = System.currentTimeMillis();
+            ImplicitAlsTrainer.Interactions data = loadInteractions(Instant.now().minus(lookbackDays, ChronoUnit.DAYS));
+            if (data.size() == 0) {
+                log.info("No activity to train an ALS model on");
+                return true;
+            }
+            long loaded = System.currentTimeMillis();
+
+            FactorModel trained = new ImplicitAlsTrainer(factors, regularization, alpha, iterations, pool).train(data);
+            Path path = Paths.get(modelFile);
+            trained.write(path);
+            model = trained;
+            trainedAt = Instant.now();
+
+            log.info("ALS model trained: {} users, {} products, {} interactions, load {} ms, train {} ms on {} threads",
+                data.userCount(), data.productCount(), data.size(), loaded - start,
+                System.currentTimeMillis() - loaded, pool.getParallelism());
+            return true;
+        } catch (Exception e) {
+            log.error("Error training ALS model", e);
+            return false;
+        } finally {
+            pool.shutdown();
+            trainingInProgress.set(false);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        FactorModel current = model;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("training", trainingInProgress.get());
+        stats.put("trainedAt", trainedAt);
+        stats.put("users", current == null ? 0 : current.userCount());
+        stats.put("products", current == null ? 0 : current.productCount());
+        stats.put("factors", current == null ? 0 : current.factors());
+        return stats;
+    }
+
+    private ImplicitAlsTrainer.Interactions loadInteractions(Instant since) {
+        LocalDate from = LocalDate.ofInstant(since, ZoneOffset.UTC);
+        LocalDate rolledUpUntil = activityPartitions.rolledUpUntil();
+        boolean useRollups = rolledUpUntil != null && from.isBefore(rolledUpUntil);
+        return transactionTemplate.execute(status -> {
+            ImplicitAlsTrainer.Interactions data = new ImplicitAlsTrainer.Interactions(alpha);
+            try (Stream<Object[]> rows = useRollups
+                    ? activityRepository.streamInteractionWeightsWithRollups(from, rolledUpUntil,
+                        rolledUpUntil.atStartOfDay(ZoneOffset.UTC).toInstant())
+                    : activityRepository.streamInteractionWeights(since)) {
+                rows.forEach(row -> {
+                    Number userId = (Number) row[0];
+                    Number productId = (Number) row[1];
+                    Number weight = (Number) row[2];
+                    if (userId != null && productId != null && weight != null) {
+                        data.add(userId.intValue(), productId.intValue(), weight.doubleValue());
+                    }
+                });
+            }
+            data.freeze();
+            return data;
+        });
+    }
+}
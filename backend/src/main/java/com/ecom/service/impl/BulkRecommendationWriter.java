@@ -0,0 +1,383 @@
+package com.ecom.service.impl;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.model.ActivityEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk write path for recommendation tables.
+ *
+ * ProductSimilarity and UserProductScore use IDENTITY ids, which stops Hibernate
+ * from batching inserts. These batches bypass the entity layer and write multi-row
+ * INSERT statements over JDBC, letting the database assign the ids.
+ */
+@Slf4j
+@Component
+public class BulkRecommendationWriter {
+
+    static final String SIMILARITY_TABLE = "product_similarity";
+    static final String SIMILARITY_STAGING_TABLE = "product_similarity_staging";
+    static final String SIMILARITY_RETIRED_TABLE = "product_similarity_retired";
+    static final String SCORE_TABLE = "user_product_score";
+    static final String ACTIVITY_TABLE = "user_activity";
+
+    private static final String SIMILARITY_COLUMNS = "product_id, similar_product_id, similarity_score, basis";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile Boolean mysql;
+
+    private final AtomicLong scoreRowsWritten = new AtomicLong();
+
+    @Value("${recommendation.bulk.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Starts a new similarity generation in an empty staging copy of product_similarity.
+     * Readers keep seeing the live table until {@link #publishSimilarityGeneration()}.
+     * H2 has no CREATE TABLE ... LIKE, so there the staging table only copies the
+     * data columns.
+     */
+    public SimilarityBatch beginSimilarityGeneration() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SIMILARITY_STAGING_TABLE);
+        if (isMySql()) {
+            jdbcTemplate.execute("CREATE TABLE " + SIMILARITY_STAGING_TABLE + " LIKE " + SIMILARITY_TABLE);
+        } else {
+            jdbcTemplate.execute("CREATE TABLE " + SIMILARITY_STAGING_TABLE + " AS SELECT " + SIMILARITY_COLUMNS
+                + " FROM " + SIMILARITY_TABLE + " WITH NO DATA");
+        }
+        return new SimilarityBatch(SIMILARITY_STAGING_TABLE, true);
+    }
+
+    /**
+     * On MySQL, swaps the staging table in with a single atomic RENAME TABLE and drops
+     * the previous generation as a whole table, so there are no per-row deletes and
+     * readers never observe a partially built generation.
+     *
+     * H2 cannot rename several tables at once, so there the live table is emptied and
+     * refilled from staging in one transaction instead. Readers still never see a
+     * partial generation, but the publish costs a delete and an insert per row.
+     */
+    public void publishSimilarityGeneration() {
+        if (!isMySql()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("DELETE FROM " + SIMILARITY_TABLE);
+                jdbcTemplate.update("INSERT INTO " + SIMILARITY_TABLE + " (" + SIMILARITY_COLUMNS + ") SELECT "
+                    + SIMILARITY_COLUMNS + " FROM " + SIMILARITY_STAGING_TABLE);
+            });
+            jdbcTemplate.execute("DROP TABLE " + SIMILARITY_STAGING_TABLE);
+            return;
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SIMILARITY_RETIRED_TABLE);
+        jdbcTemplate.execute("RENAME TABLE " + SIMILARITY_TABLE + " TO " + SIMILARITY_RETIRED_TABLE + ", "
+            + SIMILARITY_STAGING_TABLE + " TO " + SIMILARITY_TABLE);
+        jdbcTemplate.execute("DROP TABLE " + SIMILARITY_RETIRED_TABLE);
+    }
+
+    public void discardSimilarityGeneration() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + SIMILARITY_STAGING_TABLE);
+    }
+
+    /**
+     * @param logSummary log rows/sec on close; off for small per-user batches
+     */
+    public ScoreBatch scoreBatch(boolean logSummary) {
+        return new ScoreBatch(logSummary);
+    }
+
+    /**
+     * Rows inserted into user_product_score since startup by all score batches. Score
+     * runs write through many small per-user batches and report the difference.
+     */
+    public long scoreRowsWritten() {
+        return scoreRowsWritten.get();
+    }
+
+    public ActivityBatch activityBatch() {
+        return new ActivityBatch();
+    }
+
+    public int deleteUserScores(int userId) {
+        return jdbcTemplate.update("DELETE FROM " + SCORE_TABLE + " WHERE user_id = ?", userId);
+    }
+
+    /**
+     * Multiplies all of a user's scores by factor in one statement (time decay).
+     */
+    public int scaleUserScores(int userId, double factor) {
+        return jdbcTemplate.update("UPDATE " + SCORE_TABLE + " SET score = score * ? WHERE user_id = ?", factor, userId);
+    }
+
+    public int pruneUserScores(int userId, double minScore) {
+        return jdbcTemplate.update("DELETE FROM " + SCORE_TABLE + " WHERE user_id = ? AND score < ?", userId, minScore);
+    }
+
+    /**
+     * Adds deltas onto existing (user, product) rows with one batched UPDATE and
+     * inserts rows for products the user had no score for yet.
+     */
+    public void addToUserScores(int userId, Map<Integer, Double> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        List<Integer> productIds = new ArrayList<>(deltas.size());
+        for (Map.Entry<Integer, Double> delta : deltas.entrySet()) {
+            updates.add(new Object[] { delta.getValue(), delta.getKey() });
+            productIds.add(delta.getKey());
+        }
+
+        int[][] updated = jdbcTemplate.batchUpdate(
+            "UPDATE " + SCORE_TABLE + " SET score = score + ?, last_updated = ? WHERE user_id = ? AND product_id = ?",
+            updates, Math.max(1, batchSize), (ps, row) -> {
+                ps.setDouble(1, (Double) row[0]);
+                ps.setTimestamp(2, now, utc);
+                ps.setInt(3, userId);
+                ps.setInt(4, (Integer) row[1]);
+            });
+
+        try (ScoreBatch inserts = scoreBatch(false)) {
+            int index = 0;
+            for (int[] chunk : updated) {
+                for (int count : chunk) {
+                    if (count == 0) {
+                        int productId = productIds.get(index);
+                        inserts.add(userId, productId, deltas.get(productId));
+                    }
+                    index++;
+                }
+            }
+        }
+    }
+
+    private boolean isMySql() {
+        Boolean known = mysql;
+        if (known == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            known = product != null && product.toLowerCase().contains("mysql");
+            mysql = known;
+        }
+        return known;
+    }
+
+    /**
+     * Buffers rows in primitive arrays and flushes them as one multi-row INSERT
+     * whenever the buffer fills. Not thread-safe; use one batch per writer thread.
+     */
+    public abstract class Batch implements AutoCloseable {
+
+        private final String table;
+        private final int columnCount;
+        private final MultiRowInsert insert;
+        private final boolean logSummary;
+        private final long startNanos = System.nanoTime();
+
+        protected final int capacity;
+        protected int pending;
+        private long written;
+
+        protected Batch(String table, String columnList, int columnCount, boolean logSummary) {
+            this.table = table;
+            this.columnCount = columnCount;
+            this.logSummary = logSummary;
+            this.insert = new MultiRowInsert(table, columnList, columnCount, batchSize);
+            this.capacity = insert.capacity();
+        }
+
+        protected abstract void bind(PreparedStatement ps, int row, int parameterIndex) throws SQLException;
+
+        protected void rowAdded() {
+            if (++pending == capacity) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (pending == 0) {
+                return;
+            }
+            int rows = pending;
+            String sql = insert.sql(rows);
+            try {
+                jdbcTemplate.update(sql, ps -> {
+                    for (int row = 0; row < rows; row++) {
+                        bind(ps, row, row * columnCount + 1);
+                    }
+                });
+                written += rows;
+            } finally {
+                // a failed statement's rows are discarded so the buffer stays usable
+                pending = 0;
+            }
+        }
+
+        public long written() {
+            return written;
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+
+        @Override
+        public void close() {
+            flush();
+            if (logSummary) {
+                double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+                log.info("Bulk insert into {} finished: {} rows in {} ms ({} rows/sec, batch size {})",
+                    table, written, Math.round(seconds * 1000), Math.round(written / seconds), capacity);
+            }
+        }
+    }
+
+    public class SimilarityBatch extends Batch implements SimilaritySink {
+
+        private final int[] productIds;
+        private final int[] similarProductIds;
+        private final double[] scores;
+        private final String[] bases;
+
+        SimilarityBatch(String table, boolean logSummary) {
+            super(table, "product_id, similar_product_id, similarity_score, basis", 4, logSummary);
+            productIds = new int[capacity];
+            similarProductIds = new int[capacity];
+            scores = new double[capacity];
+            bases = new String[capacity];
+        }
+
+        @Override
+        public void accept(int productId, int similarProductId, double score, String basis) {
+            productIds[pending] = productId;
+            similarProductIds[pending] = similarProductId;
+            scores[pending] = score;
+            bases[pending] = basis;
+            rowAdded();
+        }
+
+        @Override
+        protected void bind(PreparedStatement ps, int row, int parameterIndex) throws SQLException {
+            ps.setInt(parameterIndex, productIds[row]);
+            ps.setInt(parameterIndex + 1, similarProductIds[row]);
+            ps.setDouble(parameterIndex + 2, scores[row]);
+            ps.setString(parameterIndex + 3, bases[row]);
+        }
+    }
+
+    public class ScoreBatch extends Batch {
+
+        private final int[] userIds;
+        private final int[] productIds;
+        private final double[] scores;
+        private final Timestamp lastUpdated = Timestamp.from(Instant.now());
+        // Hibernate binds Instant columns as UTC timestamps; the driver mutates the calendar, so one per batch
+        private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+        ScoreBatch(boolean logSummary) {
+            super(SCORE_TABLE, "user_id, product_id, score, last_updated", 4, logSummary);
+            userIds = new int[capacity];
+            productIds = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        public void add(int userId, int productId, double score) {
+            userIds[pending] = userId;
+            productIds[pending] = productId;
+            scores[pending] = score;
+            rowAdded();
+        }
+
+        @Override
+        public void flush() {
+            long before = written();
+            super.flush();
+            scoreRowsWritten.addAndGet(written() - before);
+        }
+
+        @Override
+        protected void bind(PreparedStatement ps, int row, int parameterIndex) throws SQLException {
+            ps.setInt(parameterIndex, userIds[row]);
+            ps.setInt(parameterIndex + 1, productIds[row]);
+            ps.setDouble(parameterIndex + 2, scores[row]);
+            ps.setTimestamp(parameterIndex + 3, lastUpdated, utc);
+        }
+    }
+
+    public class ActivityBatch extends Batch {
+
+        private final ActivityEvent[] events;
+        private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        private Instant oldestWritten;
+
+        ActivityBatch() {
+            super(ACTIVITY_TABLE, "user_id, product_id, action, timestamp, session_id, score", 6, false);
+            events = new ActivityEvent[capacity];
+        }
+
+        public void add(ActivityEvent event) {
+            events[pending] = event;
+            rowAdded();
+        }
+
+        @Override
+        public void flush() {
+            Instant oldest = null;
+            for (int row = 0; row < pending; row++) {
+                Instant timestamp = events[row].timestamp();
+                if (oldest == null || timestamp.isBefore(oldest)) {
+                    oldest = timestamp;
+                }
+            }
+            try {
+                super.flush();
+                if (oldest != null && (oldestWritten == null || oldest.isBefore(oldestWritten))) {
+                    oldestWritten = oldest;
+                }
+            } finally {
+                Arrays.fill(events, null);
+            }
+        }
+
+        /**
+         * Oldest event timestamp written since the last call, or null, for
+         * {@link ActivityPartitionManager#noteInserted(Instant)} once the rows are committed.
+         */
+        public Instant takeOldestWritten() {
+            Instant oldest = oldestWritten;
+            oldestWritten = null;
+            return oldest;
+        }
+
+        @Override
+        protected void bind(PreparedStatement ps, int row, int parameterIndex) throws SQLException {
+            ActivityEvent event = events[row];
+            ps.setInt(parameterIndex, event.userId());
+            ps.setInt(parameterIndex + 1, event.productId());
+            ps.setString(parameterIndex + 2, event.action());
+            ps.setTimestamp(parameterIndex + 3, Timestamp.from(event.timestamp()), utc);
+            ps.setString(parameterIndex + 4, event.sessionId());
+            ps.setDouble(parameterIndex + 5, event.score());
+        }
+    }
+}
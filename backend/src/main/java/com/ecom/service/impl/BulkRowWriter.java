@@ -0,0 +1,314 @@
+package com.ecom.service.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Row-at-a-time bulk output for one table over a single connection.
+ *
+ * {@link #insert} buffers rows and writes them as multi-row INSERT statements built
+ * by {@link MultiRowInsert}, like {@link BulkRecommendationWriter}. {@link #file} writes a tab-separated file instead,
+ * which {@link #close()} hands to the database's bulk loader: LOAD DATA LOCAL INFILE
+ * on MySQL (needs allowLoadLocalInfile=true on the JDBC URL) and CSVREAD on H2.
+ * Values must not contain tabs or line breaks. Not thread-safe.
+ */
+abstract class BulkRowWriter implements AutoCloseable {
+
+    private static final DateTimeFormatter TIMESTAMP_TEXT =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    protected final Connection connection;
+    protected final String table;
+    protected final String[] columns;
+    protected final boolean mysql;
+    protected long rows;
+
+    private BulkRowWriter(Connection connection, String table, String[] columns, boolean mysql) {
+        this.connection = connection;
+        this.table = table;
+        this.columns = columns;
+        this.mysql = mysql;
+    }
+
+    static BulkRowWriter insert(Connection connection, boolean mysql, int batchSize, String table, String... columns) {
+        return new InsertWriter(connection, mysql, batchSize, table, columns);
+    }
+
+    static BulkRowWriter file(Connection connection, boolean mysql, Path file, String table, String... columns) {
+        return new LoadFileWriter(connection, mysql, file, table, columns);
+    }
+
+    abstract BulkRowWriter add(long value);
+
+    abstract BulkRowWriter add(double value);
+
+    abstract BulkRowWriter add(String value);
+
+    abstract BulkRowWriter add(boolean value);
+
+    /**
+     * A UTC timestamp, stored the way Hibernate stores Instant columns.
+     */
+    abstract BulkRowWriter addTimestamp(long epochMillis);
+
+    abstract BulkRowWriter add(LocalDate value);
+
+    abstract void endRow();
+
+    long rows() {
+        return rows;
+    }
+
+    /**
+     * Writes or loads all remaining rows.
+     */
+    @Override
+    public abstract void close();
+
+    private static final class InsertWriter extends BulkRowWriter {
+
+        private final MultiRowInsert insert;
+        private final int capacity;
+        private final Object[] values;
+        private final Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        private int position;
+        private int pending;
+        private PreparedStatement fullBatch;
+
+        InsertWriter(Connection connection, boolean mysql, int batchSize, String table, String[] columns) {
+            super(connection, table, columns, mysql);
+            this.insert = new MultiRowInsert(table, String.join(", ", columns), columns.length, batchSize);
+            this.capacity = insert.capacity();
+            this.values = new Object[capacity * columns.length];
+        }
+
+        @Override
+        BulkRowWriter add(long value) {
+            values[position++] = value;
+            return this;
+        }
+
+        @Override
+        BulkRowWriter add(double value) {
+            values[position++] = value;
+            return this;
+        }
+
+        @Override
+        BulkRowWriter add(String value) {
+            values[position++] = value;
+            return this;
+        }
+
+        @Override
+        BulkRowWriter add(boolean value) {
+            values[position++] = value;
+            return this;
+        }
+
+        @Override
+        BulkRowWriter addTimestamp(long epochMillis) {
+            values[position++] = new Timestamp(epochMillis);
+            return this;
+        }
+
+        @Override
+        BulkRowWriter add(LocalDate value) {
+            values[position++] = Date.valueOf(value);
+            return this;
+        }
+
+        @Override
+        void endRow() {
+            rows++;
+            if (++pending == capacity) {
+                flush();
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                flush();
+                if (fullBatch != null) {
+                    fullBatch.close();
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error closing insert batch for " + table, e);
+            }
+        }
+
+        private void flush() {
+            if (pending == 0) {
+                return;
+            }
+            try {
+                if (pending == capacity) {
+                    if (fullBatch == null) {
+                        fullBatch = connection.prepareStatement(insert.sql(capacity));
+                    }
+                    bindAndExecute(fullBatch);
+                } else {
+                    try (PreparedStatement ps = connection.prepareStatement(insert.sql(pending))) {
+                        bindAndExecute(ps);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error inserting into " + table, e);
+            } finally {
+                pending = 0;
+                position = 0;
+            }
+        }
+
+        private void bindAndExecute(PreparedStatement ps) throws SQLException {
+            for (int i = 0; i < position; i++) {
+                Object value = values[i];
+                if (value instanceof Timestamp timestamp) {
+                    ps.setTimestamp(i + 1, timestamp, utc);
+                } else {
+                    ps.setObject(i + 1, value);
+                }
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static final class LoadFileWriter extends BulkRowWriter {
+
+        private final Path file;
+        private final BufferedWriter out;
+        // MySQL binds BIT columns from numbers only, so booleans go through user variables
+        private final boolean[] booleanColumns;
+        private int column;
+
+        LoadFileWriter(Connection connection, boolean mysql, Path file, String table, String[] columns) {
+            super(connection, table, columns, mysql);
+            this.file = file;
+            this.booleanColumns = new boolean[columns.length];
+            try {
+                this.out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                out.write(String.join("\t", columns));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        BulkRowWriter add(long value) {
+            return text(Long.toString(value));
+        }
+
+        @Override
+        BulkRowWriter add(double value) {
+            return text(Double.toString(value));
+        }
+
+        @Override
+        BulkRowWriter add(String value) {
+            return text(value);
+        }
+
+        @Override
+        BulkRowWriter add(boolean value) {
+            booleanColumns[column] = true;
+            return text(value ? "1" : "0");
+        }
+
+        @Override
+        BulkRowWriter addTimestamp(long epochMillis) {
+            // MySQL DATETIME holds the UTC wall clock; H2 maps Instant to TIMESTAMP WITH TIME ZONE
+            String text = TIMESTAMP_TEXT.format(Instant.ofEpochMilli(epochMillis));
+            return text(mysql ? text : text + "+00:00");
+        }
+
+        @Override
+        BulkRowWriter add(LocalDate value) {
+            return text(value.toString());
+        }
+
+        @Override
+        void endRow() {
+            try {
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            column = 0;
+            rows++;
+        }
+
+        @Override
+        public void close() {
+            try {
+                out.close();
+                if (rows > 0) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(mysql ? loadDataSql() : csvReadSql());
+                    }
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Error loading " + file + " into " + table, e);
+            }
+        }
+
+        private BulkRowWriter text(String value) {
+            try {
+                if (column++ > 0) {
+                    out.write('\t');
+                }
+                out.write(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        private String loadDataSql() {
+            StringBuilder targets = new StringBuilder();
+            StringBuilder conversions = new StringBuilder();
+            for (int c = 0; c < columns.length; c++) {
+                targets.append(c == 0 ? "" : ", ");
+                if (booleanColumns[c]) {
+                    targets.append("@v").append(c);
+                    conversions.append(conversions.length() == 0 ? " SET " : ", ")
+                        .append(columns[c]).append(" = CAST(@v").append(c).append(" AS UNSIGNED)");
+                } else {
+                    targets.append(columns[c]);
+                }
+            }
+            return "LOAD DATA LOCAL INFILE '" + quotedPath() + "' INTO TABLE " + table
+                + " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' IGNORE 1 LINES ("
+                + targets + ")" + conversions;
+        }
+
+        private String csvReadSql() {
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") SELECT * FROM CSVREAD('"
+                + quotedPath() + "', NULL, 'charset=UTF-8 fieldSeparator=' || CHAR(9))";
+        }
+
+        private String quotedPath() {
+            return file.toAbsolutePath().toString().replace('\\', '/').replace("'", "''");
+        }
+    }
+}
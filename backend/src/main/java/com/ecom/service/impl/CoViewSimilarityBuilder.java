@@ -0,0 +1,175 @@
+package com.ecom.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.IntIntHashMap;
+import com.ecom.util.NeighborIndex;
+import com.ecom.util.PairCountSketch;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds CO_VIEW similarities from VIEW activity in fixed memory.
+ *
+ * VIEW rows are streamed ordered by user and time. Within a user, a session ends
+ * when the session id changes; inside a session only views less than
+ * {@code window-minutes} apart and among the last {@code session-products} distinct
+ * products pair up. Pair counts go into a {@link PairCountSketch} capped at
+ * {@code max-pairs}, so memory does not grow with the number of rows. Scores are
+ * cosine similarities of the per-product session view counts.
+ */
+@Slf4j
+@Component
+public class CoViewSimilarityBuilder {
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Value("${recommendation.similarity.co-view.window-minutes:30}")
+    private long windowMinutes;
+
+    @Value("${recommendation.similarity.co-view.session-products:25}")
+    private int sessionProducts;
+
+    @Value("${recommendation.similarity.co-view.max-pairs:1000000}")
+    private int maxPairs;
+
+    @Value("${recommendation.similarity.co-view.min-count:2}")
+    private int minCount;
+
+    @Value("${recommendation.similarity.co-view.neighbors:20}")
+    private int neighbors;
+
+    /**
+     * Streams VIEW rows since {@code since} and returns the top co-viewed neighbors of every product.
+     */
+    @Transactional(readOnly = true)
+    public NeighborIndex buildIndex(Instant since) {
+        long start = System.currentTimeMillis();
+        PairCountSketch pairs = new PairCountSketch(maxPairs);
+        IntIntHashMap views = new IntIntHashMap();
+        SessionWindow window = new SessionWindow(sessionProducts, Duration.ofMinutes(windowMinutes).toMillis());
+        long[] rowCount = new long[1];
+
+        try (Stream<Object[]> rows = activityRepository.streamViewsSince(since)) {
+            rows.forEach(row -> {
+                Integer userId = (Integer) row[0];
+                Integer productId = (Integer) row[1];
+                Instant timestamp = (Instant) row[2];
+                if (userId == null || productId == null || timestamp == null) {
+                    return;
+                }
+                rowCount[0]++;
+                if (window.view(userId, (String) row[3], productId, timestamp.toEpochMilli(), pairs)) {
+                    views.addTo(productId, 1);
+                }
+            });
+        }
+
+        NeighborIndex.Builder builder = new NeighborIndex.Builder();
+        pairs.forEach((a, b, count) -> {
+            if (count < minCount) {
+                return;
+            }
+            double score = Math.min(1.0, count / Math.sqrt((double) views.get(a, 1) * views.get(b, 1)));
+            builder.add(a, b, score);
+            builder.add(b, a, score);
+        });
+        NeighborIndex index = builder.build(neighbors);
+
+        log.info("Built co-view index from {} view rows: {} tracked pairs (error bound {}), {} products, {} neighbors in {} ms",
+            rowCount[0], pairs.size(), pairs.error(), index.productCount(), index.size(),
+            System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * Writes CO_VIEW rows for active products.
+     *
+     * @return number of rows emitted
+     */
+    public long emit(NeighborIndex index, Set<Integer> activeProductIds, SimilaritySink sink) {
+        long emitted = 0;
+        for (Integer productId : activeProductIds) {
+            for (int pos = index.start(productId); pos < index.end(productId); pos++) {
+                sink.accept(productId, index.neighborAt(pos), index.scoreAt(pos), "CO_VIEW");
+                emitted++;
+            }
+        }
+        return emitted;
+    }
+
+    /**
+     * The current user's recent distinct views, oldest first, as a small ring.
+     */
+    private static final class SessionWindow {
+
+        private final int[] products;
+        private final long[] times;
+        private final long windowMillis;
+        private int head;
+        private int size;
+        private int userId = Integer.MIN_VALUE;
+        private String sessionId;
+
+        SessionWindow(int capacity, long windowMillis) {
+            this.products = new int[Math.max(1, capacity)];
+            this.times = new long[products.length];
+            this.windowMillis = windowMillis;
+        }
+
+        /**
+         * Pairs productId with the views still in the window.
+         *
+         * @return true if this is a new distinct view in the session
+         */
+        boolean view(int user, String session, int productId, long time, PairCountSketch pairs) {
+            if (user != userId || !Objects.equals(session, sessionId)) {
+                userId = user;
+                sessionId = session;
+                size = 0;
+            }
+            // drop views that fell out of the time window
+            while (size > 0 && time - times[head] > windowMillis) {
+                head = (head + 1) % products.length;
+                size--;
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (products[(head + i) % products.length] == productId) {
+                    // a repeat view forms no new pairs; it only moves to the newest end
+                    for (int j = i; j < size - 1; j++) {
+                        int to = (head + j) % products.length;
+                        int from = (head + j + 1) % products.length;
+                        products[to] = products[from];
+                        times[to] = times[from];
+                    }
+                    int tail = (head + size - 1) % products.length;
+                    products[tail] = productId;
+                    times[tail] = time;
+                    return false;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                pairs.add(productId, products[(head + i) % products.length]);
+            }
+
+            if (size == products.length) {
+                head = (head + 1) % products.length;
+                size--;
+            }
+            int tail = (head + size) % products.length;
+            products[tail] = productId;
+            times[tail] = time;
+            size++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.ecom.service.impl;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.model.ActivityEvent;
+import com.ecom.model.RecommendationCheckpoint;
+import com.ecom.repository.RecommendationCheckpointRepository;
+import com.ecom.util.SegmentedActivityLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local durability for activity ingestion.
+ *
+ * The ingestion flusher appends events to a memory-mapped segmented log on disk;
+ * a replayer thread streams the log into user_activity in batches. Each batch is
+ * inserted in the same transaction that advances the replay checkpoint, so after
+ * a crash replay resumes exactly where the last committed batch ended. While the
+ * database is slow or down the log simply grows and replay retries with backoff.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "recommendation.activity.durable-log.enabled", havingValue = "true")
+public class DurableActivityLog {
+
+    private static final String REPLAY_CHECKPOINT = "activity-log.replay";
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    @Autowired
+    private BulkRecommendationWriter bulkWriter;
+
+    @Autowired
+    private RecommendationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Value("${recommendation.activity.durable-log.dir:./data/activity-log}")
+    private String directory;
+
+    @Value("${recommendation.activity.durable-log.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${recommendation.activity.durable-log.replay-interval-ms:500}")
+    private long replayIntervalMs;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong replayFailures = new AtomicLong();
+
+    private SegmentedActivityLog activityLog;
+    private int segmentBytes;
+    private Thread replayer;
+    private volatile boolean running;
+    private volatile long replayPosition;
+
+    @PostConstruct
+    public void open() throws IOException {
+        // segments are mapped and addressed with int offsets, so they stay below 2 GB
+        segmentBytes = (int) Math.min(Integer.MAX_VALUE, (long) segmentSizeMb * 1024 * 1024);
+        activityLog = new SegmentedActivityLog(Paths.get(directory), segmentBytes);
+        running = true;
+        replayer = new Thread(this::replayLoop, "activity-log-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+        log.info("Durable activity log opened at {}", Paths.get(directory).toAbsolutePath());
+    }
+
+    /**
+     * Appends one event. Called from the single ingestion flusher thread only.
+     */
+    public void append(ActivityEvent event) throws IOException {
+        activityLog.append(event);
+        appended.incrementAndGet();
+    }
+
+    public void sync() {
+        activityLog.sync();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("appended", appended.get());
+        stats.put("replayed", replayed.get());
+        stats.put("replayFailures", replayFailures.get());
+        stats.put("replayLagBytes", lagBytes());
+        return stats;
+    }
+
+    private void replayLoop() {
+        long backoff = replayIntervalMs;
+        Long position = null;
+
+        while (running) {
+            try {
+                if (position == null) {
+                    position = loadCheckpoint();
+                }
+                long next = replayBatch(position);
+                if (next == position) {
+                    sleep(replayIntervalMs);
+                } else {
+                    position = next;
+                    activityLog.deleteSegmentsBefore(position);
+                }
+                backoff = replayIntervalMs;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                replayFailures.incrementAndGet();
+                log.warn("Activity log replay failed, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+        }
+    }
+
+    /**
+     * Inserts the next batch and advances the checkpoint in one transaction. Events are
+     * only handed to the batch inside the transaction, because a full batch flushes
+     * itself on its last add.
+     */
+    private long replayBatch(long position) throws IOException {
+        BulkRecommendationWriter.ActivityBatch batch = bulkWriter.activityBatch();
+        List<ActivityEvent> events = new ArrayList<>(batch.capacity());
+        long next = activityLog.read(position, batch.capacity(), events::add);
+        if (next == position) {
+            return position;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            events.forEach(batch::add);
+            batch.flush();
+            checkpointRepository.save(new RecommendationCheckpoint(REPLAY_CHECKPOINT, next, Instant.now()));
+        });
+        replayed.addAndGet(batch.written());
+        replayPosition = next;
+        activityPartitions.noteInserted(batch.takeOldestWritten());
+        return next;
+    }
+
+    private long loadCheckpoint() throws IOException {
+        RecommendationCheckpoint checkpoint = checkpointRepository.findById(REPLAY_CHECKPOINT).orElse(null);
+        long first = activityLog.firstPosition();
+        if (checkpoint == null) {
+            return first;
+        }
+        long position = checkpoint.getPosition();
+        if (position > activityLog.committedPosition()) {
+            // the log directory was reset; everything on disk is new
+            log.warn("Replay checkpoint is ahead of the local activity log, replaying from the start");
+            return first;
+        }
+        return Math.max(position, first);
+    }
+
+    private long lagBytes() {
+        long committed = activityLog.committedPosition();
+        long replayedTo = replayPosition;
+        return Math.max(0, (SegmentedActivityLog.segmentOf(committed) - SegmentedActivityLog.segmentOf(replayedTo))
+            * segmentBytes + SegmentedActivityLog.offsetOf(committed) - SegmentedActivityLog.offsetOf(replayedTo));
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(millis);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        replayer.interrupt();
+        replayer.join(TimeUnit.SECONDS.toMillis(10));
+        activityLog.close();
+        log.info("Durable activity log closed: {}", stats());
+    }
+}
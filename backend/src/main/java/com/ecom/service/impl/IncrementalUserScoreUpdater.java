@@ -0,0 +1,79 @@
+package com.ecom.service.impl;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import com.ecom.model.UserActivity;
+import com.ecom.model.UserScoreWatermark;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.repository.UserScoreWatermarkRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Folds only the activity recorded after a user's watermark into their existing
+ * UserProductScore rows, instead of deleting and rebuilding 90 days of history.
+ *
+ * Existing rows are decayed from the watermark time to now with one UPDATE, the
+ * new activity is scored exactly like a full recompute and added on top, and rows
+ * that decayed below {@code min-score} are dropped.
+ */
+@Slf4j
+@Component
+public class IncrementalUserScoreUpdater {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private UserScoreWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private BulkRecommendationWriter bulkWriter;
+
+    @Value("${recommendation.user-scores.min-score:0.01}")
+    private double minScore;
+
+    /**
+     * Applies activity with ids in (watermark, upToActivityId] for one user atomically.
+     *
+     * @return false if the user has no watermark yet and needs a full recompute
+     */
+    @Transactional
+    public boolean applyNewActivity(Integer userId, Integer upToActivityId) {
+        UserScoreWatermark watermark = watermarkRepository.findById(userId).orElse(null);
+        if (watermark == null) {
+            return false;
+        }
+        if (watermark.getLastActivityId() >= upToActivityId) {
+            return true;
+        }
+
+        List<UserActivity> newActivities = activityRepository
+            .findNewActivitiesByUser(userId, watermark.getLastActivityId(), upToActivityId);
+
+        Instant now = Instant.now();
+        double decay = recommendationService.decayFactor(watermark.getComputedAt(), now);
+        if (decay < 1.0) {
+            bulkWriter.scaleUserScores(userId, decay);
+            bulkWriter.pruneUserScores(userId, minScore);
+        }
+
+        Map<Integer, Double> deltas = recommendationService.scoreActivities(newActivities, now);
+        bulkWriter.addToUserScores(userId, deltas);
+
+        watermark.setLastActivityId(upToActivityId);
+        watermark.setComputedAt(now);
+        watermarkRepository.save(watermark);
+
+        log.debug("Incremental scores for user: {}, new activities: {}, touched products: {}",
+            userId, newActivities.size(), deltas.size());
+        return true;
+    }
+}
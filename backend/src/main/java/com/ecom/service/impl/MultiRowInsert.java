@@ -0,0 +1,57 @@
+package com.ecom.service.impl;
+
+/**
+ * SQL for multi-row INSERT statements into one table, shared by the bulk writers.
+ * Rows per statement are capped so a statement stays within MySQL's placeholder
+ * limit; the full-size statement is built once.
+ */
+final class MultiRowInsert {
+
+    // MySQL caps a prepared statement at 65535 placeholders
+    private static final int MAX_PLACEHOLDERS = 65535;
+
+    private final String prefix;
+    private final String tuple;
+    private final int capacity;
+    private final String fullSql;
+
+    /**
+     * @param columnList comma-separated column names
+     * @param batchSize requested rows per statement
+     */
+    MultiRowInsert(String table, String columnList, int columnCount, int batchSize) {
+        StringBuilder values = new StringBuilder("(");
+        for (int c = 0; c < columnCount; c++) {
+            values.append(c == 0 ? "?" : ",?");
+        }
+        this.tuple = values.append(')').toString();
+        this.prefix = "INSERT INTO " + table + " (" + columnList + ") VALUES ";
+        this.capacity = Math.max(1, Math.min(batchSize, MAX_PLACEHOLDERS / columnCount));
+        this.fullSql = build(capacity);
+    }
+
+    /**
+     * Maximum rows per statement.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * INSERT statement with placeholders for rows rows, at most {@link #capacity()}.
+     */
+    String sql(int rows) {
+        return rows == capacity ? fullSql : build(rows);
+    }
+
+    private String build(int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (tuple.length() + 1)).append(prefix);
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                sql.append(',');
+            }
+            sql.append(tuple);
+        }
+        return sql.toString();
+    }
+}
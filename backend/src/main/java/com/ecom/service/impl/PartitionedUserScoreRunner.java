@@ -0,0 +1,427 @@
+package com.ecom.service.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.ecom.model.RecommendationCheckpoint;
+import com.ecom.repository.RecommendationCheckpointRepository;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recomputes user scores on a bounded worker pool.
+ *
+ * A full run splits all ROLE_USER accounts into id ranges of {@code partition-size}; each range is
+ * one task. An incremental run only visits users with activity since the previous
+ * run's checkpoint, in chunks of the same size, and folds in just that activity.
+ * Instead of sleeping a fixed second every 100 users, workers back off only while
+ * other threads are queued for a database connection, and the pool is sized to leave
+ * connections free for web requests. Only one run may be active at a time.
+ */
+@Slf4j
+@Component
+public class PartitionedUserScoreRunner {
+
+    private static final long PROGRESS_LOG_INTERVAL_MS = 30_000;
+    private static final long BACKOFF_SLEEP_MS = 50;
+    private static final long MAX_BACKOFF_MS = 5_000;
+    // connections kept free for request threads while a run is active
+    private static final int RESERVED_CONNECTIONS = 2;
+    private static final String INCREMENTAL_CHECKPOINT = "user-scores.incremental";
+    // full runs score shopper accounts only, as the admin compute-all job always has
+    private static final String SCORED_ROLE = "ROLE_USER";
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private IncrementalUserScoreUpdater incrementalUpdater;
+
+    @Autowired
+    private BulkRecommendationWriter bulkWriter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private RecommendationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${recommendation.user-scores.threads:4}")
+    private int configuredThreads;
+
+    @Value("${recommendation.user-scores.partition-size:1000}")
+    private int partitionSize;
+
+    // "incremental" folds in new activity only, "full" rebuilds every user's scores
+    @Value("${recommendation.user-scores.mode:incremental}")
+    private String mode;
+
+    private final ExecutorService coordinator =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("user-scores-run-"));
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile RunProgress lastRun;
+
+    /**
+     * Starts a run in the configured mode in the background.
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean submitRun(String trigger) {
+        return submitRun(trigger, !"incremental".equalsIgnoreCase(mode));
+    }
+
+    /**
+     * @param fullRebuild recompute every user from scratch instead of applying new activity
+     * @return false if a run is already in progress
+     */
+    public boolean submitRun(String trigger, boolean fullRebuild) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("User score run requested by {} while another run is active, skipping", trigger);
+            return false;
+        }
+        try {
+            coordinator.execute(() -> {
+                try {
+                    if (fullRebuild) {
+                        runAllUsers(trigger);
+                    } else {
+                        runUsersWithNewActivity(trigger);
+                    }
+                } catch (Exception e) {
+                    log.error("User score run failed", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Forgets how far incremental runs got, so the next incremental run visits every user
+     * with recorded activity. Call after user scores or watermarks were wiped.
+     *
+     * @return false if a run is in progress and the checkpoint was left alone
+     */
+    public boolean resetIncrementalCheckpoint() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            if (checkpointRepository.existsById(INCREMENTAL_CHECKPOINT)) {
+                checkpointRepository.deleteById(INCREMENTAL_CHECKPOINT);
+            }
+        } finally {
+            running.set(false);
+        }
+        return true;
+    }
+
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("running", running.get());
+        RunProgress run = lastRun;
+        if (run != null) {
+            status.putAll(run.snapshot());
+        }
+        return status;
+    }
+
+    private void runAllUsers(String trigger) throws InterruptedException {
+        Integer minId = userRepository.findMinIdByRole(SCORED_ROLE);
+        Integer maxId = userRepository.findMaxIdByRole(SCORED_ROLE);
+        if (minId == null || maxId == null) {
+            log.info("No users to compute scores for");
+            return;
+        }
+
+        List<Supplier<List<Integer>>> partitions = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += partitionSize) {
+            int fromId = (int) from;
+            int toId = (int) Math.min((long) maxId + 1, from + partitionSize);
+            // id ranges are resolved by the worker so only in-flight partitions hold user ids
+            partitions.add(() -> userRepository.findIdsByRoleInRange(SCORED_ROLE, fromId, toId));
+        }
+
+        RunProgress progress = new RunProgress(trigger, "full", userRepository.countByRole(SCORED_ROLE), partitions.size(),
+            bulkWriter::scoreRowsWritten);
+        execute(progress, partitions, recommendationService::computeUserScores);
+    }
+
+    private void runUsersWithNewActivity(String trigger) throws InterruptedException {
+        Integer upToActivityId = activityRepository.findMaxId();
+        if (upToActivityId == null) {
+            log.info("No activity recorded yet, nothing to compute");
+            return;
+        }
+        RecommendationCheckpoint checkpoint = checkpointRepository.findById(INCREMENTAL_CHECKPOINT)
+            .orElse(new RecommendationCheckpoint(INCREMENTAL_CHECKPOINT, 0L, Instant.EPOCH));
+        int afterActivityId = checkpoint.getPosition().intValue();
+        if (upToActivityId <= afterActivityId) {
+            log.info("No new activity since activity id {}, skipping user score run", afterActivityId);
+            return;
+        }
+
+        List<Integer> userIds = activityRepository.findUserIdsWithActivityBetween(afterActivityId, upToActivityId);
+        List<Supplier<List<Integer>>> partitions = new ArrayList<>();
+        for (int from = 0; from < userIds.size(); from += partitionSize) {
+            List<Integer> chunk = userIds.subList(from, Math.min(userIds.size(), from + partitionSize));
+            partitions.add(() -> chunk);
+        }
+
+        RunProgress progress = new RunProgress(trigger, "incremental", userIds.size(), partitions.size(),
+            bulkWriter::scoreRowsWritten);
+        execute(progress, partitions, userId -> {
+            // users never scored before have no watermark and get a full computation
+            if (!incrementalUpdater.applyNewActivity(userId, upToActivityId)) {
+                recommendationService.computeUserScores(userId);
+            }
+        });
+
+        // Keep the old position while any user is missing: the next run visits the same range
+        // again and per-user watermarks skip the activity that succeeded users already applied
+        long unfinished = progress.totalUsers - progress.processed.get();
+        if (unfinished > 0) {
+            log.warn("Incremental user score run left {} users unprocessed ({} failed), "
+                + "keeping checkpoint at activity id {} for retry", unfinished, progress.failed.get(), afterActivityId);
+            return;
+        }
+        checkpoint.setPosition(upToActivityId.longValue());
+        checkpoint.setUpdatedAt(Instant.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    private void execute(RunProgress progress, List<Supplier<List<Integer>>> partitions,
+            Consumer<Integer> userTask) throws InterruptedException {
+        int threads = workerThreads();
+        lastRun = progress;
+        log.info("Starting {} user score run ({}): ~{} users in {} partitions on {} threads",
+            progress.mode, progress.trigger, progress.totalUsers, partitions.size(), threads);
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new CustomizableThreadFactory("user-scores-"));
+        // at most two partitions queued per worker
+        Semaphore inFlight = new Semaphore(threads * 2);
+        long lastLog = System.currentTimeMillis();
+
+        try {
+            for (Supplier<List<Integer>> partition : partitions) {
+                while (!inFlight.tryAcquire(1, TimeUnit.SECONDS)) {
+                    lastLog = logProgressIfDue(progress, lastLog);
+                }
+                workers.execute(() -> {
+                    try {
+                        processPartition(partition, userTask, progress);
+                    } finally {
+                        progress.partitionsDone.incrementAndGet();
+                        inFlight.release();
+                    }
+                });
+                lastLog = logProgressIfDue(progress, lastLog);
+            }
+
+            workers.shutdown();
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                lastLog = logProgressIfDue(progress, lastLog);
+            }
+        } finally {
+            workers.shutdownNow();
+            progress.finish();
+        }
+
+        log.info("{} user score run ({}) completed: {} users, {} failed in {} s ({} users/sec), "
+            + "{} user_product_score rows inserted ({} rows/sec)",
+            progress.mode, progress.trigger, progress.processed.get(), progress.failed.get(),
+            progress.elapsedMillis() / 1000, Math.round(progress.usersPerSecond()),
+            progress.scoreRows(), Math.round(progress.scoreRowsPerSecond()));
+    }
+
+    private void processPartition(Supplier<List<Integer>> partition, Consumer<Integer> userTask,
+            RunProgress progress) {
+        List<Integer> userIds;
+        try {
+            userIds = partition.get();
+        } catch (Exception e) {
+            log.error("Error loading users for partition", e);
+            return;
+        }
+
+        for (Integer userId : userIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                awaitConnectionHeadroom();
+                userTask.accept(userId);
+                progress.processed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                progress.failed.incrementAndGet();
+                log.error("Error computing scores for user: " + userId, e);
+            }
+        }
+    }
+
+    /**
+     * Backpressure: while request threads are queued on the connection pool, hold
+     * this worker back (bounded, so a saturated pool cannot stall the run forever).
+     */
+    private void awaitConnectionHeadroom() throws InterruptedException {
+        HikariPoolMXBean pool = hikariPool();
+        if (pool == null) {
+            return;
+        }
+        long waited = 0;
+        while (pool.getThreadsAwaitingConnection() > 0 && waited < MAX_BACKOFF_MS) {
+            Thread.sleep(BACKOFF_SLEEP_MS);
+            waited += BACKOFF_SLEEP_MS;
+        }
+    }
+
+    private int workerThreads() {
+        int threads = Math.max(1, configuredThreads);
+        HikariDataSource hikari = hikariDataSource();
+        if (hikari != null) {
+            threads = Math.min(threads, Math.max(1, hikari.getMaximumPoolSize() - RESERVED_CONNECTIONS));
+        }
+        return threads;
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        HikariDataSource hikari = hikariDataSource();
+        return hikari != null ? hikari.getHikariPoolMXBean() : null;
+    }
+
+    private HikariDataSource hikariDataSource() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private long logProgressIfDue(RunProgress progress, long lastLog) {
+        long now = System.currentTimeMillis();
+        if (now - lastLog < PROGRESS_LOG_INTERVAL_MS) {
+            return lastLog;
+        }
+        log.info("{} user score run ({}): {}/{} users, {}/{} partitions, {} failed, {} users/sec, {} score rows/sec",
+            progress.mode, progress.trigger, progress.processed.get(), progress.totalUsers,
+            progress.partitionsDone.get(), progress.partitions, progress.failed.get(),
+            Math.round(progress.usersPerSecond()), Math.round(progress.scoreRowsPerSecond()));
+        return now;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    private static final class RunProgress {
+
+        private final String trigger;
+        private final String mode;
+        private final long totalUsers;
+        private final int partitions;
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong partitionsDone = new AtomicLong();
+        // rows inserted into user_product_score, as a difference of the writer's running total
+        private final LongSupplier scoreRowCounter;
+        private final long scoreRowsAtStart;
+        private volatile long scoreRowsAtFinish;
+        private volatile Instant finishedAt;
+        private volatile long finishedNanos;
+
+        private RunProgress(String trigger, String mode, long totalUsers, int partitions, LongSupplier scoreRowCounter) {
+            this.trigger = trigger;
+            this.mode = mode;
+            this.totalUsers = totalUsers;
+            this.partitions = partitions;
+            this.scoreRowCounter = scoreRowCounter;
+            this.scoreRowsAtStart = scoreRowCounter.getAsLong();
+        }
+
+        private void finish() {
+            finishedNanos = System.nanoTime();
+            scoreRowsAtFinish = scoreRowCounter.getAsLong();
+            finishedAt = Instant.now();
+        }
+
+        private long elapsedMillis() {
+            long end = finishedAt != null ? finishedNanos : System.nanoTime();
+            return (end - startNanos) / 1_000_000;
+        }
+
+        private double usersPerSecond() {
+            return processed.get() * 1000.0 / Math.max(1, elapsedMillis());
+        }
+
+        private long scoreRows() {
+            long end = finishedAt != null ? scoreRowsAtFinish : scoreRowCounter.getAsLong();
+            return end - scoreRowsAtStart;
+        }
+
+        private double scoreRowsPerSecond() {
+            return scoreRows() * 1000.0 / Math.max(1, elapsedMillis());
+        }
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("trigger", trigger);
+            snapshot.put("mode", mode);
+            snapshot.put("startedAt", startedAt.toString());
+            snapshot.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            snapshot.put("totalUsers", totalUsers);
+            snapshot.put("processedUsers", processed.get());
+            snapshot.put("failedUsers", failed.get());
+            snapshot.put("partitions", partitions);
+            snapshot.put("partitionsDone", partitionsDone.get());
+            snapshot.put("usersPerSecond", Math.round(usersPerSecond()));
+            snapshot.put("scoreRows", scoreRows());
+            snapshot.put("scoreRowsPerSecond", Math.round(scoreRowsPerSecond()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ecom.service.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+
+/**
+ * Full rebuild of an in-memory product index from the product table, shared by the
+ * search and facet indexes.
+ *
+ * The table is read page by page into a new structure that is then swapped in. A
+ * product saved or deleted meanwhile may already have been read in its old state, so
+ * the index reports every change through {@link #noteChange} and those products are
+ * read again and re-applied once the new structure is live.
+ */
+final class ProductCatalogRebuild {
+
+    private static final int PAGE_SIZE = 10_000;
+
+    /**
+     * The index being rebuilt.
+     */
+    interface Target {
+
+        /**
+         * Adds a product to the structure being built.
+         */
+        void add(Product product) throws Exception;
+
+        /**
+         * Replaces the live structure with the built one.
+         */
+        void swap() throws Exception;
+
+        /**
+         * Re-applies a product saved during the rebuild to the live structure.
+         */
+        void update(Product product) throws Exception;
+
+        /**
+         * Drops a product deleted during the rebuild from the live structure.
+         */
+        void remove(Integer productId) throws Exception;
+    }
+
+    // products changed while a rebuild reads the table, re-applied once it is swapped in
+    private volatile Set<Integer> changedDuringRebuild;
+
+    /**
+     * Call on every index update or removal, before applying it.
+     */
+    void noteChange(Integer productId) {
+        Set<Integer> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(productId);
+        }
+    }
+
+    /**
+     * Rebuilds target from the whole catalog. Callers run one rebuild at a time.
+     */
+    void run(ProductRepository productRepository, Target target) throws Exception {
+        Set<Integer> changed = ConcurrentHashMap.newKeySet();
+        changedDuringRebuild = changed;
+        try {
+            Page<Product> page;
+            int pageNo = 0;
+            do {
+                page = productRepository.findAll(PageRequest.of(pageNo++, PAGE_SIZE, Sort.by("id")));
+                for (Product product : page) {
+                    target.add(product);
+                }
+            } while (page.hasNext());
+
+            // stop tracking only after the swap: changes from then on reach the new structure
+            target.swap();
+            changedDuringRebuild = null;
+
+            for (Integer productId : changed) {
+                Product product = productRepository.findById(productId).orElse(null);
+                if (product == null) {
+                    target.remove(productId);
+                } else {
+                    target.update(product);
+                }
+            }
+        } finally {
+            changedDuringRebuild = null;
+        }
+    }
+}
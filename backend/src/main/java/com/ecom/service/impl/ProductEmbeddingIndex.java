@@ -0,0 +1,270 @@
+package com.ecom.service.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+import com.ecom.util.HashedTextEmbedder;
+import com.ecom.util.HnswIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Approximate nearest-neighbor index over product text embeddings.
+ *
+ * Every product's title and description is embedded with a hashed TF-IDF vector and
+ * inserted into an HNSW graph, so content-similar products can be found for items
+ * that have no co-purchase or co-view neighbors yet. Admin saves re-embed the product
+ * and deletes remove it; a full rebuild (after each similarity run) refits the IDF
+ * weights and compacts the graph. All changes run in order on one background thread,
+ * so a save never waits for a rebuild.
+ *
+ * The graph and the embedder are written to {@code dir} as one snapshot: both files
+ * carry the snapshot's generation and a manifest naming the current generation is
+ * replaced last, so a restart never pairs a graph with another embedder. Rebuilds
+ * write a snapshot right away, single-product changes at most every
+ * {@code persist-delay-seconds}.
+ */
+@Slf4j
+@Component
+public class ProductEmbeddingIndex {
+
+    private static final String MANIFEST = "snapshot.manifest";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${recommendation.ann.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.ann.dimension:256}")
+    private int dimension;
+
+    @Value("${recommendation.ann.m:16}")
+    private int m;
+
+    @Value("${recommendation.ann.ef-construction:100}")
+    private int efConstruction;
+
+    @Value("${recommendation.ann.ef-search:64}")
+    private int efSearch;
+
+    @Value("${recommendation.ann.dir:./data/ann}")
+    private String directory;
+
+    @Value("${recommendation.ann.persist-delay-seconds:60}")
+    private long persistDelaySeconds;
+
+    private final ScheduledExecutorService background =
+        Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("product-ann-"));
+
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean(false);
+
+    // written by the background thread only
+    private volatile HashedTextEmbedder embedder;
+    private volatile HnswIndex index;
+    private int generation;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(directory);
+        try {
+            Path manifest = dir.resolve(MANIFEST);
+            if (Files.exists(manifest)) {
+                int current = Integer.parseInt(Files.readString(manifest).trim());
+                HashedTextEmbedder loadedEmbedder = HashedTextEmbedder.read(embedderPath(current));
+                HnswIndex loadedIndex = HnswIndex.read(graphPath(current));
+                if (loadedEmbedder.dimension() == dimension && loadedIndex.dimension() == dimension) {
+                    embedder = loadedEmbedder;
+                    index = loadedIndex;
+                    generation = current;
+                    log.info("Loaded product ANN index from {}: {} products", dir.toAbsolutePath(), loadedIndex.size());
+                    return;
+                }
+                log.info("Product ANN index on disk has a different dimension, rebuilding");
+            }
+        } catch (Exception e) {
+            log.error("Error loading product ANN index from " + dir.toAbsolutePath(), e);
+        }
+        background.execute(this::rebuildNow);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * Up to k product ids closest to productId's embedding, most similar first,
+     * excluding productId itself and ids rejected by filter. Empty if the product is
+     * not indexed.
+     */
+    public int[] nearest(int productId, int k, IntPredicate filter) {
+        HnswIndex current = index;
+        if (!enabled || current == null) {
+            return new int[0];
+        }
+        float[] vector = current.vector(productId);
+        if (vector == null) {
+            return new int[0];
+        }
+        return current.search(vector, k, Math.max(efSearch, k), id -> id != productId && filter.test(id));
+    }
+
+    /**
+     * Queues a saved product to be embedded again, replacing its previous vector.
+     */
+    public void update(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        background.execute(() -> {
+            HnswIndex current = index;
+            if (current == null) {
+                return;
+            }
+            try {
+                float[] vector = embedder.embed(product.getTitle(), product.getDescription());
+                if (vector == null) {
+                    current.remove(product.getId());
+                } else {
+                    current.add(product.getId(), vector);
+                }
+                scheduleSnapshot();
+            } catch (Exception e) {
+                log.error("Error updating product " + product.getId() + " in the ANN index", e);
+            }
+        });
+    }
+
+    /**
+     * Queues the removal of a deleted product.
+     */
+    public void remove(Integer productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        background.execute(() -> {
+            HnswIndex current = index;
+            if (current != null && current.remove(productId)) {
+                scheduleSnapshot();
+            }
+        });
+    }
+
+    /**
+     * Queues a rebuild of the whole catalog; changes queued before it are folded in by
+     * the rebuild, changes queued after it are applied to the new graph.
+     */
+    public void rebuild() {
+        if (enabled) {
+            background.execute(this::rebuildNow);
+        }
+    }
+
+    private void rebuildNow() {
+        long start = System.currentTimeMillis();
+        try {
+            List<Product> products = productRepository.findAll();
+            List<String[]> documents = new ArrayList<>(products.size());
+            for (Product product : products) {
+                documents.add(new String[] { product.getTitle(), product.getDescription() });
+            }
+            HashedTextEmbedder nextEmbedder = HashedTextEmbedder.fit(dimension, documents);
+            HnswIndex next = new HnswIndex(dimension, m, efConstruction);
+            for (Product product : products) {
+                float[] vector = nextEmbedder.embed(product.getTitle(), product.getDescription());
+                if (vector != null) {
+                    next.add(product.getId(), vector);
+                }
+            }
+            embedder = nextEmbedder;
+            index = next;
+            log.info("Built product ANN index: {} products in {} ms", next.size(), System.currentTimeMillis() - start);
+            writeSnapshot();
+        } catch (Exception e) {
+            log.error("Error building product ANN index, keeping the previous one", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        HnswIndex current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("products", current == null ? 0 : current.size());
+        stats.put("deletedNodes", current == null ? 0 : current.deletedCount());
+        stats.put("dimension", dimension);
+        return stats;
+    }
+
+    private void scheduleSnapshot() {
+        if (snapshotScheduled.compareAndSet(false, true)) {
+            background.schedule(() -> {
+                try {
+                    writeSnapshot();
+                } catch (Exception e) {
+                    log.error("Error writing product ANN snapshot", e);
+                }
+            }, persistDelaySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes the embedder and graph under a new generation, then points the manifest at
+     * it and deletes older generations. Runs on the background thread.
+     */
+    private void writeSnapshot() throws IOException {
+        snapshotScheduled.set(false);
+        HnswIndex current = index;
+        if (current == null) {
+            return;
+        }
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        int next = generation + 1;
+        embedder.write(embedderPath(next));
+        current.write(graphPath(next));
+
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        Files.writeString(temp, Integer.toString(next));
+        Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation = next;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "{*.bin,*.tmp}")) {
+            for (Path file : files) {
+                if (!file.equals(embedderPath(next)) && !file.equals(graphPath(next))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private Path graphPath(int generation) {
+        return Paths.get(directory).resolve(String.format("graph-%08d.bin", generation));
+    }
+
+    private Path embedderPath(int generation) {
+        return Paths.get(directory).resolve(String.format("idf-%08d.bin", generation));
+    }
+}
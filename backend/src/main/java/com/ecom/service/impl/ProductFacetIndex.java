@@ -0,0 +1,462 @@
+package com.ecom.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+import com.ecom.model.Product;
+import com.ecom.model.ProductFilter;
+import com.ecom.repository.ProductRepository;
+import com.ecom.util.RoaringBitmap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Facet filters and counts for /api/products over the active products: one
+ * {@link RoaringBitmap} of product ids per category, price band and discount band,
+ * and one of the products in stock.
+ *
+ * Price bands split the selling price after discount at search.facets.price-bands,
+ * discount bands split the discount percent at search.facets.discount-bands, and the
+ * last band of each is open-ended. A filter intersects the bitmaps of its selected
+ * values, uniting several selected bands of one facet first. Counts are disjunctive:
+ * those of one facet apply the selections of all other facets but not its own, so
+ * the other price bands keep their counts once one is selected.
+ *
+ * Built from the product table in the background on startup, listings use SQL
+ * without facets until then. ProductServiceImpl re-indexes a product on every save
+ * and update and drops it on delete.
+ */
+@Slf4j
+@Component
+public class ProductFacetIndex {
+
+    private static final int CATEGORY = 0;
+    private static final int PRICE = 1;
+    private static final int DISCOUNT = 2;
+    private static final int STOCK = 3;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Value("${search.facets.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.facets.price-bands:500,1000,2000,5000,10000,50000}")
+    private double[] priceBounds;
+
+    @Value("${search.facets.discount-bands:10,25,50}")
+    private int[] discountBounds;
+
+    private final ExecutorService background =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("product-facets-"));
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock, null until the first build completes
+    private Bitmaps bitmaps;
+
+    private final ProductCatalogRebuild catalogRebuild = new ProductCatalogRebuild();
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            background.execute(this::rebuild);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    public boolean isReady() {
+        if (!enabled) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return bitmaps != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        if (!enabled || product == null || product.getId() == null) {
+            return;
+        }
+        catalogRebuild.noteChange(product.getId());
+        lock.writeLock().lock();
+        try {
+            if (bitmaps != null) {
+                bitmaps.remove(product.getId());
+                bitmaps.add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        if (!enabled || productId == null) {
+            return;
+        }
+        catalogRebuild.noteChange(productId);
+        lock.writeLock().lock();
+        try {
+            if (bitmaps != null) {
+                bitmaps.remove(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the whole catalog page by page into new bitmaps and swaps them in.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Bitmaps built = new Bitmaps();
+        try {
+            catalogRebuild.run(productRepository, new ProductCatalogRebuild.Target() {
+                @Override
+                public void add(Product product) {
+                    built.add(product);
+                }
+
+                @Override
+                public void swap() {
+                    lock.writeLock().lock();
+                    try {
+                        bitmaps = built;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+
+                @Override
+                public void update(Product product) {
+                    index(product);
+                }
+
+                @Override
+                public void remove(Integer productId) {
+                    ProductFacetIndex.this.remove(productId);
+                }
+            });
+            log.info("Built product facets in {} ms: {}", System.currentTimeMillis() - start, stats());
+        } catch (Exception e) {
+            log.error("Error building product facets, keeping the previous ones", e);
+        }
+    }
+
+    /**
+     * The active products that pass filter, only among within if it is not null.
+     */
+    public RoaringBitmap filter(RoaringBitmap within, ProductFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap[] selected = bitmaps.selected(filter);
+            return restrict(bitmaps.universe(within), selected, -1).copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Facet counts of the active products, only among within if it is not null: a
+     * list per facet of its values with their count and whether they are selected.
+     */
+    public Map<String, Object> counts(RoaringBitmap within, ProductFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap universe = bitmaps.universe(within);
+            RoaringBitmap[] selected = bitmaps.selected(filter);
+
+            RoaringBitmap scope = restrict(universe, selected, CATEGORY).toDense();
+            List<Map<String, Object>> categories = new ArrayList<>();
+            for (Map.Entry<String, RoaringBitmap> category : bitmaps.byCategory.entrySet()) {
+                int count = RoaringBitmap.andCardinality(scope, category.getValue());
+                boolean isSelected = category.getKey().equals(filter.category());
+                if (count > 0 || isSelected) {
+                    Map<String, Object> value = new LinkedHashMap<>();
+                    value.put("value", category.getKey());
+                    value.put("count", count);
+                    value.put("selected", isSelected);
+                    categories.add(value);
+                }
+            }
+            categories.sort((a, b) -> !a.get("count").equals(b.get("count"))
+                ? Integer.compare((Integer) b.get("count"), (Integer) a.get("count"))
+                : ((String) a.get("value")).compareTo((String) b.get("value")));
+
+            scope = restrict(universe, selected, PRICE);
+            List<Map<String, Object>> priceBands = new ArrayList<>();
+            for (int band = 0; band < bitmaps.byPriceBand.length; band++) {
+                priceBands.add(band(band, band == 0 ? 0.0 : priceBounds[band - 1],
+                    band < priceBounds.length ? priceBounds[band] : null,
+                    RoaringBitmap.andCardinality(scope, bitmaps.byPriceBand[band]),
+                    contains(filter.priceBands(), band)));
+            }
+
+            scope = restrict(universe, selected, DISCOUNT);
+            List<Map<String, Object>> discountBands = new ArrayList<>();
+            for (int band = 0; band < bitmaps.byDiscountBand.length; band++) {
+                discountBands.add(band(band, band == 0 ? 0 : discountBounds[band - 1],
+                    band < discountBounds.length ? discountBounds[band] : null,
+                    RoaringBitmap.andCardinality(scope, bitmaps.byDiscountBand[band]),
+                    contains(filter.discountBands(), band)));
+            }
+
+            Map<String, Object> inStock = new LinkedHashMap<>();
+            inStock.put("count", RoaringBitmap.andCardinality(restrict(universe, selected, STOCK), bitmaps.inStock));
+            inStock.put("selected", filter.inStockOnly());
+
+            Map<String, Object> facets = new LinkedHashMap<>();
+            facets.put("categories", categories);
+            facets.put("priceBands", priceBands);
+            facets.put("discountBands", discountBands);
+            facets.put("inStock", inStock);
+            return facets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The same selection as {@link #filter} as SQL predicates over the product table,
+     * for listings served while the bitmaps are not built or facets are disabled.
+     */
+    public Specification<Product> specification(ProductFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isTrue(root.get("isActive")));
+            if (!ObjectUtils.isEmpty(filter.category())) {
+                predicates.add(cb.equal(root.get("category"), filter.category()));
+            }
+            Expression<Double> price = cb.coalesce(
+                cb.coalesce(root.<Double>get("discountPrice"), root.<Double>get("price")), 0.0);
+            if (filter.priceBands() != null && !filter.priceBands().isEmpty()) {
+                List<Predicate> bands = new ArrayList<>();
+                for (Integer band : filter.priceBands()) {
+                    if (band != null && band >= 0 && band <= priceBounds.length) {
+                        bands.add(inBand(cb, price, band == 0 ? null : priceBounds[band - 1],
+                            band < priceBounds.length ? priceBounds[band] : null));
+                    }
+                }
+                predicates.add(cb.or(bands.toArray(new Predicate[0])));
+            }
+            if (filter.discountBands() != null && !filter.discountBands().isEmpty()) {
+                Expression<Integer> discount = root.get("discount");
+                List<Predicate> bands = new ArrayList<>();
+                for (Integer band : filter.discountBands()) {
+                    if (band != null && band >= 0 && band <= discountBounds.length) {
+                        bands.add(inBand(cb, discount, band == 0 ? null : discountBounds[band - 1],
+                            band < discountBounds.length ? discountBounds[band] : null));
+                    }
+                }
+                predicates.add(cb.or(bands.toArray(new Predicate[0])));
+            }
+            if (filter.inStockOnly()) {
+                predicates.add(cb.gt(root.get("stock"), 0));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("enabled", enabled);
+            if (bitmaps != null) {
+                long bytes = bitmaps.active.sizeInBytes() + bitmaps.inStock.sizeInBytes();
+                for (RoaringBitmap bitmap : bitmaps.byCategory.values()) {
+                    bytes += bitmap.sizeInBytes();
+                }
+                for (RoaringBitmap bitmap : bitmaps.byPriceBand) {
+                    bytes += bitmap.sizeInBytes();
+                }
+                for (RoaringBitmap bitmap : bitmaps.byDiscountBand) {
+                    bytes += bitmap.sizeInBytes();
+                }
+                stats.put("products", bitmaps.active.cardinality());
+                stats.put("categories", bitmaps.byCategory.size());
+                stats.put("approxBytes", bytes);
+            }
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * universe intersected with every selected facet except the one at except.
+     */
+    private static RoaringBitmap restrict(RoaringBitmap universe, RoaringBitmap[] selected, int except) {
+        RoaringBitmap result = universe;
+        for (int facet = 0; facet < selected.length; facet++) {
+            if (facet != except && selected[facet] != null) {
+                result = RoaringBitmap.and(result, selected[facet]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * min <= value < max, either bound left out when null.
+     */
+    private static <T extends Comparable<? super T>> Predicate inBand(CriteriaBuilder cb, Expression<T> value,
+            T min, T max) {
+        List<Predicate> bounds = new ArrayList<>();
+        if (min != null) {
+            bounds.add(cb.greaterThanOrEqualTo(value, min));
+        }
+        if (max != null) {
+            bounds.add(cb.lessThan(value, max));
+        }
+        return cb.and(bounds.toArray(new Predicate[0]));
+    }
+
+    private static Map<String, Object> band(int band, Object min, Object max, int count, boolean selected) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("band", band);
+        value.put("min", min);
+        value.put("max", max);
+        value.put("count", count);
+        value.put("selected", selected);
+        return value;
+    }
+
+    private static boolean contains(List<Integer> values, int value) {
+        return values != null && values.contains(value);
+    }
+
+    /**
+     * The facet bitmaps of the active products.
+     */
+    private final class Bitmaps {
+
+        private final RoaringBitmap active = new RoaringBitmap();
+        private final Map<String, RoaringBitmap> byCategory = new HashMap<>();
+        private final RoaringBitmap[] byPriceBand = newBands(priceBounds.length + 1);
+        private final RoaringBitmap[] byDiscountBand = newBands(discountBounds.length + 1);
+        private final RoaringBitmap inStock = new RoaringBitmap();
+
+        void add(Product product) {
+            if (!Boolean.TRUE.equals(product.getIsActive())) {
+                return;
+            }
+            int id = product.getId();
+            active.add(id);
+            if (product.getCategory() != null) {
+                byCategory.computeIfAbsent(product.getCategory(), category -> new RoaringBitmap()).add(id);
+            }
+            Double price = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+            byPriceBand[priceBand(price == null ? 0 : price)].add(id);
+            byDiscountBand[discountBand(product.getDiscount())].add(id);
+            if (product.getStock() > 0) {
+                inStock.add(id);
+            }
+        }
+
+        /**
+         * Takes a product out of every bitmap; there are few enough values per facet
+         * that this is cheaper than remembering where each product went.
+         */
+        void remove(int id) {
+            if (!active.contains(id)) {
+                return;
+            }
+            active.remove(id);
+            byCategory.values().removeIf(bitmap -> {
+                bitmap.remove(id);
+                return bitmap.isEmpty();
+            });
+            for (RoaringBitmap bitmap : byPriceBand) {
+                bitmap.remove(id);
+            }
+            for (RoaringBitmap bitmap : byDiscountBand) {
+                bitmap.remove(id);
+            }
+            inStock.remove(id);
+        }
+
+        RoaringBitmap universe(RoaringBitmap within) {
+            return within == null ? active : RoaringBitmap.and(within, active);
+        }
+
+        /**
+         * The products each facet of filter allows, null for facets it does not restrict.
+         */
+        RoaringBitmap[] selected(ProductFilter filter) {
+            RoaringBitmap[] selected = new RoaringBitmap[4];
+            if (!ObjectUtils.isEmpty(filter.category())) {
+                selected[CATEGORY] = byCategory.getOrDefault(filter.category(), new RoaringBitmap());
+            }
+            selected[PRICE] = union(byPriceBand, filter.priceBands());
+            selected[DISCOUNT] = union(byDiscountBand, filter.discountBands());
+            if (filter.inStockOnly()) {
+                selected[STOCK] = inStock;
+            }
+            return selected;
+        }
+
+        private RoaringBitmap union(RoaringBitmap[] bands, List<Integer> selected) {
+            if (selected == null || selected.isEmpty()) {
+                return null;
+            }
+            RoaringBitmap union = new RoaringBitmap();
+            for (Integer band : selected) {
+                if (band != null && band >= 0 && band < bands.length) {
+                    union = RoaringBitmap.or(union, bands[band]);
+                }
+            }
+            return union;
+        }
+
+        private int priceBand(double price) {
+            int band = 0;
+            while (band < priceBounds.length && price >= priceBounds[band]) {
+                band++;
+            }
+            return band;
+        }
+
+        private int discountBand(int discount) {
+            int band = 0;
+            while (band < discountBounds.length && discount >= discountBounds[band]) {
+                band++;
+            }
+            return band;
+        }
+
+        private RoaringBitmap[] newBands(int count) {
+            RoaringBitmap[] bands = new RoaringBitmap[count];
+            for (int band = 0; band < count; band++) {
+                bands[band] = new RoaringBitmap();
+            }
+            return bands;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.ecom.service.impl;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+import com.ecom.util.InvertedTextIndex;
+import com.ecom.util.SearchSegment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Full-text index over the product catalog for /api/search and /api/products?search=,
+ * stored as memory-mapped segments under search.index.dir.
+ *
+ * On startup the segments on disk are opened and served right away, whatever the
+ * catalog size; only a node without an index builds one before serving. The loaded
+ * index is then always rebuilt in the background while it keeps answering: products
+ * edited, deactivated or bulk loaded while the node was down would otherwise keep
+ * their stale text and active flag, and a matching product count says nothing about
+ * whether the content is current. ProductServiceImpl
+ * re-indexes a product on every save and update and drops it on delete, and each
+ * change is followed by a background merge check.
+ *
+ * A search that matches nothing is retried with typo tolerance when search.fuzzy.enabled,
+ * ranking the products found by edit distance and then by their popularity in the
+ * search suggestions.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SearchSuggestionIndex suggestionIndex;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.dir:./data/search}")
+    private String directory;
+
+    @Value("${search.index.merge-factor:8}")
+    private int mergeFactor;
+
+    @Value("${search.fuzzy.enabled:true}")
+    private boolean fuzzy;
+
+    private final ExecutorService background =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("search-index-"));
+
+    private volatile InvertedTextIndex index;
+
+    private final ProductCatalogRebuild catalogRebuild = new ProductCatalogRebuild();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            index = InvertedTextIndex.open(Paths.get(directory), mergeFactor);
+        } catch (Exception e) {
+            log.error("Error opening product search index in " + Paths.get(directory).toAbsolutePath(), e);
+            return;
+        }
+        long products = productRepository.count();
+        if (index.size() == 0 && products > 0) {
+            rebuild();
+        } else {
+            log.info("Opened product search index in {} ms: {}, refreshing from {} products in the background",
+                System.currentTimeMillis() - start, index.stats(), products);
+            background.execute(this::rebuild);
+        }
+        if (fuzzy) {
+            background.execute(this::prepareFuzzy);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * False if the index is disabled or could not be opened; callers then fall back to SQL search.
+     */
+    public boolean isReady() {
+        return enabled && index != null;
+    }
+
+    public InvertedTextIndex.Hits search(String query, boolean activeOnly, int k) {
+        return search(query, activeOnly, k, null, null);
+    }
+
+    /**
+     * Ranks only the products filter accepts and passes every matching product to
+     * matches, see {@link InvertedTextIndex#search(String, boolean, int, IntPredicate, IntConsumer)}.
+     * The typo-tolerant retry happens only if the query text matched nothing at all.
+     */
+    public InvertedTextIndex.Hits search(String query, boolean activeOnly, int k, IntPredicate filter,
+            IntConsumer matches) {
+        InvertedTextIndex current = index;
+        if (!enabled || current == null) {
+            return InvertedTextIndex.Hits.EMPTY;
+        }
+        AtomicBoolean matched = new AtomicBoolean();
+        InvertedTextIndex.Hits hits = current.search(query, activeOnly, k, filter, productId -> {
+            matched.set(true);
+            if (matches != null) {
+                matches.accept(productId);
+            }
+        });
+        if (!matched.get() && fuzzy) {
+            return current.fuzzySearch(query, activeOnly, k, suggestionIndex::popularity, filter, matches);
+        }
+        return hits;
+    }
+
+    public void index(Product product) {
+        InvertedTextIndex current = index;
+        if (!enabled || current == null || product == null || product.getId() == null) {
+            return;
+        }
+        catalogRebuild.noteChange(product.getId());
+        try {
+            current.put(toDocument(product));
+        } catch (Exception e) {
+            log.error("Error indexing product " + product.getId(), e);
+        }
+        scheduleMerge();
+    }
+
+    public void remove(Integer productId) {
+        InvertedTextIndex current = index;
+        if (!enabled || current == null || productId == null) {
+            return;
+        }
+        catalogRebuild.noteChange(productId);
+        try {
+            current.remove(productId);
+        } catch (Exception e) {
+            log.error("Error removing product " + productId + " from the search index", e);
+        }
+        scheduleMerge();
+    }
+
+    /**
+     * Reads the whole catalog page by page into one new segment and swaps it in.
+     */
+    public synchronized void rebuild() {
+        InvertedTextIndex current = index;
+        if (!enabled || current == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        try {
+            catalogRebuild.run(productRepository, new ProductCatalogRebuild.Target() {
+                @Override
+                public void add(Product product) {
+                    builder.add(toDocument(product));
+                }
+
+                @Override
+                public void swap() throws IOException {
+                    current.replaceAll(builder);
+                }
+
+                @Override
+                public void update(Product product) throws IOException {
+                    current.put(toDocument(product));
+                }
+
+                @Override
+                public void remove(Integer productId) throws IOException {
+                    current.remove(productId);
+                }
+            });
+            log.info("Built product search index: {} products in {} ms", current.size(),
+                System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error building product search index, keeping the previous one", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        InvertedTextIndex current = index;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        if (current != null) {
+            stats.putAll(current.stats());
+        }
+        return stats;
+    }
+
+    private void prepareFuzzy() {
+        try {
+            long start = System.currentTimeMillis();
+            index.prepareFuzzy();
+            log.info("Prepared fuzzy product search in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error preparing fuzzy product search", e);
+        }
+    }
+
+    private void scheduleMerge() {
+        background.execute(() -> {
+            try {
+                while (index.maybeMerge()) {
+                    log.debug("Merged product search segments: {}", index.stats());
+                }
+            } catch (Exception e) {
+                log.error("Error merging product search segments", e);
+            }
+        });
+    }
+
+    /**
+     * Price is the selling price after discount.
+     */
+    private static SearchSegment.Document toDocument(Product product) {
+        Double price = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+        return new SearchSegment.Document(product.getId(), Boolean.TRUE.equals(product.getIsActive()),
+            price == null ? 0 : price, product.getDiscount(), product.getTitle(), product.getCategory(),
+            product.getDescription());
+    }
+}
@@ -5,20 +5,31 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.ecom.model.FacetedProductPage;
 import com.ecom.model.Product;
+import com.ecom.model.ProductFilter;
 import com.ecom.repository.ProductRepository;
 import com.ecom.service.ProductService;
+import com.ecom.util.InvertedTextIndex;
+import com.ecom.util.RoaringBitmap;
 
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -26,9 +37,26 @@ public class ProductServiceImpl implements ProductService {
 	@Autowired
 	private ProductRepository productRepository;
 
+	@Autowired
+	private ProductSearchIndex searchIndex;
+
+	@Autowired
+	private SearchSuggestionIndex suggestionIndex;
+
+	@Autowired
+	private ProductFacetIndex facetIndex;
+
+	// cap for the unpaged search used by /api/search
+	@Value("${search.index.max-results:500}")
+	private int maxSearchResults;
+
 	@Override
 	public Product saveProduct(Product product) {
-		return productRepository.save(product);
+		Product saveProduct = productRepository.save(product);
+		searchIndex.index(saveProduct);
+		suggestionIndex.onProductChanged(saveProduct);
+		facetIndex.index(saveProduct);
+		return saveProduct;
 	}
 
 	@Override
@@ -48,6 +76,9 @@ public class ProductServiceImpl implements ProductService {
 
 		if (!ObjectUtils.isEmpty(product)) {
 			productRepository.delete(product);
+			searchIndex.remove(id);
+			suggestionIndex.onProductDeleted(id);
+			facetIndex.remove(id);
 			return true;
 		}
 		return false;
@@ -83,6 +114,9 @@ public class ProductServiceImpl implements ProductService {
 		Product updateProduct = productRepository.save(dbProduct);
 
 		if (!ObjectUtils.isEmpty(updateProduct)) {
+			searchIndex.index(updateProduct);
+			suggestionIndex.onProductChanged(updateProduct);
+			facetIndex.index(updateProduct);
 
 			if (!image.isEmpty()) {
 
@@ -116,12 +150,18 @@ public class ProductServiceImpl implements ProductService {
 
 	@Override
 	public List<Product> searchProduct(String ch) {
+		if (searchIndex.isReady()) {
+			return loadInOrder(searchIndex.search(ch, false, maxSearchResults).productIds(), 0);
+		}
 		return productRepository.findByTitleContainingIgnoreCaseOrCategoryContainingIgnoreCase(ch, ch);
 	}
 
 	@Override
 	public Page<Product> searchProductPagination(Integer pageNo, Integer pageSize, String ch) {
 		Pageable pageable = PageRequest.of(pageNo, pageSize);
+		if (searchIndex.isReady()) {
+			return searchPage(ch, false, pageable);
+		}
 		return productRepository.findByTitleContainingIgnoreCaseOrCategoryContainingIgnoreCase(ch, ch, pageable);
 	}
 
@@ -145,6 +185,10 @@ public class ProductServiceImpl implements ProductService {
 		Page<Product> pageProduct = null;
 		Pageable pageable = PageRequest.of(pageNo, pageSize);
 
+		if (searchIndex.isReady()) {
+			return searchPage(ch, true, pageable);
+		}
+
 		pageProduct = productRepository.findByisActiveTrueAndTitleContainingIgnoreCaseOrCategoryContainingIgnoreCase(ch,
 				ch, pageable);
 
@@ -156,4 +200,72 @@ public class ProductServiceImpl implements ProductService {
 		return pageProduct;
 	}
 
+	/**
+	 * Active products narrowed by filter, and by ch when it is not empty, with facet
+	 * counts from the in-memory bitmaps. Without a search they come in id order; with
+	 * one they are ranked by the search index, which only ranks products passing the
+	 * filter while collecting all of its matches for the counts. While an index is not
+	 * ready, or with facets disabled, the same filter and a substring match on title or
+	 * category run as SQL instead, in id order and without facet counts.
+	 */
+	@Override
+	public FacetedProductPage getActiveProductFacetPagination(Integer pageNo, Integer pageSize, String ch,
+			ProductFilter filter) {
+		boolean search = !ObjectUtils.isEmpty(ch);
+		if (!facetIndex.isReady() || (search && !searchIndex.isReady())) {
+			Specification<Product> where = facetIndex.specification(filter);
+			if (search) {
+				String pattern = "%" + ch.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+						+ "%";
+				where = where.and((root, query, cb) -> cb.or(cb.like(cb.lower(root.get("title")), pattern, '\\'),
+						cb.like(cb.lower(root.get("category")), pattern, '\\')));
+			}
+			Page<Product> page = productRepository.findAll(where, PageRequest.of(pageNo, pageSize, Sort.by("id")));
+			return new FacetedProductPage(page, Map.of());
+		}
+
+		Pageable pageable = PageRequest.of(pageNo, pageSize);
+		int offset = (int) pageable.getOffset();
+		if (!search) {
+			RoaringBitmap products = facetIndex.filter(null, filter);
+			Page<Product> page = new PageImpl<>(loadInOrder(products.toArray(offset, pageSize), 0), pageable,
+					products.cardinality());
+			return new FacetedProductPage(page, facetIndex.counts(null, filter));
+		}
+		RoaringBitmap allowed = facetIndex.filter(null, filter);
+		RoaringBitmap matches = new RoaringBitmap();
+		InvertedTextIndex.Hits hits = searchIndex.search(ch, true, offset + pageSize, allowed::contains, matches::add);
+		Page<Product> page = new PageImpl<>(loadInOrder(hits.productIds(), offset), pageable, hits.total());
+		return new FacetedProductPage(page, facetIndex.counts(matches, filter));
+	}
+
+	/**
+	 * One page of ranked search hits from the in-memory index; only the rows on the
+	 * page are loaded, by primary key.
+	 */
+	private Page<Product> searchPage(String ch, boolean activeOnly, Pageable pageable) {
+		int offset = (int) pageable.getOffset();
+		InvertedTextIndex.Hits hits = searchIndex.search(ch, activeOnly, offset + pageable.getPageSize());
+		return new PageImpl<>(loadInOrder(hits.productIds(), offset), pageable, hits.total());
+	}
+
+	private List<Product> loadInOrder(int[] ids, int from) {
+		List<Integer> pageIds = new ArrayList<>();
+		for (int i = from; i < ids.length; i++) {
+			pageIds.add(ids[i]);
+		}
+		Map<Integer, Product> byId = new HashMap<>();
+		for (Product product : productRepository.findAllById(pageIds)) {
+			byId.put(product.getId(), product);
+		}
+		List<Product> products = new ArrayList<>(pageIds.size());
+		for (Integer id : pageIds) {
+			Product product = byId.get(id);
+			if (product != null) {
+				products.add(product);
+			}
+		}
+		return products;
+	}
+
 }
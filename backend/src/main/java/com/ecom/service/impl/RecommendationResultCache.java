@@ -0,0 +1,75 @@
+package com.ecom.service.impl;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.ecom.util.TinyLfuCache;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Final ranked /for-you product ids per user.
+ *
+ * Entries expire after {@code ttl-seconds}, which bounds how long a user keeps seeing
+ * results from before a score run or model retrain. They are dropped earlier when the
+ * user adds to cart or purchases, and the whole cache is cleared when a product's
+ * active flag flips. Product rows are not cached here; callers resolve the ids
+ * against the in-memory catalog, which hides products deactivated since.
+ */
+@Component
+public class RecommendationResultCache {
+
+    @Value("${recommendation.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendation.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${recommendation.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private TinyLfuCache<Entry> cache;
+
+    private record Entry(int limit, int[] productIds) {
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = new TinyLfuCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * Cached ids for a request of at most limit products, or null on a miss. A list
+     * cached for a larger limit also answers smaller ones.
+     */
+    public int[] get(int userId, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.get(userId);
+        if (entry == null || entry.limit() < limit) {
+            return null;
+        }
+        return entry.productIds().length <= limit ? entry.productIds() : Arrays.copyOf(entry.productIds(), limit);
+    }
+
+    public void put(int userId, int limit, int[] productIds) {
+        if (enabled) {
+            cache.put(userId, new Entry(limit, productIds));
+        }
+    }
+
+    public void invalidate(int userId) {
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+}
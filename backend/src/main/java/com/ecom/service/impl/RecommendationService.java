@@ -1,20 +1,28 @@
 package com.ecom.service.impl;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.ecom.model.ActivityEvent;
 import com.ecom.model.Product;
-import com.ecom.model.ProductSimilarity;
 import com.ecom.model.UserActivity;
 import com.ecom.model.UserProductScore;
+import com.ecom.model.UserScoreWatermark;
 import com.ecom.repository.ProductRepository;
-import com.ecom.repository.ProductSimilarityRepository;
 import com.ecom.repository.UserActivityRepository;
 import com.ecom.repository.UserProductScoreRepository;
+import com.ecom.repository.UserScoreWatermarkRepository;
+import com.ecom.util.CoPurchaseMatrix;
+import com.ecom.util.IntDoubleHashMap;
+import com.ecom.util.MinHashSignatures;
+import com.ecom.util.NeighborIndex;
+import com.ecom.util.TopKSelector;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -24,15 +32,72 @@ public class RecommendationService {
     @Autowired
     private UserActivityRepository activityRepository;
 
-    @Autowired
-    private ProductSimilarityRepository similarityRepository;
-
     @Autowired
     private UserProductScoreRepository scoreRepository;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private SparseSimilarityEngine sparseSimilarityEngine;
+
+    @Autowired
+    private BulkRecommendationWriter bulkWriter;
+
+    @Autowired
+    private UserScoreWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private ActivityIngestionPipeline activityIngestion;
+
+    @Autowired
+    private TrendingProductTracker trendingTracker;
+
+    @Autowired
+    private SimilarProductIndex similarProductIndex;
+
+    @Autowired
+    private CoViewSimilarityBuilder coViewBuilder;
+
+    @Autowired
+    private MinHashSimilarityEngine minHashSimilarityEngine;
+
+    @Autowired
+    private AlsModelService alsModel;
+
+    @Autowired
+    private ProductEmbeddingIndex embeddingIndex;
+
+    @Autowired
+    private RecommendationResultCache recommendationCache;
+
+    @Autowired
+    private SessionActivityStore sessionStore;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Value("${recommendation.session.recency-decay:0.85}")
+    private double sessionRecencyDecay;
+
+    // "sparse" streams purchases once into an in-memory matrix, "minhash" estimates co-purchase
+    // Jaccard similarity with LSH, "legacy" queries per product and purchaser
+    @Value("${recommendation.similarity.engine:sparse}")
+    private String similarityEngine;
+
+    @Value("${recommendation.similarity.co-view.enabled:true}")
+    private boolean coViewEnabled;
+
+    @Value("${recommendation.similarity.co-view.lookback-days:30}")
+    private long coViewLookbackDays;
+
+    // activity contributions halve every N days; 0 disables decay
+    @Value("${recommendation.user-scores.half-life-days:30}")
+    private double scoreHalfLifeDays;
+
+    // guards the shared staging table against overlapping similarity runs
+    private final AtomicBoolean similarityRunInProgress = new AtomicBoolean(false);
+
     private static final Map<String, Double> ACTION_WEIGHTS = Map.of(
         "VIEW", 1.0,
         "CLICK", 2.0,
@@ -40,166 +105,214 @@ public class RecommendationService {
         "PURCHASE", 10.0
     );
 
-    @Async
+    /**
+     * Hands the event to the write-behind ingestion pipeline; the INSERT happens in a later batch.
+     * Anonymous events only go to the in-memory session store.
+     */
     public void logActivity(Integer userId, Integer productId, String action, String sessionId) {
         try {
-            UserActivity activity = new UserActivity();
-            activity.setUserId(userId);
-            activity.setProductId(productId);
-            activity.setAction(action);
-            activity.setTimestamp(Instant.now());
-            activity.setSessionId(sessionId);
-            activity.setScore(ACTION_WEIGHTS.getOrDefault(action, 1.0));
+            if (productId == null) {
+                return;
+            }
+            ActivityEvent event = new ActivityEvent(userId, productId, action, Instant.now(), sessionId,
+                ACTION_WEIGHTS.getOrDefault(action, 1.0));
+            
+            // user_activity.userId is NOT NULL, anonymous events cannot be stored
+            if (userId == null) {
+                sessionStore.record(event);
+                return;
+            }
             
-            activityRepository.save(activity);
-            log.debug("Activity logged: userId={}, productId={}, action={}", userId, productId, action);
+            if (activityIngestion.submit(event)) {
+                if ("PURCHASE".equals(action)) {
+                    trendingTracker.recordPurchase(productId, event.timestamp());
+                }
+                if ("PURCHASE".equals(action) || "ADD_TO_CART".equals(action)) {
+                    recommendationCache.invalidate(userId);
+                }
+                log.debug("Activity logged: userId={}, productId={}, action={}", userId, productId, action);
+            }
         } catch (Exception e) {
             log.error("Error logging activity", e);
         }
     }
 
-    public List<Product> getRecommendationsForUser(Integer userId, int limit) {
+    public boolean hasSessionHistory(String sessionId) {
+        return !sessionStore.recent(sessionId).isEmpty();
+    }
+
+    /**
+     * Next-item recommendations for an anonymous session: neighbors of the session's
+     * products, with each interaction's weight decayed by how many interactions
+     * came after it. Served entirely from memory.
+     */
+    public List<Product> getRecommendationsForSession(String sessionId, int limit) {
         try {
-            List<UserProductScore> scores = scoreRepository.findTop20ByUserIdOrderByScoreDesc(userId);
+            List<ActivityEvent> events = sessionStore.recent(sessionId);
+            if (events.isEmpty()) {
+                return getTrendingProducts(limit);
+            }
             
-            if (!scores.isEmpty()) {
-                List<Integer> productIds = scores.stream()
-                    .limit(limit)
-                    .map(UserProductScore::getProductId)
-                    .collect(Collectors.toList());
-                
-                List<Product> products = productRepository.findAllById(productIds);
-                
-                // Filter out inactive products
-                products = products.stream()
-                    .filter(Product::getIsActive)
+            IntDoubleHashMap interactedProducts = new IntDoubleHashMap(events.size());
+            double recency = 1;
+            for (int i = events.size() - 1; i >= 0; i--) {
+                interactedProducts.addTo(events.get(i).productId(), events.get(i).score() * recency);
+                recency *= sessionRecencyDecay;
+            }
+            
+            List<Product> recommendations = rankNeighbors(interactedProducts, limit);
+            return recommendations.isEmpty() ? getTrendingProducts(limit) : recommendations;
+        } catch (Exception e) {
+            log.error("Error getting recommendations for session", e);
+            return getTrendingProducts(limit);
+        }
+    }
+
+    /**
+     * Moves an anonymous session's interactions into the user's history after login.
+     */
+    public void mergeSessionHistory(String sessionId, Integer userId) {
+        List<ActivityEvent> events = sessionStore.remove(sessionId);
+        if (events.isEmpty() || userId == null) {
+            return;
+        }
+        int merged = 0;
+        for (ActivityEvent event : events) {
+            if (activityIngestion.submit(new ActivityEvent(userId, event.productId(), event.action(),
+                    event.timestamp(), event.sessionId(), event.score()))) {
+                merged++;
+            }
+        }
+        recommendationCache.invalidate(userId);
+        log.debug("Merged {} session events into history of user {}", merged, userId);
+    }
+
+    public List<Product> getRecommendationsForUser(Integer userId, int limit) {
+        try {
+            int[] cachedIds = recommendationCache.get(userId, limit);
+            if (cachedIds != null) {
+                List<Product> cached = Arrays.stream(cachedIds)
+                    .mapToObj(similarProductIndex::activeProduct)
+                    .filter(Objects::nonNull)
                     .collect(Collectors.toList());
-                
-                if (!products.isEmpty()) {
-                    return products;
+                if (!cached.isEmpty()) {
+                    return cached;
                 }
             }
             
-            return computeRecommendations(userId, limit);
+            List<Product> products = rankRecommendationsForUser(userId, limit);
+            recommendationCache.put(userId, limit, products.stream().mapToInt(Product::getId).toArray());
+            return products;
         } catch (Exception e) {
             log.error("Error getting recommendations for user: " + userId, e);
             return getTrendingProducts(limit);
         }
     }
 
+    private List<Product> rankRecommendationsForUser(Integer userId, int limit) {
+        // factor model first: one dot product per candidate, no queries
+        int[] modelProductIds = alsModel.recommend(userId, limit,
+            productId -> similarProductIndex.activeProduct(productId) != null);
+        if (modelProductIds.length > 0) {
+            return Arrays.stream(modelProductIds)
+                .mapToObj(similarProductIndex::activeProduct)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        }
+        
+        List<UserProductScore> scores = scoreRepository.findTop20ByUserIdOrderByScoreDesc(userId);
+        
+        if (!scores.isEmpty()) {
+            List<Integer> productIds = scores.stream()
+                .limit(limit)
+                .map(UserProductScore::getProductId)
+                .collect(Collectors.toList());
+            
+            List<Product> products = productRepository.findAllById(productIds);
+            
+            // Filter out inactive products
+            products = products.stream()
+                .filter(Product::getIsActive)
+                .collect(Collectors.toList());
+            
+            if (!products.isEmpty()) {
+                return products;
+            }
+        }
+        
+        return computeRecommendations(userId, limit);
+    }
+
+    /**
+     * Scores the neighbors of the user's recent products. Activity weights are summed per
+     * distinct product (from the daily rollup where available) and neighbor lists come
+     * from the in-memory index, so no raw activity rows are loaded.
+     */
     private List<Product> computeRecommendations(Integer userId, int limit) {
         try {
             Instant thirtyDaysAgo = Instant.now().minus(30, ChronoUnit.DAYS);
-            List<UserActivity> recentActivities = activityRepository
-                .findRecentActivitiesByUser(userId, thirtyDaysAgo);
+            IntDoubleHashMap interactedProducts = activityPartitions.userProductWeightsSince(userId, thirtyDaysAgo);
             
-            if (recentActivities.isEmpty()) {
+            if (interactedProducts.isEmpty()) {
                 return getTrendingProducts(limit);
             }
             
-            Set<Integer> interactedProducts = recentActivities.stream()
-                .map(UserActivity::getProductId)
-                .collect(Collectors.toSet());
-            
-            Map<Integer, Double> recommendationScores = new HashMap<>();
-            
-            for (UserActivity activity : recentActivities) {
-                List<ProductSimilarity> similarProducts = 
-                    similarityRepository.findTop10ByProductIdOrderBySimilarityScoreDesc(activity.getProductId());
-                
-                for (ProductSimilarity similarity : similarProducts) {
-                    Integer similarProductId = similarity.getSimilarProductId();
-                    
-                    if (interactedProducts.contains(similarProductId)) {
-                        continue;
-                    }
-                    
-                    double score = similarity.getSimilarityScore() * activity.getScore();
-                    recommendationScores.merge(similarProductId, score, Double::sum);
-                }
-            }
-            
-            List<Integer> recommendedProductIds = recommendationScores.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed())
-                .limit(limit * 2)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-            
-            List<Product> products = productRepository.findAllById(recommendedProductIds);
-            
-            return products.stream()
-                .filter(Product::getIsActive)
-                .limit(limit)
-                .collect(Collectors.toList());
-                
+            return rankNeighbors(interactedProducts, limit);
         } catch (Exception e) {
             log.error("Error computing recommendations", e);
             return getTrendingProducts(limit);
         }
     }
 
-    public List<Product> getSimilarProducts(Integer productId, int limit) {
-        try {
-            List<ProductSimilarity> similarities = 
-                similarityRepository.findTop10ByProductIdOrderBySimilarityScoreDesc(productId);
-            
-            if (similarities.isEmpty()) {
-                Product product = productRepository.findById(productId).orElse(null);
-                if (product != null && product.getCategory() != null) {
-                    return productRepository.findByCategory(product.getCategory()).stream()
-                        .filter(p -> !p.getId().equals(productId))
-                        .filter(Product::getIsActive)
-                        .limit(limit)
-                        .collect(Collectors.toList());
+    /**
+     * Sums neighbor scores weighted by the interacted products' weights, skipping the
+     * interacted products themselves, and returns the best active candidates. Selection
+     * is a bounded heap over the candidates, O(n log limit) rather than a full sort.
+     */
+    private List<Product> rankNeighbors(IntDoubleHashMap interactedProducts, int limit) {
+        NeighborIndex neighbors = similarProductIndex.neighbors();
+        IntDoubleHashMap recommendationScores = new IntDoubleHashMap();
+        
+        interactedProducts.forEach((productId, weight) -> {
+            int start = neighbors.start(productId);
+            int end = Math.min(neighbors.end(productId), start + 10);
+            for (int pos = start; pos < end; pos++) {
+                int similarProductId = neighbors.neighborAt(pos);
+                if (!interactedProducts.containsKey(similarProductId)) {
+                    recommendationScores.addTo(similarProductId, neighbors.scoreAt(pos) * weight);
                 }
-                return Collections.emptyList();
             }
-            
-            List<Integer> similarProductIds = similarities.stream()
-                .limit(limit * 2)
-                .map(ProductSimilarity::getSimilarProductId)
-                .collect(Collectors.toList());
-            
-            List<Product> products = productRepository.findAllById(similarProductIds);
-            
-            return products.stream()
-                .filter(Product::getIsActive)
-                .limit(limit)
-                .collect(Collectors.toList());
-                
+        });
+        
+        TopKSelector top = new TopKSelector(limit);
+        recommendationScores.forEach((productId, score) -> {
+            if (similarProductIndex.activeProduct(productId) != null) {
+                top.offer(productId, score);
+            }
+        });
+        return Arrays.stream(top.idsDescending())
+            .mapToObj(similarProductIndex::activeProduct)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Served from the in-memory neighbor index; no database access.
+     */
+    public List<Product> getSimilarProducts(Integer productId, int limit) {
+        try {
+            return similarProductIndex.getSimilarProducts(productId, limit);
         } catch (Exception e) {
             log.error("Error getting similar products", e);
             return Collections.emptyList();
         }
     }
 
+    /**
+     * Most purchased products of the trending window, served from in-memory counters.
+     */
     public List<Product> getTrendingProducts(int limit) {
         try {
-            Instant sevenDaysAgo = Instant.now().minus(7, ChronoUnit.DAYS);
-            List<UserActivity> recentPurchases = activityRepository.findRecentPurchases(sevenDaysAgo);
-            
-            Map<Integer, Long> productPurchaseCounts = recentPurchases.stream()
-                .collect(Collectors.groupingBy(UserActivity::getProductId, Collectors.counting()));
-            
-            List<Integer> trendingProductIds = productPurchaseCounts.entrySet().stream()
-                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
-                .limit(limit * 2)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-            
-            if (trendingProductIds.isEmpty()) {
-                return productRepository.findByIsActiveTrue().stream()
-                    .limit(limit)
-                    .collect(Collectors.toList());
-            }
-            
-            List<Product> products = productRepository.findAllById(trendingProductIds);
-            
-            return products.stream()
-                .filter(Product::getIsActive)
-                .limit(limit)
-                .collect(Collectors.toList());
-                
+            return trendingTracker.getTrendingProducts(limit);
         } catch (Exception e) {
             log.error("Error getting trending products", e);
             return productRepository.findByIsActiveTrue().stream()
@@ -208,126 +321,211 @@ public class RecommendationService {
         }
     }
 
+    /**
+     * Called after an admin creates, edits or deletes a product so its cached row is refreshed
+     * and the embedding index picks up the new text or drops the product.
+     */
+    public void onProductChanged(Integer productId) {
+        trendingTracker.invalidate();
+        if (productId == null) {
+            similarProductIndex.reloadProducts();
+            recommendationCache.invalidateAll();
+            return;
+        }
+        boolean wasActive = similarProductIndex.activeProduct(productId) != null;
+        Product product = productRepository.findById(productId).orElse(null);
+        similarProductIndex.refreshProduct(productId, product);
+        boolean isActive = similarProductIndex.activeProduct(productId) != null;
+        if (wasActive != isActive) {
+            recommendationCache.invalidateAll();
+        }
+        if (product == null) {
+            embeddingIndex.remove(productId);
+        } else {
+            embeddingIndex.update(product);
+        }
+    }
+
+    /**
+     * Called after product_similarity was changed outside a similarity run, e.g. cleared by an admin.
+     */
+    public void onSimilaritiesChanged() {
+        similarProductIndex.reloadNeighbors();
+    }
+
     public void computeProductSimilarities() {
+        if (!similarityRunInProgress.compareAndSet(false, true)) {
+            log.warn("Product similarity computation already running, skipping");
+            return;
+        }
         try {
             log.info("Starting product similarity computation...");
             
-            // Clear old similarities
-            similarityRepository.deleteAll();
-            
             List<Product> allProducts = productRepository.findByIsActiveTrue();
-            int processedCount = 0;
-            
-            for (Product product : allProducts) {
-                // Category-based similarity
-                List<Product> sameCategoryProducts = productRepository
-                    .findByCategory(product.getCategory()).stream()
-                    .filter(p -> !p.getId().equals(product.getId()))
-                    .filter(Product::getIsActive)
-                    .limit(10)
-                    .collect(Collectors.toList());
-                
-                for (Product similar : sameCategoryProducts) {
-                    saveSimilarity(product.getId(), similar.getId(), 0.7, "CATEGORY");
-                }
-                
-                // Co-purchase similarity
-                List<UserActivity> productPurchases = 
-                    activityRepository.findPurchasesByProduct(product.getId());
-                
-                Set<Integer> userIds = productPurchases.stream()
-                    .map(UserActivity::getUserId)
-                    .collect(Collectors.toSet());
-                
-                if (userIds.size() > 0) {
-                    Map<Integer, Long> coProductCounts = new HashMap<>();
+
+            // Build the new generation off to the side; the live table keeps serving reads
+            try (BulkRecommendationWriter.SimilarityBatch batch = bulkWriter.beginSimilarityGeneration()) {
+                if ("legacy".equalsIgnoreCase(similarityEngine)) {
+                    computeLegacySimilarities(allProducts, batch);
+                } else if ("minhash".equalsIgnoreCase(similarityEngine)) {
                     Instant ninetyDaysAgo = Instant.now().minus(90, ChronoUnit.DAYS);
-                    
-                    for (Integer userId : userIds) {
-                        List<UserActivity> userPurchases = activityRepository
-                            .findByUserIdAndTimestampAfter(userId, ninetyDaysAgo).stream()
-                            .filter(a -> "PURCHASE".equals(a.getAction()))
-                            .filter(a -> !a.getProductId().equals(product.getId()))
-                            .collect(Collectors.toList());
-                        
-                        for (UserActivity purchase : userPurchases) {
-                            coProductCounts.merge(purchase.getProductId(), 1L, Long::sum);
-                        }
-                    }
-                    
-                    long totalPurchasers = userIds.size();
-                    coProductCounts.entrySet().stream()
-                        .filter(e -> e.getValue() > 1)
-                        .forEach(e -> {
-                            double score = Math.min(1.0, (double) e.getValue() / totalPurchasers * 2);
-                            saveSimilarity(product.getId(), e.getKey(), score, "CO_PURCHASE");
-                        });
+                    MinHashSignatures signatures = minHashSimilarityEngine.loadSignatures(ninetyDaysAgo);
+                    minHashSimilarityEngine.computeSimilarities(signatures, allProducts, batch);
+                } else {
+                    Instant ninetyDaysAgo = Instant.now().minus(90, ChronoUnit.DAYS);
+                    CoPurchaseMatrix matrix = sparseSimilarityEngine.loadPurchaseMatrix(ninetyDaysAgo);
+                    long rows = sparseSimilarityEngine.computeSimilarities(matrix, allProducts, batch);
+                    log.info("Product similarity computation completed. Processed {} products, {} similarities",
+                        allProducts.size(), rows);
                 }
-                
-                processedCount++;
-                if (processedCount % 50 == 0) {
-                    log.info("Processed {} products", processedCount);
+
+                if (coViewEnabled) {
+                    Instant coViewSince = Instant.now().minus(coViewLookbackDays, ChronoUnit.DAYS);
+                    NeighborIndex coViews = coViewBuilder.buildIndex(coViewSince);
+                    Set<Integer> activeIds = allProducts.stream().map(Product::getId).collect(Collectors.toSet());
+                    long rows = coViewBuilder.emit(coViews, activeIds, batch);
+                    log.info("Co-view similarity computation completed. {} similarities", rows);
                 }
             }
-            
-            log.info("Product similarity computation completed. Processed {} products", processedCount);
+
+            bulkWriter.publishSimilarityGeneration();
+            log.info("Published new product similarity generation");
+            similarProductIndex.reloadNeighbors();
+            embeddingIndex.rebuild();
         } catch (Exception e) {
             log.error("Error computing product similarities", e);
+            try {
+                bulkWriter.discardSimilarityGeneration();
+            } catch (Exception discardError) {
+                log.error("Error discarding similarity staging table", discardError);
+            }
+        } finally {
+            similarityRunInProgress.set(false);
         }
     }
 
-    public void computeUserScores(Integer userId) {
-        try {
-            scoreRepository.deleteByUserId(userId);
-            
-            Instant ninetyDaysAgo = Instant.now().minus(90, ChronoUnit.DAYS);
-            List<UserActivity> activities = activityRepository
-                .findRecentActivitiesByUser(userId, ninetyDaysAgo);
+    /**
+     * The original per-product loop, kept behind recommendation.similarity.engine=legacy.
+     */
+    void computeLegacySimilarities(List<Product> allProducts, SimilaritySink sink) {
+        int processedCount = 0;
+        
+        for (Product product : allProducts) {
+            // Category-based similarity
+            List<Product> sameCategoryProducts = productRepository
+                .findByCategory(product.getCategory()).stream()
+                .filter(p -> !p.getId().equals(product.getId()))
+                .filter(Product::getIsActive)
+                .limit(10)
+                .collect(Collectors.toList());
             
-            if (activities.isEmpty()) {
-                return;
+            for (Product similar : sameCategoryProducts) {
+                sink.accept(product.getId(), similar.getId(), 0.7, "CATEGORY");
             }
             
-            Map<Integer, Double> productScores = new HashMap<>();
+            // Co-purchase similarity
+            List<UserActivity> productPurchases = 
+                activityRepository.findPurchasesByProduct(product.getId());
             
-            for (UserActivity activity : activities) {
-                productScores.merge(activity.getProductId(), activity.getScore(), Double::sum);
-                
-                List<ProductSimilarity> similarities = 
-                    similarityRepository.findByProductIdOrderBySimilarityScoreDesc(activity.getProductId());
+            Set<Integer> userIds = productPurchases.stream()
+                .map(UserActivity::getUserId)
+                .collect(Collectors.toSet());
+            
+            if (userIds.size() > 0) {
+                Map<Integer, Long> coProductCounts = new HashMap<>();
+                Instant ninetyDaysAgo = Instant.now().minus(90, ChronoUnit.DAYS);
                 
-                for (ProductSimilarity similarity : similarities.stream().limit(5).collect(Collectors.toList())) {
-                    double decayedScore = activity.getScore() * similarity.getSimilarityScore() * 0.5;
-                    productScores.merge(similarity.getSimilarProductId(), decayedScore, Double::sum);
+                for (Integer userId : userIds) {
+                    List<UserActivity> userPurchases = activityRepository
+                        .findByUserIdAndTimestampAfter(userId, ninetyDaysAgo).stream()
+                        .filter(a -> "PURCHASE".equals(a.getAction()))
+                        .filter(a -> !a.getProductId().equals(product.getId()))
+                        .collect(Collectors.toList());
+                    
+                    for (UserActivity purchase : userPurchases) {
+                        coProductCounts.merge(purchase.getProductId(), 1L, Long::sum);
+                    }
                 }
+                
+                long totalPurchasers = userIds.size();
+                coProductCounts.entrySet().stream()
+                    .filter(e -> e.getValue() > 1)
+                    .forEach(e -> {
+                        double score = Math.min(1.0, (double) e.getValue() / totalPurchasers * 2);
+                        sink.accept(product.getId(), e.getKey(), score, "CO_PURCHASE");
+                    });
             }
             
-            Instant now = Instant.now();
+            processedCount++;
+            if (processedCount % 50 == 0) {
+                log.info("Processed {} products", processedCount);
+            }
+        }
+        
+        log.info("Product similarity computation completed. Processed {} products", processedCount);
+    }
+
+    /**
+     * Rebuilds one user's scores from the last 90 days of activity. Failures propagate
+     * so batch runs can count the user as failed and keep their activity for a retry.
+     */
+    public void computeUserScores(Integer userId) {
+        bulkWriter.deleteUserScores(userId);
+        
+        Instant ninetyDaysAgo = Instant.now().minus(90, ChronoUnit.DAYS);
+        List<UserActivity> activities = activityRepository
+            .findRecentActivitiesByUser(userId, ninetyDaysAgo);
+        
+        if (activities.isEmpty()) {
+            return;
+        }
+        
+        Instant now = Instant.now();
+        Map<Integer, Double> productScores = scoreActivities(activities, now);
+        
+        try (BulkRecommendationWriter.ScoreBatch batch = bulkWriter.scoreBatch(false)) {
             for (Map.Entry<Integer, Double> entry : productScores.entrySet()) {
-                UserProductScore score = new UserProductScore();
-                score.setUserId(userId);
-                score.setProductId(entry.getKey());
-                score.setScore(entry.getValue());
-                score.setLastUpdated(now);
-                scoreRepository.save(score);
+                batch.add(userId, entry.getKey(), entry.getValue());
             }
+        }
+        
+        // Later incremental runs continue from the newest activity folded in here
+        int lastActivityId = activities.stream().mapToInt(UserActivity::getId).max().getAsInt();
+        watermarkRepository.save(new UserScoreWatermark(userId, lastActivityId, now));
+        
+        log.debug("Computed scores for user: {}, products: {}", userId, productScores.size());
+    }
+
+    /**
+     * Scores activities the way a full recompute does: the action weight on the product
+     * itself plus half of it spread over the top 5 similar products, each decayed to asOf.
+     */
+    Map<Integer, Double> scoreActivities(List<UserActivity> activities, Instant asOf) {
+        Map<Integer, Double> productScores = new HashMap<>();
+        NeighborIndex neighbors = similarProductIndex.neighbors();
+        
+        for (UserActivity activity : activities) {
+            double weight = activity.getScore() * decayFactor(activity.getTimestamp(), asOf);
+            productScores.merge(activity.getProductId(), weight, Double::sum);
             
-            log.debug("Computed scores for user: {}, products: {}", userId, productScores.size());
-        } catch (Exception e) {
-            log.error("Error computing user scores for: " + userId, e);
+            int start = neighbors.start(activity.getProductId());
+            int end = Math.min(neighbors.end(activity.getProductId()), start + 5);
+            for (int pos = start; pos < end; pos++) {
+                double decayedScore = weight * neighbors.scoreAt(pos) * 0.5;
+                productScores.merge(neighbors.neighborAt(pos), decayedScore, Double::sum);
+            }
         }
+        return productScores;
     }
 
-    private void saveSimilarity(Integer productId, Integer similarProductId, double score, String basis) {
-        try {
-            ProductSimilarity similarity = new ProductSimilarity();
-            similarity.setProductId(productId);
-            similarity.setSimilarProductId(similarProductId);
-            similarity.setSimilarityScore(score);
-            similarity.setBasis(basis);
-            similarityRepository.save(similarity);
-        } catch (Exception e) {
-            log.error("Error saving similarity", e);
+    /**
+     * Exponential decay multiplier for a contribution recorded at from, seen at to.
+     */
+    double decayFactor(Instant from, Instant to) {
+        if (scoreHalfLifeDays <= 0 || from == null || !from.isBefore(to)) {
+            return 1.0;
         }
+        double ageDays = Duration.between(from, to).toMillis() / 86_400_000.0;
+        return Math.pow(0.5, ageDays / scoreHalfLifeDays);
     }
 }
\ No newline at end of file
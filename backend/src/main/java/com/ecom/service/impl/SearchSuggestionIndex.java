@@ -0,0 +1,311 @@
+package com.ecom.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import com.ecom.model.Category;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+import com.ecom.service.CategoryService;
+import com.ecom.util.CompletionTrie;
+import com.ecom.util.IntDoubleHashMap;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Typeahead completions for /api/search/suggest over active product titles and
+ * category names.
+ *
+ * Suggestions are weighted by the summed action weight of each product over the last
+ * popularity-days of user_activity; a category weighs as much as all its products
+ * together, plus one. A title is keyed from each of its first key-words words, so
+ * "iph" finds "Apple iPhone 15", with later words weighted slightly lower.
+ *
+ * A full build goes into one {@link CompletionTrie}. Products changed after it are
+ * kept in a small overlay trie, rebuilt on every change, and hidden in the base trie;
+ * once the overlay holds more than max-overlay products, or nightly for fresh
+ * popularity, the base is rebuilt in the background. All rebuilds run on one
+ * background thread, so an older build never replaces a newer snapshot. Readers use
+ * one immutable snapshot per request.
+ */
+@Slf4j
+@Component
+public class SearchSuggestionIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+    // title keys that start at a later word rank a little below the title start
+    private static final float LATER_WORD_FACTOR = 0.9f;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Value("${search.suggest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.suggest.popularity-days:30}")
+    private int popularityDays;
+
+    @Value("${search.suggest.key-words:3}")
+    private int keyWords;
+
+    @Value("${search.suggest.key-length:40}")
+    private int keyLength;
+
+    @Value("${search.suggest.max-overlay:1000}")
+    private int maxOverlay;
+
+    private final ExecutorService background =
+        Executors.newSingleThreadExecutor(new CustomizableThreadFactory("search-suggest-"));
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    // products changed since the base was built, null for deleted ones; guarded by this
+    private final Map<Integer, Change> pending = new LinkedHashMap<>();
+    private long changeSequence;
+    private boolean rebuildQueued;
+
+    private record Change(Product product, long sequence) {
+    }
+
+    private record Snapshot(CompletionTrie base, Map<Integer, String> baseText, IntDoubleHashMap popularity,
+            CompletionTrie overlay, Map<Integer, String> overlayText, Set<Integer> overridden, Instant builtAt) {
+
+        static final Snapshot EMPTY = new Snapshot(CompletionTrie.EMPTY, Map.of(), new IntDoubleHashMap(),
+            CompletionTrie.EMPTY, Map.of(), Set.of(), null);
+    }
+
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        background.shutdownNow();
+    }
+
+    /**
+     * Up to limit completions of query, most popular first. Each has the display
+     * text, a type of product or category, and the productId of products.
+     */
+    public List<Map<String, Object>> suggest(String query, int limit) {
+        String prefix = normalizePrefix(query);
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        if (!enabled || prefix.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        Snapshot current = snapshot;
+        float[] overlayWeights = new float[limit];
+        int[] overlayIds = current.overlay().top(prefix, limit, id -> true, overlayWeights);
+        float[] baseWeights = new float[limit];
+        int[] baseIds = current.base().top(prefix, limit,
+            id -> id < 0 || !current.overridden().contains(id), baseWeights);
+
+        // both lists are heaviest first; take the better head each time
+        int o = 0;
+        int b = 0;
+        while (suggestions.size() < limit && (o < overlayIds.length || b < baseIds.length)) {
+            if (b == baseIds.length || (o < overlayIds.length && overlayWeights[o] >= baseWeights[b])) {
+                suggestions.add(suggestion(overlayIds[o], current.overlayText().get(overlayIds[o])));
+                o++;
+            } else {
+                suggestions.add(suggestion(baseIds[b], current.baseText().get(baseIds[b])));
+                b++;
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Summed action weight of a product over the last popularity-days as of the last
+     * full build, 0 if unknown. Also ranks typo-tolerant product search.
+     */
+    public double popularity(int productId) {
+        return snapshot.popularity().get(productId, 0);
+    }
+
+    public void onProductChanged(Product product) {
+        if (enabled && product != null && product.getId() != null) {
+            change(product.getId(), product);
+        }
+    }
+
+    public void onProductDeleted(Integer productId) {
+        if (enabled && productId != null) {
+            change(productId, null);
+        }
+    }
+
+    /**
+     * Queues a rebuild of the base trie on the background thread, unless one is
+     * already waiting there.
+     */
+    public synchronized void rebuild() {
+        if (enabled && !rebuildQueued) {
+            rebuildQueued = true;
+            background.execute(this::rebuildNow);
+        }
+    }
+
+    /**
+     * Rebuilds the base trie from the product and category tables with fresh
+     * popularity and drops the overlay entries it covers. Runs on the background
+     * thread only.
+     */
+    private void rebuildNow() {
+        long start = System.currentTimeMillis();
+        long startSequence;
+        synchronized (this) {
+            startSequence = changeSequence;
+            rebuildQueued = false;
+        }
+        try {
+            IntDoubleHashMap popularity = activityPartitions.productWeightsSince(
+                Instant.now().minus(Duration.ofDays(popularityDays)));
+            CompletionTrie.Builder builder = new CompletionTrie.Builder();
+            Map<Integer, String> text = new HashMap<>();
+            Map<String, Double> categoryWeights = new HashMap<>();
+            Page<Product> page;
+            int pageNo = 0;
+            do {
+                page = productRepository.findAll(PageRequest.of(pageNo++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                for (Product product : page) {
+                    if (addProduct(builder, text, product, popularity) && product.getCategory() != null) {
+                        categoryWeights.merge(normalize(product.getCategory()), popularity.get(product.getId(), 0),
+                            Double::sum);
+                    }
+                }
+            } while (page.hasNext());
+
+            int categoryId = -1;
+            for (Category category : categoryService.getAllActiveCategory()) {
+                String key = normalize(category.getName());
+                if (!key.isEmpty()) {
+                    float weight = 1 + (float) Math.log1p(categoryWeights.getOrDefault(key, 0.0));
+                    builder.add(key, categoryId, weight);
+                    text.put(categoryId--, category.getName());
+                }
+            }
+            CompletionTrie base = builder.build();
+
+            synchronized (this) {
+                pending.values().removeIf(change -> change.sequence() < startSequence);
+                snapshot = withOverlay(base, text, popularity, Instant.now());
+            }
+            log.info("Built search suggestions: {} entries, {} nodes, ~{} KB in {} ms", base.entryCount(),
+                base.nodeCount(), base.sizeInBytes() / 1024, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error building search suggestions, keeping the previous ones", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", current.base().entryCount());
+        stats.put("nodes", current.base().nodeCount());
+        stats.put("approxBytes", current.base().sizeInBytes());
+        stats.put("overlayProducts", current.overridden().size());
+        stats.put("builtAt", current.builtAt());
+        return stats;
+    }
+
+    private synchronized void change(Integer productId, Product product) {
+        pending.remove(productId);
+        pending.put(productId, new Change(product, ++changeSequence));
+        Snapshot current = snapshot;
+        snapshot = withOverlay(current.base(), current.baseText(), current.popularity(), current.builtAt());
+        if (pending.size() > maxOverlay) {
+            rebuild();
+        }
+    }
+
+    /**
+     * A snapshot of base plus an overlay built from the pending changes. Called
+     * while holding this.
+     */
+    private Snapshot withOverlay(CompletionTrie base, Map<Integer, String> baseText, IntDoubleHashMap popularity,
+            Instant builtAt) {
+        CompletionTrie.Builder builder = new CompletionTrie.Builder();
+        Map<Integer, String> text = new HashMap<>();
+        for (Change change : pending.values()) {
+            if (change.product() != null) {
+                addProduct(builder, text, change.product(), popularity);
+            }
+        }
+        return new Snapshot(base, baseText, popularity, builder.build(), text, new HashSet<>(pending.keySet()),
+            builtAt);
+    }
+
+    /**
+     * Adds the title keys of an active product; returns false for inactive ones.
+     */
+    private boolean addProduct(CompletionTrie.Builder builder, Map<Integer, String> text, Product product,
+            IntDoubleHashMap popularity) {
+        if (!Boolean.TRUE.equals(product.getIsActive()) || product.getTitle() == null) {
+            return false;
+        }
+        String[] words = normalize(product.getTitle()).split(" ");
+        float weight = (float) Math.log1p(popularity.get(product.getId(), 0));
+        for (int i = 0; i < Math.min(keyWords, words.length); i++) {
+            String key = String.join(" ", List.of(words).subList(i, words.length));
+            builder.add(key.length() > keyLength ? key.substring(0, keyLength) : key, product.getId(),
+                i == 0 ? weight : weight * LATER_WORD_FACTOR);
+        }
+        text.put(product.getId(), product.getTitle());
+        return true;
+    }
+
+    private static Map<String, Object> suggestion(int id, String text) {
+        Map<String, Object> suggestion = new HashMap<>();
+        suggestion.put("text", text);
+        suggestion.put("type", id < 0 ? "category" : "product");
+        if (id > 0) {
+            suggestion.put("productId", id);
+        }
+        return suggestion;
+    }
+
+    /**
+     * Lowercased words separated by single spaces.
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /**
+     * Like {@link #normalize}, but a trailing separator stays as one space, so
+     * "iphone " only completes keys where the word iphone is finished.
+     */
+    private static String normalizePrefix(String query) {
+        String prefix = normalize(query);
+        if (!prefix.isEmpty() && !Character.isLetterOrDigit(query.charAt(query.length() - 1))) {
+            prefix += " ";
+        }
+        return prefix;
+    }
+}
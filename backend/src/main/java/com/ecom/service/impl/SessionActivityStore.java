@@ -0,0 +1,126 @@
+package com.ecom.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import com.ecom.model.ActivityEvent;
+
+/**
+ * Last interactions of anonymous sessions, kept only in memory.
+ *
+ * Anonymous events cannot be stored in user_activity, so each HTTP session id maps
+ * to a small ring of its most recent events instead. Sessions idle for longer than
+ * {@code ttl-minutes} are dropped by {@link #evictExpired()}; when
+ * {@code max-sessions} is reached, events of new sessions are not recorded until
+ * expired sessions make room.
+ */
+@Component
+public class SessionActivityStore {
+
+    @Value("${recommendation.session.max-events:20}")
+    private int maxEvents;
+
+    @Value("${recommendation.session.max-sessions:100000}")
+    private int maxSessions;
+
+    @Value("${recommendation.session.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    private final Map<String, History> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private static final class History {
+
+        private final ActivityEvent[] events;
+        private int next;
+        private int size;
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        History(int capacity) {
+            this.events = new ActivityEvent[capacity];
+        }
+
+        synchronized void add(ActivityEvent event) {
+            events[next] = event;
+            next = (next + 1) % events.length;
+            size = Math.min(size + 1, events.length);
+            lastAccessMillis = System.currentTimeMillis();
+        }
+
+        synchronized List<ActivityEvent> snapshot() {
+            List<ActivityEvent> result = new ArrayList<>(size);
+            for (int i = size; i > 0; i--) {
+                result.add(events[(next - i + events.length) % events.length]);
+            }
+            return result;
+        }
+    }
+
+    public void record(ActivityEvent event) {
+        String sessionId = event.sessionId();
+        if (sessionId == null) {
+            return;
+        }
+        History history = sessions.get(sessionId);
+        if (history == null) {
+            if (sessions.size() >= maxSessions) {
+                evictExpired();
+                if (sessions.size() >= maxSessions) {
+                    rejected.incrementAndGet();
+                    return;
+                }
+            }
+            history = sessions.computeIfAbsent(sessionId, id -> new History(maxEvents));
+        }
+        history.add(event);
+    }
+
+    /**
+     * The session's events, oldest first; empty if unknown or expired.
+     */
+    public List<ActivityEvent> recent(String sessionId) {
+        History history = sessionId == null ? null : sessions.get(sessionId);
+        if (history == null || isExpired(history, System.currentTimeMillis())) {
+            return Collections.emptyList();
+        }
+        return history.snapshot();
+    }
+
+    /**
+     * Removes the session and returns its events, oldest first.
+     */
+    public List<ActivityEvent> remove(String sessionId) {
+        History history = sessionId == null ? null : sessions.remove(sessionId);
+        return history == null ? Collections.emptyList() : history.snapshot();
+    }
+
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        sessions.entrySet().removeIf(entry -> {
+            boolean stale = isExpired(entry.getValue(), now);
+            if (stale) {
+                expired.incrementAndGet();
+            }
+            return stale;
+        });
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("rejected", rejected.get());
+        stats.put("expired", expired.get());
+        return stats;
+    }
+
+    private boolean isExpired(History history, long now) {
+        return now - history.lastAccessMillis > ttlMinutes * 60_000;
+    }
+}
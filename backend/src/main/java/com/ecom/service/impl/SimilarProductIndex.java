@@ -0,0 +1,217 @@
+package com.ecom.service.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+import com.ecom.repository.ProductSimilarityRepository;
+import com.ecom.util.NeighborIndex;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory view of product_similarity and the product catalog for read paths.
+ *
+ * The neighbor index is rebuilt from the table after every published similarity
+ * generation and swapped in with a single volatile write, so readers always see
+ * one complete generation. Product rows are cached alongside it, loaded in full at
+ * startup and updated one product at a time when an admin changes a product, so
+ * similar-product lookups need no queries at all.
+ */
+@Slf4j
+@Component
+public class SimilarProductIndex {
+
+    @Autowired
+    private ProductSimilarityRepository similarityRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProductEmbeddingIndex embeddingIndex;
+
+    @Value("${recommendation.similarity.neighbors-per-product:20}")
+    private int neighborsPerProduct;
+
+    private volatile NeighborIndex index = NeighborIndex.EMPTY;
+    private volatile ProductCatalog catalog = new ProductCatalog(Map.of(), Map.of());
+
+    private record ProductCatalog(Map<Integer, Product> byId, Map<String, int[]> activeByCategory) {
+
+        Product active(int productId) {
+            Product product = byId.get(productId);
+            return product != null && Boolean.TRUE.equals(product.getIsActive()) ? product : null;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        reloadNeighbors();
+        reloadProducts();
+    }
+
+    public NeighborIndex neighbors() {
+        return index;
+    }
+
+    /**
+     * Cached product if it exists and is active, otherwise null.
+     */
+    public Product activeProduct(int productId) {
+        return catalog.active(productId);
+    }
+
+    /**
+     * Highest scoring active neighbors of productId. Products without any computed
+     * neighbors fall back to their nearest active products by text embedding, then to
+     * other active products of the same category.
+     */
+    public List<Product> getSimilarProducts(int productId, int limit) {
+        NeighborIndex neighbors = index;
+        ProductCatalog products = catalog;
+        List<Product> result = new ArrayList<>(Math.max(0, limit));
+
+        int start = neighbors.start(productId);
+        int end = neighbors.end(productId);
+        if (start < end) {
+            for (int pos = start; pos < end && result.size() < limit; pos++) {
+                Product product = products.active(neighbors.neighborAt(pos));
+                if (product != null) {
+                    result.add(product);
+                }
+            }
+            return result;
+        }
+
+        int[] nearest = embeddingIndex.nearest(productId, limit, id -> products.active(id) != null);
+        if (nearest.length > 0) {
+            for (int id : nearest) {
+                result.add(products.active(id));
+            }
+            return result;
+        }
+
+        Product product = products.byId().get(productId);
+        if (product == null || product.getCategory() == null) {
+            return Collections.emptyList();
+        }
+        int[] sameCategory = products.activeByCategory().getOrDefault(product.getCategory(), new int[0]);
+        for (int i = 0; i < sameCategory.length && result.size() < limit; i++) {
+            if (sameCategory[i] != productId) {
+                result.add(products.byId().get(sameCategory[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the neighbor index from product_similarity and swaps it in.
+     */
+    public void reloadNeighbors() {
+        long start = System.currentTimeMillis();
+        try {
+            NeighborIndex next = transactionTemplate.execute(status -> {
+                NeighborIndex.Builder builder = new NeighborIndex.Builder();
+                try (Stream<Object[]> rows = similarityRepository.streamAllScores()) {
+                    rows.forEach(row -> builder.add((Integer) row[0], (Integer) row[1], (Double) row[2]));
+                }
+                return builder.build(neighborsPerProduct);
+            });
+            index = next;
+            log.info("Loaded similarity neighbor index: {} products, {} neighbors in {} ms",
+                next.productCount(), next.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error loading similarity neighbor index, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * Reloads all cached product rows from the database.
+     */
+    public synchronized void reloadProducts() {
+        try {
+            List<Product> all = productRepository.findAll();
+            Map<Integer, Product> byId = new HashMap<>(all.size() * 2);
+            Map<String, List<Integer>> categoryIds = new HashMap<>();
+            for (Product product : all) {
+                byId.put(product.getId(), product);
+                if (Boolean.TRUE.equals(product.getIsActive()) && product.getCategory() != null) {
+                    categoryIds.computeIfAbsent(product.getCategory(), c -> new ArrayList<>()).add(product.getId());
+                }
+            }
+
+            Map<String, int[]> activeByCategory = new HashMap<>(categoryIds.size() * 2);
+            categoryIds.forEach((category, ids) -> {
+                int[] sorted = ids.stream().mapToInt(Integer::intValue).toArray();
+                Arrays.sort(sorted);
+                activeByCategory.put(category, sorted);
+            });
+            catalog = new ProductCatalog(byId, activeByCategory);
+        } catch (Exception e) {
+            log.error("Error loading product catalog, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * Replaces one cached product after an admin creates, edits or deletes it; product
+     * is null when it was deleted. Copies the catalog maps with only that product and
+     * its old and new category lists changed, then swaps the copy in.
+     */
+    public synchronized void refreshProduct(int productId, Product product) {
+        ProductCatalog current = catalog;
+        Map<Integer, Product> byId = new HashMap<>(current.byId());
+        Product previous = product == null ? byId.remove(productId) : byId.put(productId, product);
+
+        Map<String, int[]> activeByCategory = new HashMap<>(current.activeByCategory());
+        if (previous != null && previous.getCategory() != null) {
+            removeActive(activeByCategory, previous.getCategory(), productId);
+        }
+        if (product != null && Boolean.TRUE.equals(product.getIsActive()) && product.getCategory() != null) {
+            addActive(activeByCategory, product.getCategory(), productId);
+        }
+        catalog = new ProductCatalog(byId, activeByCategory);
+    }
+
+    private static void removeActive(Map<String, int[]> activeByCategory, String category, int productId) {
+        int[] ids = activeByCategory.get(category);
+        int pos = ids == null ? -1 : Arrays.binarySearch(ids, productId);
+        if (pos < 0) {
+            return;
+        }
+        if (ids.length == 1) {
+            activeByCategory.remove(category);
+            return;
+        }
+        int[] next = new int[ids.length - 1];
+        System.arraycopy(ids, 0, next, 0, pos);
+        System.arraycopy(ids, pos + 1, next, pos, ids.length - pos - 1);
+        activeByCategory.put(category, next);
+    }
+
+    private static void addActive(Map<String, int[]> activeByCategory, String category, int productId) {
+        int[] ids = activeByCategory.getOrDefault(category, new int[0]);
+        int pos = Arrays.binarySearch(ids, productId);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        int[] next = new int[ids.length + 1];
+        System.arraycopy(ids, 0, next, 0, insertAt);
+        next[insertAt] = productId;
+        System.arraycopy(ids, insertAt, next, insertAt + 1, ids.length - insertAt);
+        activeByCategory.put(category, next);
+    }
+}
@@ -0,0 +1,10 @@
+package com.ecom.service.impl;
+
+/**
+ * Receives computed product similarity rows from a similarity engine.
+ */
+@FunctionalInterface
+public interface SimilaritySink {
+
+    void accept(int productId, int similarProductId, double score, String basis);
+}
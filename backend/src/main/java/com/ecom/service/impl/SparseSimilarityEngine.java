@@ -0,0 +1,122 @@
+package com.ecom.service.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import com.ecom.model.Product;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.CoPurchaseMatrix;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Computes CATEGORY and CO_PURCHASE similarities from one streamed scan of
+ * PURCHASE activity instead of one query per product and purchaser.
+ * Produces the same scores as the legacy per-product loop in RecommendationService.
+ */
+@Slf4j
+@Component
+public class SparseSimilarityEngine {
+
+    static final double CATEGORY_SCORE = 0.7;
+    static final int CATEGORY_NEIGHBORS = 10;
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    /**
+     * Streams every purchase once and builds the sparse incidence matrix.
+     * Purchases after {@code recentSince} form the co-purchase window.
+     */
+    @Transactional(readOnly = true)
+    public CoPurchaseMatrix loadPurchaseMatrix(Instant recentSince) {
+        long start = System.currentTimeMillis();
+        CoPurchaseMatrix matrix = new CoPurchaseMatrix();
+
+        try (Stream<Object[]> rows = activityRepository.streamAllPurchases()) {
+            rows.forEach(row -> {
+                Integer userId = (Integer) row[0];
+                Integer productId = (Integer) row[1];
+                Instant timestamp = (Instant) row[2];
+                if (userId == null || productId == null) {
+                    return;
+                }
+                matrix.addPurchase(userId, productId, timestamp != null && timestamp.isAfter(recentSince));
+            });
+        }
+
+        matrix.freeze();
+        log.info("Loaded purchase matrix: {} rows, {} users, {} products in {} ms",
+            matrix.purchaseRows(), matrix.userCount(), matrix.productCount(),
+            System.currentTimeMillis() - start);
+        return matrix;
+    }
+
+    /**
+     * Emits similarities for every active product. Category neighbors come from
+     * the in-memory product list, co-purchase neighbors from the matrix.
+     *
+     * @return number of similarity rows emitted
+     */
+    public long computeSimilarities(CoPurchaseMatrix matrix, List<Product> activeProducts, SimilaritySink sink) {
+        long[] emitted = { emitCategorySimilarities(activeProducts, sink) };
+        int processedCount = 0;
+
+        for (Product product : activeProducts) {
+            int productId = product.getId();
+
+            matrix.forEachCoPurchase(productId, (coProductId, count, purchasers) -> {
+                if (count > 1) {
+                    double score = Math.min(1.0, (double) count / purchasers * 2);
+                    sink.accept(productId, coProductId, score, "CO_PURCHASE");
+                    emitted[0]++;
+                }
+            });
+
+            processedCount++;
+            if (processedCount % 1000 == 0) {
+                log.info("Processed {} products", processedCount);
+            }
+        }
+        return emitted[0];
+    }
+
+    /**
+     * Emits up to {@link #CATEGORY_NEIGHBORS} same-category neighbors per active product.
+     *
+     * @return number of similarity rows emitted
+     */
+    public long emitCategorySimilarities(List<Product> activeProducts, SimilaritySink sink) {
+        Map<String, List<Integer>> productsByCategory = new LinkedHashMap<>();
+        for (Product product : activeProducts) {
+            if (product.getCategory() != null) {
+                productsByCategory.computeIfAbsent(product.getCategory(), c -> new ArrayList<>()).add(product.getId());
+            }
+        }
+
+        long emitted = 0;
+        for (Product product : activeProducts) {
+            int productId = product.getId();
+            List<Integer> sameCategory = product.getCategory() == null
+                ? List.of()
+                : productsByCategory.get(product.getCategory());
+            int categoryNeighbors = 0;
+            for (Integer similarId : sameCategory) {
+                if (categoryNeighbors == CATEGORY_NEIGHBORS) {
+                    break;
+                }
+                if (similarId != productId) {
+                    sink.accept(productId, similarId, CATEGORY_SCORE, "CATEGORY");
+                    categoryNeighbors++;
+                    emitted++;
+                }
+            }
+        }
+        return emitted;
+    }
+}
@@ -0,0 +1,620 @@
+package com.ecom.service.impl;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import com.ecom.util.OrderStatus;
+import com.ecom.util.ZipfSampler;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fills the database with synthetic categories, products, users, activity, orders
+ * and carts at production scale. Runs once on startup with the {@code datagen}
+ * profile, appending after the existing rows, and then exits (status 1 if generation failed).
+ *
+ * Activity is generated as browsing sessions. Users are picked from a Zipf
+ * distribution, so a few users produce most events. Each user has a home category
+ * that most of their products come from, and product popularity is Zipf as well.
+ * Every purchase becomes an order with its own address. A recent session that added
+ * to cart but did not buy leaves a cart behind, at most once per user: each user's
+ * cart can only come from one chunk, picked from the user id.
+ *
+ * Rows go through {@link BulkRowWriter}, either as tab-separated files for LOAD DATA
+ * / CSVREAD ({@code loader=file}) or as multi-row INSERTs ({@code loader=insert}).
+ * Events are split into chunks of {@code chunk-size}, each generated and loaded on
+ * its own connection by a pool of {@code threads} workers. Every chunk owns its
+ * own range of order, address and cart ids, {@code chunk-size} wide, so ids leave
+ * gaps between chunks but do not depend on which worker runs first. Output is
+ * deterministic for a given seed and chunk size, whatever the thread count.
+ */
+@Slf4j
+@Component
+@Profile("datagen")
+public class SyntheticDataGenerator implements ApplicationRunner {
+
+    private static final String[][] CATEGORY_NOUNS = {
+        { "Electronics", "Headphones", "Speaker", "Charger", "Smartwatch", "Power Bank" },
+        { "Mobiles", "Smartphone", "Phone Case", "Screen Guard", "Earbuds", "Cable" },
+        { "Laptops", "Laptop", "Notebook", "Keyboard", "Mouse", "Laptop Bag" },
+        { "Fashion", "Shirt", "Jeans", "Jacket", "Kurti", "Dress" },
+        { "Footwear", "Sneakers", "Sandals", "Boots", "Loafers", "Slippers" },
+        { "Home", "Bedsheet", "Curtain", "Cushion", "Lamp", "Wall Clock" },
+        { "Kitchen", "Mixer Grinder", "Cookware Set", "Kettle", "Pressure Cooker", "Water Bottle" },
+        { "Appliances", "Refrigerator", "Washing Machine", "Microwave", "Air Purifier", "Fan" },
+        { "Beauty", "Face Wash", "Moisturizer", "Lipstick", "Perfume", "Hair Dryer" },
+        { "Sports", "Yoga Mat", "Dumbbell", "Cricket Bat", "Football", "Cycle" },
+        { "Books", "Novel", "Cookbook", "Biography", "Comic", "Textbook" },
+        { "Toys", "Puzzle", "Action Figure", "Board Game", "Doll", "Building Blocks" },
+        { "Grocery", "Basmati Rice", "Green Tea", "Olive Oil", "Dry Fruits", "Coffee" },
+        { "Furniture", "Office Chair", "Study Table", "Bookshelf", "Sofa", "Bean Bag" },
+        { "Watches", "Analog Watch", "Digital Watch", "Chronograph", "Fitness Band", "Watch Strap" },
+        { "Bags", "Backpack", "Handbag", "Wallet", "Suitcase", "Duffel Bag" },
+        { "Health", "Protein Powder", "Multivitamin", "Thermometer", "BP Monitor", "Massager" },
+        { "Automotive", "Car Charger", "Helmet", "Car Cover", "Tyre Inflator", "Dash Cam" },
+        { "Stationery", "Pen Set", "Diary", "Sketchbook", "Calculator", "Desk Organizer" },
+        { "Pet Supplies", "Dog Food", "Cat Litter", "Pet Bed", "Leash", "Chew Toy" },
+    };
+    private static final String[] BRANDS = { "Zenlo", "Aurora", "Kraftix", "Nova", "Urbane", "Veda", "Pixelon",
+        "Trailhead", "Maple", "Solace", "Quantix", "Riva", "Everest", "Lumio", "Orbit", "Kaveri", "Halo", "Strive" };
+    private static final String[] ADJECTIVES = { "Classic", "Premium", "Compact", "Wireless", "Ultra", "Smart",
+        "Eco", "Pro", "Lite", "Deluxe", "Portable", "Vintage", "Slim", "Rugged", "Elegant", "Essential" };
+    private static final String[] FEATURES = { "a 1 year warranty", "fast delivery", "durable build",
+        "premium finish", "easy returns", "ergonomic design", "long battery life", "water resistance",
+        "a lightweight body", "eco-friendly packaging" };
+    private static final String[] FIRST_NAMES = { "Aarav", "Vivaan", "Aditya", "Arjun", "Sai", "Ishaan", "Rohan",
+        "Kabir", "Ananya", "Diya", "Saanvi", "Aadhya", "Meera", "Priya", "Kavya", "Riya", "Neha", "Rahul",
+        "Vikram", "Sneha", "Pooja", "Karan", "Nikhil", "Tanvi", "Aisha", "Farhan", "Zoya", "Dev", "Ira", "Anirudh" };
+    private static final String[] LAST_NAMES = { "Sharma", "Verma", "Iyer", "Reddy", "Nair", "Patel", "Gupta",
+        "Singh", "Kumar", "Das", "Menon", "Rao", "Joshi", "Kapoor", "Mehta", "Chopra", "Bose", "Pillai",
+        "Khan", "Shetty" };
+    private static final String[][] CITIES = { { "Bengaluru", "Karnataka" }, { "Mumbai", "Maharashtra" },
+        { "Pune", "Maharashtra" }, { "Chennai", "Tamil Nadu" }, { "Hyderabad", "Telangana" },
+        { "Delhi", "Delhi" }, { "Kolkata", "West Bengal" }, { "Ahmedabad", "Gujarat" }, { "Jaipur", "Rajasthan" },
+        { "Kochi", "Kerala" }, { "Lucknow", "Uttar Pradesh" }, { "Indore", "Madhya Pradesh" } };
+    private static final String[] STREETS = { "MG Road", "Park Street", "Station Road", "Lake View", "Church Street",
+        "Residency Road", "Ring Road", "Temple Street", "Market Road", "Hill View" };
+
+    private static final String[] ACTIONS = { "VIEW", "CLICK", "ADD_TO_CART", "PURCHASE" };
+    private static final double[] ACTION_SCORES = { 1.0, 2.0, 5.0, 10.0 };
+    // cumulative action mix: 70% views, 15% clicks, 10% add to cart, 5% purchases
+    private static final double[] ACTION_MIX = { 0.70, 0.85, 0.95, 1.0 };
+    private static final int USER_CHUNK = 200_000;
+    private static final long CART_WINDOW_MILLIS = Duration.ofDays(3).toMillis();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ActivityPartitionManager activityPartitions;
+
+    @Value("${datagen.users:100000}")
+    private int userCount;
+
+    @Value("${datagen.products:10000}")
+    private int productCount;
+
+    @Value("${datagen.categories:20}")
+    private int categoryCount;
+
+    @Value("${datagen.activities:10000000}")
+    private long activityCount;
+
+    @Value("${datagen.days:90}")
+    private int days;
+
+    @Value("${datagen.user-skew:0.8}")
+    private double userSkew;
+
+    @Value("${datagen.product-skew:1.0}")
+    private double productSkew;
+
+    // share of events in the user's home category
+    @Value("${datagen.home-category-share:0.7}")
+    private double homeCategoryShare;
+
+    // file = tab-separated files + LOAD DATA / CSVREAD, insert = multi-row INSERT
+    @Value("${datagen.loader:file}")
+    private String loader;
+
+    @Value("${datagen.dir:./data/datagen}")
+    private String directory;
+
+    @Value("${datagen.chunk-size:2000000}")
+    private int chunkSize;
+
+    @Value("${datagen.threads:4}")
+    private int configuredThreads;
+
+    @Value("${datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${datagen.seed:42}")
+    private long seed;
+
+    // login password of every generated user
+    @Value("${datagen.password:password}")
+    private String password;
+
+    @Value("${datagen.exit-when-done:true}")
+    private boolean exitWhenDone;
+
+    private boolean mysql;
+    private long now;
+    private String passwordHash;
+
+    // generated rows start after the existing ids
+    private long categoryBase;
+    private long productBase;
+    private long userBase;
+    private long orderBase;
+    private long addressBase;
+    private long cartBase;
+
+    private ZipfSampler userRanks;
+    private ZipfSampler productRanks;
+    private ZipfSampler categoryRanks;
+    private int[] productCategory;
+    private int[][] productsByCategory;
+    private ZipfSampler[] categoryProductRanks;
+    private double[] unitPrices;
+    private long userStride;
+    private long productStride;
+    private int activityChunks;
+
+    private final AtomicLong orderRows = new AtomicLong();
+    private final AtomicLong cartRows = new AtomicLong();
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        long start = System.currentTimeMillis();
+        int exitCode = 0;
+        try {
+            prepare();
+            int threads = workerThreads();
+            log.info("Generating {} categories, {} products, {} users and {} activities on {} threads ({} loader)",
+                categoryCount, productCount, userCount, activityCount, threads, loader);
+
+            List<Runnable> catalog = new ArrayList<>();
+            catalog.add(() -> onConnection(this::writeCategories));
+            catalog.add(() -> onConnection(this::writeProducts));
+            for (long from = 0; from < userCount; from += USER_CHUNK) {
+                long first = from;
+                catalog.add(() -> onConnection(connection -> writeUsers(connection, first,
+                    Math.min(userCount, first + USER_CHUNK))));
+            }
+            runAll(catalog, threads);
+
+            List<Runnable> activity = new ArrayList<>();
+            int chunks = activityChunks;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int index = chunk;
+                long events = Math.min(chunkSize, activityCount - (long) chunk * chunkSize);
+                activity.add(() -> onConnection(connection -> writeActivityChunk(connection, index, chunks, events)));
+            }
+            runAll(activity, threads);
+            if (!mysql) {
+                restartIdentities();
+            }
+            // the history lands in days that may already count as rolled up
+            activityPartitions.noteInserted(Instant.ofEpochMilli(now - Duration.ofDays(days).toMillis()));
+
+            double seconds = Math.max(0.001, (System.currentTimeMillis() - start) / 1000.0);
+            log.info("Synthetic data done in {} s: {} activities ({} rows/sec), {} orders, {} carts",
+                Math.round(seconds), activityCount, Math.round(activityCount / seconds),
+                orderRows.get(), cartRows.get());
+        } catch (Exception e) {
+            log.error("Error generating synthetic data", e);
+            exitCode = 1;
+        }
+        if (exitWhenDone) {
+            // non-zero on failure so scripts can tell a failed load from a finished one
+            int status = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> status));
+        }
+    }
+
+    private void prepare() throws Exception {
+        mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) c ->
+            c.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql"));
+        now = System.currentTimeMillis();
+        passwordHash = passwordEncoder.encode(password);
+        if ("file".equals(loader)) {
+            Files.createDirectories(Paths.get(directory));
+        }
+
+        categoryBase = baseOf("category");
+        productBase = baseOf("product");
+        userBase = baseOf("user_dtls");
+        orderBase = baseOf("product_order");
+        addressBase = baseOf("order_address");
+        cartBase = baseOf("cart");
+        activityChunks = (int) ((activityCount + chunkSize - 1) / chunkSize);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        userStride = strideFor(userCount);
+        productStride = strideFor(productCount);
+        userRanks = new ZipfSampler(userCount, userSkew);
+        productRanks = new ZipfSampler(productCount, productSkew);
+        categoryRanks = new ZipfSampler(categoryCount, 1.0);
+
+        // product index by popularity rank, scattered so popular products are not all low ids
+        productCategory = new int[productCount];
+        unitPrices = new double[productCount];
+        int[] categorySizes = new int[categoryCount];
+        for (int i = 0; i < productCount; i++) {
+            productCategory[i] = categoryRanks.sample(random);
+            categorySizes[productCategory[i]]++;
+        }
+        productsByCategory = new int[categoryCount][];
+        categoryProductRanks = new ZipfSampler[categoryCount];
+        for (int c = 0; c < categoryCount; c++) {
+            productsByCategory[c] = new int[categorySizes[c]];
+            categoryProductRanks[c] = categorySizes[c] == 0 ? null : new ZipfSampler(categorySizes[c], productSkew);
+            categorySizes[c] = 0;
+        }
+        for (int rank = 0; rank < productCount; rank++) {
+            int product = scatter(rank, productStride, productCount);
+            int category = productCategory[product];
+            productsByCategory[category][categorySizes[category]++] = product;
+        }
+    }
+
+    private void writeCategories(Connection connection) {
+        try (BulkRowWriter rows = writer(connection, "categories", "category",
+                "id", "name", "image_name", "is_active")) {
+            for (int c = 0; c < categoryCount; c++) {
+                rows.add(categoryBase + c + 1).add(categoryName(c)).add("default.jpg").add(true).endRow();
+            }
+        }
+    }
+
+    private void writeProducts(Connection connection) {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        try (BulkRowWriter rows = writer(connection, "products", "product", "id", "title", "description",
+                "category", "price", "stock", "image", "discount", "discount_price", "is_active")) {
+            for (int i = 0; i < productCount; i++) {
+                int category = productCategory[i];
+                String[] nouns = CATEGORY_NOUNS[category % CATEGORY_NOUNS.length];
+                String noun = nouns[1 + random.nextInt(nouns.length - 1)];
+                String brand = BRANDS[random.nextInt(BRANDS.length)];
+                String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+                // log-normal prices around 1500, whole rupees
+                double price = Math.round(Math.min(200_000, Math.max(99, Math.exp(Math.log(1500) + random.nextGaussian()))));
+                int discount = random.nextDouble() < 0.6 ? 0 : 5 * (1 + random.nextInt(14));
+                double discountPrice = price - price * (discount / 100.0);
+                unitPrices[i] = discountPrice;
+
+                rows.add(productBase + i + 1)
+                    .add(brand + " " + adjective + " " + noun + " " + (100 + random.nextInt(900)))
+                    .add(adjective + " " + noun.toLowerCase() + " by " + brand + " with "
+                        + FEATURES[random.nextInt(FEATURES.length)] + " and " + FEATURES[random.nextInt(FEATURES.length)] + ".")
+                    .add(categoryName(category))
+                    .add(price)
+                    .add(random.nextDouble() < 0.08 ? 0 : 1 + random.nextInt(500))
+                    .add("default.jpg")
+                    .add(discount)
+                    .add(discountPrice)
+                    .add(random.nextDouble() < 0.97)
+                    .endRow();
+            }
+        }
+    }
+
+    private void writeUsers(Connection connection, long from, long to) {
+        SplittableRandom random = new SplittableRandom(seed + 2 + from);
+        try (BulkRowWriter rows = writer(connection, "users-" + from, "user_dtls", "id", "name", "mobile_number",
+                "email", "address", "city", "state", "pincode", "password", "profile_image", "role", "is_enable",
+                "account_non_locked", "failed_attempt")) {
+            for (long i = from; i < to; i++) {
+                long userId = userBase + i + 1;
+                String[] city = cityOf(userId);
+                rows.add(userId)
+                    .add(nameOf(userId))
+                    .add(mobileOf(userId))
+                    .add(emailOf(userId))
+                    .add((1 + random.nextInt(400)) + ", " + STREETS[random.nextInt(STREETS.length)])
+                    .add(city[0])
+                    .add(city[1])
+                    .add(Integer.toString(400_000 + random.nextInt(300_000)))
+                    .add(passwordHash)
+                    .add("default.jpg")
+                    .add("ROLE_USER")
+                    .add(true)
+                    .add(true)
+                    .add(0)
+                    .endRow();
+            }
+        }
+    }
+
+    /**
+     * One chunk of activity as whole sessions, with the orders and carts they produce.
+     * A chunk writes at most one order, one address and one cart row per event, so
+     * {@code chunk * chunk-size} past each table's base starts a range no other chunk
+     * touches.
+     * Addresses reach the database before the orders that reference them: writers
+     * close in reverse order, and with one row each per purchase and the same batch
+     * capacity, the address batch always fills first.
+     */
+    private void writeActivityChunk(Connection connection, int chunk, int chunks, long events) {
+        long start = System.currentTimeMillis();
+        SplittableRandom random = new SplittableRandom(mix(seed + 3 + chunk));
+        long spanMillis = Duration.ofDays(days).toMillis();
+        int[] sessionProducts = new int[64];
+        long idOffset = (long) chunk * chunkSize;
+        long orderCount = 0;
+        long cartCount = 0;
+        BitSet usersWithCart = new BitSet();
+
+        try (BulkRowWriter activity = writer(connection, "activity-" + chunk, "user_activity",
+                "user_id", "product_id", "action", "timestamp", "session_id", "score");
+            BulkRowWriter orders = writer(connection, "orders-" + chunk, "product_order", "id", "order_id",
+                "order_date", "product_id", "price", "quantity", "user_id", "status", "payment_type", "order_address_id");
+            BulkRowWriter addresses = writer(connection, "addresses-" + chunk, "order_address", "id", "first_name",
+                "last_name", "email", "mobile_no", "address", "city", "state", "pincode");
+            BulkRowWriter carts = writer(connection, "carts-" + chunk, "cart", "id", "user_id", "product_id", "quantity")) {
+
+            long written = 0;
+            long session = 0;
+            while (written < events) {
+                int userIndex = scatter(userRanks.sample(random), userStride, userCount);
+                long userId = userBase + userIndex + 1;
+                int home = categoryRanks.sample(unit(seed ^ userId));
+                String sessionId = "gen-" + chunk + "-" + Long.toString(session++, 36);
+                long time = now - spanMillis + random.nextLong(spanMillis);
+                boolean purchased = false;
+                int carted = 0;
+
+                do {
+                    int product = nextProduct(home, random);
+                    int action = actionOf(random.nextDouble());
+                    activity.add(userId).add(productBase + product + 1).add(ACTIONS[action]).addTimestamp(time)
+                        .add(sessionId).add(ACTION_SCORES[action]).endRow();
+                    written++;
+
+                    if (action == 3) {
+                        purchased = true;
+                        orderCount++;
+                        writeOrder(addresses, orders, idOffset + orderCount, userId, product, time, random);
+                    } else if (action == 2 && carted < sessionProducts.length) {
+                        sessionProducts[carted++] = product;
+                    }
+                    time += 15_000 + random.nextLong(165_000);
+                } while (written < events && time < now && random.nextDouble() < 0.85);
+
+                if (!purchased && carted > 0 && time > now - CART_WINDOW_MILLIS
+                        && cartChunkOf(userId) == chunk && !usersWithCart.get(userIndex)) {
+                    usersWithCart.set(userIndex);
+                    for (int i = 0; i < carted; i++) {
+                        cartCount++;
+                        carts.add(cartBase + idOffset + cartCount).add(userId).add(productBase + sessionProducts[i] + 1)
+                            .add(1).endRow();
+                    }
+                }
+            }
+            orderRows.addAndGet(orderCount);
+            cartRows.addAndGet(cartCount);
+            log.info("Generated activity chunk {}/{}: {} events, {} orders, {} cart rows in {} ms",
+                chunk + 1, chunks, activity.rows(), orders.rows(), carts.rows(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private void writeOrder(BulkRowWriter addresses, BulkRowWriter orders, long sequence, long userId, int product,
+            long time, SplittableRandom random) {
+        long addressId = addressBase + sequence;
+        String[] name = nameOf(userId).split(" ");
+        String[] city = cityOf(userId);
+        addresses.add(addressId).add(name[0]).add(name[1]).add(emailOf(userId)).add(mobileOf(userId))
+            .add((1 + random.nextInt(400)) + ", " + STREETS[random.nextInt(STREETS.length)])
+            .add(city[0]).add(city[1]).add(Integer.toString(400_000 + random.nextInt(300_000)))
+            .endRow();
+
+        long ageDays = (now - time) / 86_400_000L;
+        String status;
+        if (ageDays > 14) {
+            status = random.nextDouble() < 0.9 ? OrderStatus.DELIVERED.getName() : OrderStatus.CANCEL.getName();
+        } else {
+            status = OrderStatus.values()[random.nextInt(4)].getName();
+        }
+        double quantityDraw = random.nextDouble();
+        orders.add(orderBase + sequence)
+            .add(new UUID(random.nextLong(), random.nextLong()).toString())
+            .add(LocalDate.ofEpochDay(Math.floorDiv(time, 86_400_000L)))
+            .add(productBase + product + 1)
+            .add(unitPrices[product])
+            .add(quantityDraw < 0.8 ? 1 : quantityDraw < 0.95 ? 2 : 3)
+            .add(userId)
+            .add(status)
+            .add(random.nextBoolean() ? "COD" : "ONLINE")
+            .add(addressId)
+            .endRow();
+    }
+
+    private int nextProduct(int home, SplittableRandom random) {
+        ZipfSampler inCategory = categoryProductRanks[home];
+        if (inCategory != null && random.nextDouble() < homeCategoryShare) {
+            return productsByCategory[home][inCategory.sample(random)];
+        }
+        return scatter(productRanks.sample(random), productStride, productCount);
+    }
+
+    /**
+     * The one chunk whose sessions may leave this user's cart, so no two workers race
+     * for the same user.
+     */
+    private int cartChunkOf(long userId) {
+        return (int) Long.remainderUnsigned(mix(seed * 17 + userId), activityChunks);
+    }
+
+    private BulkRowWriter writer(Connection connection, String name, String table, String... columns) {
+        if ("insert".equals(loader)) {
+            return BulkRowWriter.insert(connection, mysql, batchSize, table, columns);
+        }
+        return BulkRowWriter.file(connection, mysql, Paths.get(directory, name + ".tsv"), table, columns);
+    }
+
+    private interface ConnectionWork {
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Runs work on one pooled connection with MySQL's per-row unique and foreign key
+     * checks off, the usual setting for bulk loads into tables we fill consistently.
+     */
+    private void onConnection(ConnectionWork work) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            if (mysql) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET unique_checks = 0, foreign_key_checks = 0");
+                }
+            }
+            try {
+                work.run(connection);
+            } finally {
+                if (mysql) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SET unique_checks = 1, foreign_key_checks = 1");
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void runAll(List<Runnable> tasks, int threads) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("datagen-"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(workers.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private int workerThreads() {
+        int threads = Math.max(1, configuredThreads);
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                threads = Math.min(threads, dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize());
+            }
+        } catch (SQLException e) {
+            log.warn("Could not read the connection pool size", e);
+        }
+        return threads;
+    }
+
+    /**
+     * H2 does not move an identity column past explicitly inserted ids; MySQL's
+     * AUTO_INCREMENT does that by itself.
+     */
+    private void restartIdentities() {
+        for (String table : List.of("category", "product", "user_dtls", "product_order", "order_address", "cart")) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (baseOf(table) + 1));
+        }
+    }
+
+    private long baseOf(String table) {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private String categoryName(int category) {
+        String name = CATEGORY_NOUNS[category % CATEGORY_NOUNS.length][0];
+        return category < CATEGORY_NOUNS.length ? name : name + " " + (category / CATEGORY_NOUNS.length + 1);
+    }
+
+    private static int actionOf(double draw) {
+        int action = 0;
+        while (draw >= ACTION_MIX[action]) {
+            action++;
+        }
+        return action;
+    }
+
+    private String nameOf(long userId) {
+        long hash = mix(seed + userId);
+        return FIRST_NAMES[(int) Long.remainderUnsigned(hash, FIRST_NAMES.length)] + " "
+            + LAST_NAMES[(int) Long.remainderUnsigned(hash >>> 20, LAST_NAMES.length)];
+    }
+
+    private String emailOf(long userId) {
+        return nameOf(userId).toLowerCase().replace(' ', '.') + userId + "@example.com";
+    }
+
+    private String mobileOf(long userId) {
+        return Long.toString(9_000_000_000L + Long.remainderUnsigned(mix(seed - userId), 1_000_000_000L));
+    }
+
+    private String[] cityOf(long userId) {
+        return CITIES[(int) Long.remainderUnsigned(mix(seed * 31 + userId), CITIES.length)];
+    }
+
+    /**
+     * Bijection of [0, n) that spreads consecutive ranks over the whole range, given
+     * a stride from {@link #strideFor}.
+     */
+    private static int scatter(int rank, long stride, int n) {
+        return (int) ((rank * stride) % n);
+    }
+
+    private static long strideFor(int n) {
+        long stride = 1_000_003L;
+        while (BigInteger.valueOf(stride).gcd(BigInteger.valueOf(n)).intValue() != 1) {
+            stride++;
+        }
+        return stride;
+    }
+
+    private static double unit(long key) {
+        return (mix(key) >>> 11) * 0x1.0p-53;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,183 @@
+package com.ecom.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ecom.model.Product;
+import com.ecom.repository.ProductRepository;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.SlidingWindowCounter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory trending products.
+ *
+ * Purchases are counted per product in a sliding window of time buckets as they are
+ * logged; user_activity is read once at startup to rebuild the window. Reads are
+ * served from an immutable ranked snapshot that is recomputed at most every
+ * {@code refresh-ms}, and product rows are only reloaded when the ranking changes
+ * or a product is edited.
+ */
+@Slf4j
+@Component
+public class TrendingProductTracker {
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${recommendation.trending.window-hours:168}")
+    private long windowHours;
+
+    @Value("${recommendation.trending.bucket-minutes:60}")
+    private long bucketMinutes;
+
+    @Value("${recommendation.trending.refresh-ms:5000}")
+    private long refreshMs;
+
+    // products kept in the snapshot; larger limits get at most this many
+    @Value("${recommendation.trending.max-size:100}")
+    private int maxSize;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private SlidingWindowCounter counter;
+    private Instant liveSince;
+    private volatile Snapshot snapshot;
+    private volatile boolean productsStale;
+
+    private record Snapshot(int[] productIds, List<Product> products, long builtAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        counter = new SlidingWindowCounter(Duration.ofHours(windowHours), Duration.ofMinutes(bucketMinutes));
+        // purchases logged from here on are counted live; the rebuild covers everything before
+        liveSince = Instant.now();
+        rebuild();
+    }
+
+    public void recordPurchase(int productId, Instant timestamp) {
+        synchronized (counter) {
+            counter.add(productId, timestamp.toEpochMilli());
+        }
+    }
+
+    /**
+     * Marks cached product rows as outdated, e.g. after an admin edit or delete.
+     */
+    public void invalidate() {
+        productsStale = true;
+    }
+
+    public List<Product> getTrendingProducts(int limit) {
+        Snapshot current = snapshot;
+        if (current == null || System.currentTimeMillis() - current.builtAt() >= refreshMs || productsStale) {
+            current = refresh();
+        }
+        List<Product> products = current.products();
+        return products.subList(0, Math.min(limit, products.size()));
+    }
+
+    private Snapshot refresh() {
+        Snapshot seen = snapshot;
+        // one thread rebuilds; the others keep serving the previous snapshot
+        if (seen != null && !refreshLock.tryLock()) {
+            return seen;
+        }
+        if (seen == null) {
+            refreshLock.lock();
+        }
+        try {
+            Snapshot previous = snapshot;
+            if (previous != seen) {
+                // another thread refreshed while this one waited
+                return previous;
+            }
+
+            int[] productIds;
+            synchronized (counter) {
+                counter.advanceTo(System.currentTimeMillis());
+                // twice the size so inactive products can be skipped
+                productIds = counter.top(maxSize * 2);
+            }
+
+            boolean reload = productsStale;
+            productsStale = false;
+            List<Product> products;
+            if (previous != null && !reload && Arrays.equals(previous.productIds(), productIds)) {
+                products = previous.products();
+            } else {
+                products = loadProducts(productIds);
+            }
+
+            Snapshot next = new Snapshot(productIds, products, System.currentTimeMillis());
+            snapshot = next;
+            return next;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private List<Product> loadProducts(int[] productIds) {
+        if (productIds.length == 0) {
+            return Collections.unmodifiableList(new ArrayList<>(
+                productRepository.findByIsActiveTrue(PageRequest.of(0, maxSize)).getContent()));
+        }
+
+        List<Integer> ids = Arrays.stream(productIds).boxed().collect(Collectors.toList());
+        Map<Integer, Product> byId = productRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        // keep ranking order; findAllById returns rows in table order
+        List<Product> products = new ArrayList<>(maxSize);
+        for (int productId : productIds) {
+            Product product = byId.get(productId);
+            if (product != null && Boolean.TRUE.equals(product.getIsActive())) {
+                products.add(product);
+                if (products.size() == maxSize) {
+                    break;
+                }
+            }
+        }
+        return Collections.unmodifiableList(products);
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        Instant since = liveSince.minus(Duration.ofHours(windowHours));
+        try {
+            long rows = transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Stream<Object[]> purchases = activityRepository.streamPurchasesBetween(since, liveSince)) {
+                    for (Object[] row : (Iterable<Object[]>) purchases::iterator) {
+                        recordPurchase((Integer) row[0], (Instant) row[1]);
+                        count++;
+                    }
+                }
+                return count;
+            });
+            log.info("Trending counters rebuilt from {} purchases in {} ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Error rebuilding trending counters, starting empty", e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+
+/**
+ * In-memory user x product purchase incidence built from a single scan of
+ * PURCHASE activity. Keeps two sparse views over the same dense indexes:
+ * <ul>
+ * <li>product -&gt; distinct purchasers (all time)</li>
+ * <li>user -&gt; purchased products inside the recent window (one entry per purchase row)</li>
+ * </ul>
+ * which is exactly what the co-purchase score needs, without a query per purchaser.
+ */
+public final class CoPurchaseMatrix {
+
+    private final IntIntHashMap userIndex = new IntIntHashMap(1 << 12);
+    private final IntIntHashMap productIndex = new IntIntHashMap(1 << 10);
+    private int[] productIds = new int[1 << 10];
+
+    private SparseIncidenceMatrix.Builder purchasersBuilder = new SparseIncidenceMatrix.Builder();
+    private SparseIncidenceMatrix.Builder recentBuilder = new SparseIncidenceMatrix.Builder();
+
+    private SparseIncidenceMatrix purchasersByProduct;
+    private SparseIncidenceMatrix recentByUser;
+    private long purchaseRows;
+
+    // sparse accumulator reused across queries, reset through the touched list
+    private int[] counts;
+    private int[] touched;
+
+    public void addPurchase(int userId, int productId, boolean recent) {
+        if (purchasersByProduct != null) {
+            throw new IllegalStateException("Matrix is already frozen");
+        }
+        int user = userIndex.putIfAbsent(userId, userIndex.size());
+        int product = productIndex.get(productId, -1);
+        if (product < 0) {
+            product = productIndex.size();
+            productIndex.put(productId, product);
+            if (product == productIds.length) {
+                productIds = Arrays.copyOf(productIds, product << 1);
+            }
+            productIds[product] = productId;
+        }
+        purchasersBuilder.add(product, user);
+        if (recent) {
+            recentBuilder.add(user, product);
+        }
+        purchaseRows++;
+    }
+
+    /**
+     * Compresses the collected entries; no purchases may be added afterwards.
+     */
+    public CoPurchaseMatrix freeze() {
+        purchasersByProduct = purchasersBuilder.build(productIndex.size(), true);
+        recentByUser = recentBuilder.build(userIndex.size(), false);
+        counts = new int[productIndex.size()];
+        touched = new int[16];
+        purchasersBuilder = null;
+        recentBuilder = null;
+        return this;
+    }
+
+    public int userCount() {
+        return userIndex.size();
+    }
+
+    public int productCount() {
+        return productIndex.size();
+    }
+
+    public long purchaseRows() {
+        return purchaseRows;
+    }
+
+    /**
+     * Counts, for every product bought in the recent window by someone who ever
+     * bought {@code productId}, how many such purchase rows exist. Not thread-safe:
+     * the accumulator is shared between calls.
+     *
+     * @return number of distinct purchasers of productId (0 if never purchased)
+     */
+    public int forEachCoPurchase(int productId, CoPurchaseVisitor visitor) {
+        if (purchasersByProduct == null) {
+            throw new IllegalStateException("Matrix must be frozen before it is queried");
+        }
+        int product = productIndex.get(productId, -1);
+        if (product < 0) {
+            return 0;
+        }
+
+        int purchasers = purchasersByProduct.rowLength(product);
+        int touchedCount = 0;
+
+        for (int i = purchasersByProduct.rowStart(product); i < purchasersByProduct.rowEnd(product); i++) {
+            int user = purchasersByProduct.column(i);
+            for (int j = recentByUser.rowStart(user); j < recentByUser.rowEnd(user); j++) {
+                int other = recentByUser.column(j);
+                if (other == product) {
+                    continue;
+                }
+                if (counts[other]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount << 1);
+                    }
+                    touched[touchedCount++] = other;
+                }
+            }
+        }
+
+        for (int t = 0; t < touchedCount; t++) {
+            int other = touched[t];
+            int count = counts[other];
+            counts[other] = 0;
+            visitor.visit(productIds[other], count, purchasers);
+        }
+        return purchasers;
+    }
+
+    @FunctionalInterface
+    public interface CoPurchaseVisitor {
+        void visit(int coProductId, int coPurchaseCount, int purchasers);
+    }
+}
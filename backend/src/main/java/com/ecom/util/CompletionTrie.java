@@ -0,0 +1,374 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable weighted prefix trie for typeahead: the n heaviest suggestions whose key
+ * starts with a prefix.
+ *
+ * Path-compressed (radix) nodes live in parallel primitive arrays, children of a node
+ * are contiguous and sorted by their first character, and edge labels are slices of
+ * one shared char pool, so there is no per-node object. Every node also keeps the
+ * highest weight in its subtree; a lookup walks down to the prefix and then expands
+ * nodes best-first by that bound, so it touches about n paths however many keys
+ * share the prefix. A key can carry several suggestions and a suggestion several keys.
+ */
+public final class CompletionTrie {
+
+    public static final CompletionTrie EMPTY = new Builder().build();
+
+    private static final long TERMINAL = 0x80000000L;
+
+    private final char[] labels;
+    private final int[] labelStart;
+    private final int[] labelLength;
+    private final int[] firstChild;
+    private final int[] childCount;
+    private final int[] terminalStart;
+    private final float[] maxWeight;
+    private final int[] suggestionIds;
+    private final float[] suggestionWeights;
+
+    private CompletionTrie(char[] labels, int[] labelStart, int[] labelLength, int[] firstChild, int[] childCount,
+            int[] terminalStart, float[] maxWeight, int[] suggestionIds, float[] suggestionWeights) {
+        this.labels = labels;
+        this.labelStart = labelStart;
+        this.labelLength = labelLength;
+        this.firstChild = firstChild;
+        this.childCount = childCount;
+        this.terminalStart = terminalStart;
+        this.maxWeight = maxWeight;
+        this.suggestionIds = suggestionIds;
+        this.suggestionWeights = suggestionWeights;
+    }
+
+    public int nodeCount() {
+        return labelStart.length;
+    }
+
+    public int entryCount() {
+        return suggestionIds.length;
+    }
+
+    /**
+     * Rough heap footprint of the arrays.
+     */
+    public long sizeInBytes() {
+        return 2L * labels.length + 24L * labelStart.length + 8L * suggestionIds.length;
+    }
+
+    /**
+     * Up to n distinct suggestion ids whose key starts with prefix, heaviest first,
+     * skipping ids that filter rejects. Weights of the returned ids go to weights
+     * when it is not null.
+     */
+    public int[] top(String prefix, int n, IntPredicate filter, float[] weights) {
+        int node = locate(prefix);
+        if (node < 0 || n <= 0) {
+            return new int[0];
+        }
+        int[] result = new int[n];
+        int found = 0;
+        LongMaxHeap queue = new LongMaxHeap();
+        queue.push(item(maxWeight[node], node));
+        while (!queue.isEmpty() && found < n) {
+            long item = queue.pop();
+            int index = (int) (item & 0x7FFFFFFFL);
+            if ((item & TERMINAL) != 0) {
+                int id = suggestionIds[index];
+                if (filter.test(id) && !contains(result, found, id)) {
+                    if (weights != null) {
+                        weights[found] = suggestionWeights[index];
+                    }
+                    result[found++] = id;
+                }
+                continue;
+            }
+            for (int entry = terminalStart[index]; entry < terminalStart[index + 1]; entry++) {
+                queue.push(item(suggestionWeights[entry], entry) | TERMINAL);
+            }
+            for (int child = firstChild[index]; child < firstChild[index] + childCount[index]; child++) {
+                queue.push(item(maxWeight[child], child));
+            }
+        }
+        return found == n ? result : Arrays.copyOf(result, found);
+    }
+
+    /**
+     * The node whose subtree holds exactly the keys starting with prefix, or -1.
+     */
+    private int locate(String prefix) {
+        if (labelStart.length == 0) {
+            return -1;
+        }
+        int node = 0;
+        int matched = 0;
+        while (true) {
+            int start = labelStart[node];
+            int length = labelLength[node];
+            for (int i = 0; i < length; i++) {
+                if (matched == prefix.length()) {
+                    return node;
+                }
+                if (labels[start + i] != prefix.charAt(matched++)) {
+                    return -1;
+                }
+            }
+            if (matched == prefix.length()) {
+                return node;
+            }
+            node = child(node, prefix.charAt(matched));
+            if (node < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private int child(int node, char c) {
+        int low = firstChild[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char label = labels[labelStart[middle]];
+            if (label < c) {
+                low = middle + 1;
+            } else if (label > c) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(int[] ids, int size, int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Weight in the high half so items order by it; weights are non-negative, so
+     * their float bits order like the floats themselves.
+     */
+    private static long item(float weight, int index) {
+        return ((long) Float.floatToIntBits(weight) << 32) | index;
+    }
+
+    /**
+     * Collects (key, suggestion id, weight) entries in any order. Weights must not be
+     * negative.
+     */
+    public static final class Builder {
+
+        private String[] keys = new String[1024];
+        private int[] ids = new int[1024];
+        private float[] weights = new float[1024];
+        private int size;
+
+        public Builder add(String key, int id, float weight) {
+            if (key.isEmpty()) {
+                return this;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            keys[size] = key;
+            ids[size] = id;
+            weights[size] = Math.max(0f, weight);
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CompletionTrie build() {
+            if (size == 0) {
+                return new CompletionTrie(new char[0], new int[0], new int[0], new int[0], new int[0], new int[1],
+                    new float[0], new int[0], new float[0]);
+            }
+            // sort entries by key, heaviest first among equal keys
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int compared = keys[a].compareTo(keys[b]);
+                return compared != 0 ? compared : Float.compare(weights[b], weights[a]);
+            });
+            String[] sorted = new String[size];
+            int[] sortedIds = new int[size];
+            float[] sortedWeights = new float[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = keys[order[i]];
+                sortedIds[i] = ids[order[i]];
+                sortedWeights[i] = weights[order[i]];
+            }
+
+            // breadth-first, so the children of every node get consecutive indexes
+            Nodes nodes = new Nodes();
+            int[] queue = new int[16];
+            int head = 0;
+            int tail = 0;
+            nodes.add();
+            queue = push(queue, tail++, 0, size, 0);
+            int[] suggestionIds = new int[size];
+            float[] suggestionWeights = new float[size];
+            int suggestions = 0;
+            StringBuilder pool = new StringBuilder();
+
+            for (int node = 0; head < tail; node++) {
+                int low = queue[3 * head];
+                int high = queue[3 * head + 1];
+                int depth = queue[3 * head + 2];
+                head++;
+
+                int common = commonPrefix(sorted[low], sorted[high - 1]);
+                nodes.labelStart[node] = pool.length();
+                nodes.labelLength[node] = common - depth;
+                pool.append(sorted[low], depth, common);
+
+                nodes.terminalStart[node] = suggestions;
+                int next = low;
+                while (next < high && sorted[next].length() == common) {
+                    suggestionIds[suggestions] = sortedIds[next];
+                    suggestionWeights[suggestions++] = sortedWeights[next];
+                    next++;
+                }
+
+                nodes.firstChild[node] = nodes.size;
+                while (next < high) {
+                    char c = sorted[next].charAt(common);
+                    int end = next + 1;
+                    while (end < high && sorted[end].charAt(common) == c) {
+                        end++;
+                    }
+                    nodes.add();
+                    nodes.childCount[node]++;
+                    queue = push(queue, tail++, next, end, common);
+                    next = end;
+                }
+            }
+
+            int count = nodes.size;
+            int[] terminalStart = Arrays.copyOf(nodes.terminalStart, count + 1);
+            terminalStart[count] = suggestions;
+            // children come after their parent, so one backward pass fills in subtree maxima
+            for (int node = count - 1; node >= 0; node--) {
+                float best = 0;
+                for (int entry = terminalStart[node]; entry < terminalStart[node + 1]; entry++) {
+                    best = Math.max(best, suggestionWeights[entry]);
+                }
+                for (int child = nodes.firstChild[node]; child < nodes.firstChild[node] + nodes.childCount[node]; child++) {
+                    best = Math.max(best, nodes.maxWeight[child]);
+                }
+                nodes.maxWeight[node] = best;
+            }
+            char[] labels = new char[pool.length()];
+            pool.getChars(0, labels.length, labels, 0);
+            return new CompletionTrie(labels, Arrays.copyOf(nodes.labelStart, count),
+                Arrays.copyOf(nodes.labelLength, count), Arrays.copyOf(nodes.firstChild, count),
+                Arrays.copyOf(nodes.childCount, count), terminalStart, Arrays.copyOf(nodes.maxWeight, count),
+                suggestionIds, suggestionWeights);
+        }
+
+        private static int[] push(int[] queue, int at, int low, int high, int depth) {
+            if (3 * at + 3 > queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            queue[3 * at] = low;
+            queue[3 * at + 1] = high;
+            queue[3 * at + 2] = depth;
+            return queue;
+        }
+
+        private static int commonPrefix(String a, String b) {
+            int length = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < length && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static final class Nodes {
+
+        int[] labelStart = new int[1024];
+        int[] labelLength = new int[1024];
+        int[] firstChild = new int[1024];
+        int[] childCount = new int[1024];
+        int[] terminalStart = new int[1024];
+        float[] maxWeight = new float[1024];
+        int size;
+
+        void add() {
+            if (size == labelStart.length) {
+                int capacity = size * 2;
+                labelStart = Arrays.copyOf(labelStart, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                terminalStart = Arrays.copyOf(terminalStart, capacity);
+                maxWeight = Arrays.copyOf(maxWeight, capacity);
+            }
+            size++;
+        }
+    }
+
+    private static final class LongMaxHeap {
+
+        private long[] items = new long[32];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (items[parent] >= item) {
+                    break;
+                }
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        long pop() {
+            long top = items[0];
+            long last = items[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && items[child + 1] > items[child]) {
+                    child++;
+                }
+                if (items[child] <= last) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+    }
+}
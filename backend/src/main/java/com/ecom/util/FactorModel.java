@@ -0,0 +1,166 @@
+package com.ecom.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntPredicate;
+
+/**
+ * Dense user and product factor vectors from matrix factorization.
+ *
+ * Stored on disk as a flat little-endian file: a header of
+ * {@code magic, factors, userCount, productCount}, the user ids, the product ids,
+ * then the user and product factors as float rows.
+ */
+public final class FactorModel {
+
+    private static final int MAGIC = 0x414C5331; // "ALS1"
+    private static final int HEADER_BYTES = 16;
+
+    private final int factors;
+    private final int[] userIds;
+    private final int[] productIds;
+    private final float[] userFactors;
+    private final float[] productFactors;
+    private final IntIntHashMap userRows;
+    private final IntIntHashMap productRows;
+
+    public FactorModel(int factors, int[] userIds, int[] productIds, float[] userFactors, float[] productFactors) {
+        this.factors = factors;
+        this.userIds = userIds;
+        this.productIds = productIds;
+        this.userFactors = userFactors;
+        this.productFactors = productFactors;
+        this.userRows = indexOf(userIds);
+        this.productRows = indexOf(productIds);
+    }
+
+    public int factors() {
+        return factors;
+    }
+
+    public int userCount() {
+        return userIds.length;
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    public boolean hasUser(int userId) {
+        return userRows.containsKey(userId);
+    }
+
+    public boolean hasProduct(int productId) {
+        return productRows.containsKey(productId);
+    }
+
+    /**
+     * Copies productId's factor vector into out; returns false if the product is unknown.
+     */
+    public boolean productVector(int productId, float[] out) {
+        int row = productRows.get(productId, -1);
+        if (row < 0) {
+            return false;
+        }
+        System.arraycopy(productFactors, row * factors, out, 0, factors);
+        return true;
+    }
+
+    /**
+     * Predicted preference of userId for productId, 0 if either is unknown.
+     */
+    public double score(int userId, int productId) {
+        int user = userRows.get(userId, -1);
+        int product = productRows.get(productId, -1);
+        return user < 0 || product < 0 ? 0 : dot(user * factors, product * factors);
+    }
+
+    /**
+     * Products with the highest dot product against userId's vector, best first,
+     * among those accepted by filter.
+     */
+    public int[] topProducts(int userId, int k, IntPredicate filter) {
+        int user = userRows.get(userId, -1);
+        if (user < 0 || k <= 0) {
+            return new int[0];
+        }
+        int userBase = user * factors;
+        TopKSelector top = new TopKSelector(k);
+        for (int row = 0; row < productIds.length; row++) {
+            if (filter.test(productIds[row])) {
+                top.offer(productIds[row], dot(userBase, row * factors));
+            }
+        }
+        return top.idsDescending();
+    }
+
+    private double dot(int userBase, int productBase) {
+        double sum = 0;
+        for (int f = 0; f < factors; f++) {
+            sum += userFactors[userBase + f] * productFactors[productBase + f];
+        }
+        return sum;
+    }
+
+    /**
+     * Writes the model to a temporary file and moves it over path, so readers never see a partial file.
+     */
+    public void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        long bytes = HEADER_BYTES + 4L * (userIds.length + productIds.length + userFactors.length + productFactors.length);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(factors).putInt(userIds.length).putInt(productIds.length);
+            out.asIntBuffer().put(userIds).put(productIds);
+            out.position(out.position() + 4 * (userIds.length + productIds.length));
+            out.asFloatBuffer().put(userFactors).put(productFactors);
+            out.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static FactorModel read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC) {
+                throw new IOException("Not a factor model file: " + path);
+            }
+            int factors = in.getInt();
+            int users = in.getInt();
+            int products = in.getInt();
+            long expected = HEADER_BYTES + 4L * (users + products) * (1 + factors);
+            if (factors <= 0 || users < 0 || products < 0 || expected != channel.size()) {
+                throw new IOException("Truncated or corrupt factor model file: " + path);
+            }
+
+            int[] userIds = new int[users];
+            int[] productIds = new int[products];
+            float[] userFactors = new float[users * factors];
+            float[] productFactors = new float[products * factors];
+            in.asIntBuffer().get(userIds).get(productIds);
+            in.position(in.position() + 4 * (users + products));
+            in.asFloatBuffer().get(userFactors).get(productFactors);
+            return new FactorModel(factors, userIds, productIds, userFactors, productFactors);
+        }
+    }
+
+    private static IntIntHashMap indexOf(int[] ids) {
+        IntIntHashMap rows = new IntIntHashMap(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            rows.put(ids[i], i);
+        }
+        return rows;
+    }
+}
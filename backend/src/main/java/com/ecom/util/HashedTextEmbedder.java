@@ -0,0 +1,158 @@
+package com.ecom.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-size TF-IDF vectors of product text using the hashing trick.
+ *
+ * Word unigrams and bigrams are hashed into {@code dimension} buckets with a sign
+ * bit (so collisions tend to cancel rather than add up), weighted by
+ * {@code (1 + log tf) * idf} and L2-normalized, so the dot product of two vectors
+ * is their cosine similarity. Title terms count twice.
+ */
+public final class HashedTextEmbedder {
+
+    private static final int MAGIC = 0x48544531; // "HTE1"
+
+    private final int dimension;
+    private final float[] idf;
+
+    private HashedTextEmbedder(int dimension, float[] idf) {
+        this.dimension = dimension;
+        this.idf = idf;
+    }
+
+    /**
+     * Learns bucket document frequencies from the given (title, description) documents.
+     */
+    public static HashedTextEmbedder fit(int dimension, List<String[]> documents) {
+        int[] documentFrequency = new int[dimension];
+        int[] seenIn = new int[dimension];
+        int doc = 0;
+        for (String[] document : documents) {
+            doc++;
+            for (int feature : features(document[0], document[1])) {
+                int bucket = bucket(feature, dimension);
+                if (seenIn[bucket] != doc) {
+                    seenIn[bucket] = doc;
+                    documentFrequency[bucket]++;
+                }
+            }
+        }
+        float[] idf = new float[dimension];
+        for (int b = 0; b < dimension; b++) {
+            idf[b] = (float) (Math.log((1.0 + documents.size()) / (1.0 + documentFrequency[b])) + 1);
+        }
+        return new HashedTextEmbedder(dimension, idf);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Unit-length vector for the text, or null if it has no terms.
+     */
+    public float[] embed(String title, String description) {
+        IntIntHashMap termCounts = new IntIntHashMap();
+        for (int feature : features(title, description)) {
+            termCounts.addTo(feature, 1);
+        }
+        if (termCounts.isEmpty()) {
+            return null;
+        }
+
+        float[] vector = new float[dimension];
+        termCounts.forEach((feature, count) -> {
+            int bucket = bucket(feature, dimension);
+            float sign = (feature & 0x80000000) == 0 ? 1f : -1f;
+            vector[bucket] += sign * (float) (1 + Math.log(count)) * idf[bucket];
+        });
+
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    public void write(Path path) throws IOException {
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp); DataOutputStream out = new DataOutputStream(file)) {
+            out.writeInt(MAGIC);
+            out.writeInt(dimension);
+            for (float value : idf) {
+                out.writeFloat(value);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static HashedTextEmbedder read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path); DataInputStream in = new DataInputStream(file)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an embedder file: " + path);
+            }
+            int dimension = in.readInt();
+            float[] idf = new float[dimension];
+            for (int i = 0; i < dimension; i++) {
+                idf[i] = in.readFloat();
+            }
+            return new HashedTextEmbedder(dimension, idf);
+        }
+    }
+
+    /**
+     * Hashes of the unigrams and bigrams of the text; title features are listed twice.
+     */
+    private static List<Integer> features(String title, String description) {
+        List<Integer> features = new ArrayList<>();
+        addFeatures(title, features);
+        addFeatures(title, features);
+        addFeatures(description, features);
+        return features;
+    }
+
+    private static void addFeatures(String text, List<Integer> features) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String previous = null;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            features.add(mix(token.hashCode()));
+            if (previous != null) {
+                features.add(mix((previous + ' ' + token).hashCode() * 31 + 17));
+            }
+            previous = token;
+        }
+    }
+
+    private static int bucket(int feature, int dimension) {
+        return (feature & 0x7FFFFFFF) % dimension;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,562 @@
+package com.ecom.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph for approximate nearest neighbor search
+ * over unit-length float vectors, ranked by dot product (cosine similarity).
+ *
+ * Each node lives on levels 0..L with L drawn from a geometric distribution; a search
+ * descends greedily through the sparse upper levels and runs a best-first beam of
+ * width {@code ef} on level 0. Level 0 links are kept in one flat array of
+ * {@code 2 * m} slots per node, upper levels in small per-node arrays. Removing an id,
+ * or adding it again with a new vector, only marks its node deleted: the node keeps
+ * routing searches but is never returned, until the graph is rebuilt. Searches run
+ * concurrently under a read lock; changes take the write lock.
+ */
+public final class HnswIndex {
+
+    private static final int MAGIC = 0x484E5332; // "HNS2"
+
+    private final int dimension;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<int[]> visitedMarks = new ThreadLocal<>();
+    private final ThreadLocal<int[]> visitEpoch = ThreadLocal.withInitial(() -> new int[1]);
+
+    // nodes in the graph, including deleted ones
+    private int size;
+    private int live;
+    private final BitSet deleted = new BitSet();
+    private int[] ids;
+    private float[] vectors;
+    private int[] levels;
+    // per node: [count, neighbor...] with maxLinks0 neighbor slots
+    private int[] links0;
+    // per node with level > 0: for each level 1..L, [count, neighbor...] with m slots
+    private int[][] upperLinks;
+    // id -> current node, -1 once removed
+    private final IntIntHashMap nodeOf = new IntIntHashMap();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxLinks0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(Math.max(2, m));
+        allocate(1024);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of ids that can be returned, not counting deleted nodes.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nodes left in the graph by removed or replaced ids.
+     */
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return size - live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return nodeOf.get(id, -1) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of id's vector, or null if id is not indexed.
+     */
+    public float[] vector(int id) {
+        lock.readLock().lock();
+        try {
+            int node = nodeOf.get(id, -1);
+            return node < 0 ? null : Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a unit-length vector. If id is already indexed, its old node is marked
+     * deleted and the new vector is inserted as a new node.
+     */
+    public void add(int id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            int previous = nodeOf.get(id, -1);
+            if (previous >= 0) {
+                deleted.set(previous);
+                live--;
+            }
+            if (size == ids.length) {
+                grow(size << 1);
+            }
+            int node = size++;
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            ids[node] = id;
+            levels[node] = level;
+            System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+            upperLinks[node] = level == 0 ? null : new int[level * (m + 1)];
+            nodeOf.put(id, node);
+            live++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedyClosest(vector, current, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                NodeHeap found = searchLayer(vector, current, efConstruction, l);
+                int[] selected = selectNeighbors(found, l == 0 ? maxLinks0 : m);
+                for (int neighbor : selected) {
+                    link(node, neighbor, l);
+                    link(neighbor, node, l);
+                }
+                // the closest candidate always survives selection
+                current = selected[0];
+            }
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes id from search results; returns false if it was not indexed.
+     */
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            int node = nodeOf.get(id, -1);
+            if (node < 0) {
+                return false;
+            }
+            deleted.set(node);
+            nodeOf.put(id, -1);
+            live--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to k ids most similar to query, best first, among ids accepted by filter.
+     *
+     * @param ef beam width on level 0; larger is slower and more accurate
+     */
+    public int[] search(float[] query, int k, int ef, IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return new int[0];
+            }
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            NodeHeap found = searchLayer(query, current, Math.max(ef, k), 0);
+
+            TopKSelector top = new TopKSelector(k);
+            for (int i = 0; i < found.size; i++) {
+                int node = found.nodes[i];
+                if (!deleted.get(node) && filter.test(ids[node])) {
+                    top.offer(ids[node], found.scores[i]);
+                }
+            }
+            return top.idsDescending();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] links = linksOf(current, level);
+            int base = linkBase(current, level);
+            for (int i = 1; i <= links[base]; i++) {
+                int candidate = links[base + i];
+                float score = similarity(query, candidate);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search on one level; returns up to ef closest nodes found.
+     */
+    private NodeHeap searchLayer(float[] query, int entry, int ef, int level) {
+        int[] marks = visitedMarks.get();
+        if (marks == null || marks.length < size) {
+            marks = new int[Math.max(size, ids.length)];
+            visitedMarks.set(marks);
+            visitEpoch.get()[0] = 0;
+        }
+        int epoch = ++visitEpoch.get()[0];
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            epoch = visitEpoch.get()[0] = 1;
+        }
+
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef, false);
+        float entryScore = similarity(query, entry);
+        marks[entry] = epoch;
+        candidates.push(entry, entryScore);
+        results.push(entry, entryScore);
+
+        while (candidates.size > 0) {
+            float candidateScore = candidates.topScore();
+            int candidate = candidates.pop();
+            if (results.size >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int[] links = linksOf(candidate, level);
+            int base = linkBase(candidate, level);
+            for (int i = 1; i <= links[base]; i++) {
+                int neighbor = links[base + i];
+                if (marks[neighbor] == epoch) {
+                    continue;
+                }
+                marks[neighbor] = epoch;
+                float score = similarity(query, neighbor);
+                if (results.size < ef || score > results.topScore()) {
+                    candidates.push(neighbor, score);
+                    results.push(neighbor, score);
+                    if (results.size > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbor selection heuristic from the HNSW paper: keep a candidate only if it is
+     * closer to the new node than to every neighbor kept so far, which spreads links
+     * across clusters; remaining slots are filled with the closest pruned candidates.
+     */
+    private int[] selectNeighbors(NodeHeap found, int max) {
+        int count = found.size;
+        int[] order = new int[count];
+        float[] orderScores = new float[count];
+        found.drainDescending(order, orderScores);
+        int[] selected = new int[Math.min(max, count)];
+        boolean[] taken = new boolean[count];
+        int kept = 0;
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < kept; j++) {
+                if (similarity(order[i], selected[j]) > orderScores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[kept++] = order[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < count && kept < selected.length; i++) {
+            if (!taken[i]) {
+                selected[kept++] = order[i];
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Adds a directed link. When the list is full the existing links plus the new one
+     * are pruned back to capacity with the same heuristic used on insert.
+     */
+    private void link(int from, int to, int level) {
+        int[] links = linksOf(from, level);
+        int base = linkBase(from, level);
+        int capacity = level == 0 ? maxLinks0 : m;
+        int count = links[base];
+        for (int i = 1; i <= count; i++) {
+            if (links[base + i] == to) {
+                return;
+            }
+        }
+        if (count < capacity) {
+            links[base + count + 1] = to;
+            links[base]++;
+            return;
+        }
+        NodeHeap candidates = new NodeHeap(count + 1, false);
+        candidates.push(to, similarity(from, to));
+        for (int i = 1; i <= count; i++) {
+            candidates.push(links[base + i], similarity(from, links[base + i]));
+        }
+        int[] kept = selectNeighbors(candidates, capacity);
+        System.arraycopy(kept, 0, links, base + 1, kept.length);
+        links[base] = kept.length;
+    }
+
+    private int[] linksOf(int node, int level) {
+        return level == 0 ? links0 : upperLinks[node];
+    }
+
+    private int linkBase(int node, int level) {
+        return level == 0 ? node * (maxLinks0 + 1) : (level - 1) * (m + 1);
+    }
+
+    private float similarity(float[] query, int node) {
+        int base = node * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[base + i];
+        }
+        return sum;
+    }
+
+    private float similarity(int a, int b) {
+        int baseA = a * dimension;
+        int baseB = b * dimension;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += vectors[baseA + i] * vectors[baseB + i];
+        }
+        return sum;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        levels = new int[capacity];
+        vectors = new float[capacity * dimension];
+        links0 = new int[capacity * (maxLinks0 + 1)];
+        upperLinks = new int[capacity][];
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        levels = Arrays.copyOf(levels, capacity);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        links0 = Arrays.copyOf(links0, capacity * (maxLinks0 + 1));
+        upperLinks = Arrays.copyOf(upperLinks, capacity);
+    }
+
+    /**
+     * Writes the graph through a memory mapping to a temporary file, then moves it over path.
+     */
+    public void write(Path path) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+            long upperInts = 0;
+            for (int node = 0; node < size; node++) {
+                upperInts += levels[node] * (m + 1);
+            }
+            int deletedNodes = size - live;
+            long bytes = 4L * (8 + deletedNodes + 2L * size + (long) size * dimension + (long) size * (maxLinks0 + 1)
+                + upperInts);
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                out.order(ByteOrder.LITTLE_ENDIAN);
+                out.putInt(MAGIC).putInt(dimension).putInt(m).putInt(efConstruction)
+                    .putInt(size).putInt(entryPoint).putInt(maxLevel).putInt(deletedNodes);
+                IntBuffer ints = out.asIntBuffer();
+                for (int node = deleted.nextSetBit(0); node >= 0; node = deleted.nextSetBit(node + 1)) {
+                    ints.put(node);
+                }
+                ints.put(ids, 0, size).put(levels, 0, size).put(links0, 0, size * (maxLinks0 + 1));
+                for (int node = 0; node < size; node++) {
+                    if (levels[node] > 0) {
+                        ints.put(upperLinks[node]);
+                    }
+                }
+                out.position(out.position() + 4 * ints.position());
+                out.asFloatBuffer().put(vectors, 0, size * dimension);
+                out.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            if (in.remaining() < 32 || in.getInt() != MAGIC) {
+                throw new IOException("Not an HNSW index file: " + path);
+            }
+            HnswIndex index = new HnswIndex(in.getInt(), in.getInt(), in.getInt());
+            int size = in.getInt();
+            index.entryPoint = in.getInt();
+            index.maxLevel = in.getInt();
+            int deletedNodes = in.getInt();
+            index.grow(Math.max(1024, size));
+            index.size = size;
+            index.live = size - deletedNodes;
+
+            IntBuffer ints = in.asIntBuffer();
+            for (int i = 0; i < deletedNodes; i++) {
+                index.deleted.set(ints.get());
+            }
+            ints.get(index.ids, 0, size).get(index.levels, 0, size).get(index.links0, 0, size * (index.maxLinks0 + 1));
+            for (int node = 0; node < size; node++) {
+                int level = index.levels[node];
+                if (level > 0) {
+                    index.upperLinks[node] = new int[level * (index.m + 1)];
+                    ints.get(index.upperLinks[node]);
+                }
+                if (!index.deleted.get(node)) {
+                    index.nodeOf.put(index.ids[node], node);
+                }
+            }
+            in.position(in.position() + 4 * ints.position());
+            in.asFloatBuffer().get(index.vectors, 0, size * index.dimension);
+            return index;
+        }
+    }
+
+    /**
+     * Binary heap of (node, score): a max-heap pops the best node, a min-heap the worst.
+     */
+    private static final class NodeHeap {
+
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+        private final boolean max;
+
+        NodeHeap(int capacity, boolean max) {
+            this.nodes = new int[Math.max(4, capacity + 1)];
+            this.scores = new float[nodes.length];
+            this.max = max;
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size << 1);
+                scores = Arrays.copyOf(scores, size << 1);
+            }
+            int i = size++;
+            nodes[i] = node;
+            scores[i] = score;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(i, parent)) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            nodes[0] = nodes[size];
+            scores[0] = scores[size];
+            int i = 0;
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    break;
+                }
+                int child = left + 1 < size && before(left + 1, left) ? left + 1 : left;
+                if (!before(child, i)) {
+                    break;
+                }
+                swap(i, child);
+                i = child;
+            }
+            return top;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        /**
+         * Empties a min-heap into the arrays, most similar first.
+         */
+        void drainDescending(int[] outNodes, float[] outScores) {
+            for (int n = size; n > 0; n--) {
+                outScores[n - 1] = scores[0];
+                outNodes[n - 1] = pop();
+            }
+        }
+
+        private boolean before(int a, int b) {
+            return max ? scores[a] > scores[b] : scores[a] < scores[b];
+        }
+
+        private void swap(int a, int b) {
+            int node = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = node;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Alternating least squares for implicit feedback (Hu, Koren and Volinsky).
+ *
+ * Every observed (user, product) pair has preference 1 and confidence
+ * {@code 1 + alpha * log(1 + weight)}; unobserved pairs have preference 0 and
+ * confidence 1. Each half-iteration fixes one side and solves a small f x f system
+ * per row of the other side, using the precomputed Gram matrix so only the row's
+ * observed entries are touched. Rows are solved in parallel on a fork-join pool.
+ */
+public final class ImplicitAlsTrainer {
+
+    private static final int ROWS_PER_TASK = 128;
+
+    private final int factors;
+    private final double regularization;
+    private final double alpha;
+    private final int iterations;
+    private final ForkJoinPool pool;
+
+    public ImplicitAlsTrainer(int factors, double regularization, double alpha, int iterations, ForkJoinPool pool) {
+        this.factors = factors;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.iterations = iterations;
+        this.pool = pool;
+    }
+
+    public FactorModel train(Interactions data) {
+        float[] userFactors = new float[data.userCount() * factors];
+        float[] productFactors = new float[data.productCount() * factors];
+        // small random start; fixed seed keeps retraining on the same data repeatable
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < productFactors.length; i++) {
+            productFactors[i] = (float) (random.nextGaussian() * 0.01);
+        }
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            solve(userFactors, productFactors, data.userOffsets, data.userColumns, data.userConfidence);
+            solve(productFactors, userFactors, data.productOffsets, data.productColumns, data.productConfidence);
+        }
+        return new FactorModel(factors, data.userIds, data.productIds, userFactors, productFactors);
+    }
+
+    private void solve(float[] target, float[] fixed, int[] offsets, int[] columns, float[] confidence) {
+        double[] gram = gram(fixed);
+        pool.invoke(new SolveTask(target, fixed, offsets, columns, confidence, gram, 0, offsets.length - 1));
+    }
+
+    /**
+     * Y^T Y of the fixed side, shared by every row solve of this half-iteration.
+     */
+    private double[] gram(float[] fixed) {
+        double[] gram = new double[factors * factors];
+        for (int base = 0; base < fixed.length; base += factors) {
+            for (int i = 0; i < factors; i++) {
+                double yi = fixed[base + i];
+                for (int j = 0; j <= i; j++) {
+                    gram[i * factors + j] += yi * fixed[base + j];
+                }
+            }
+        }
+        for (int i = 0; i < factors; i++) {
+            for (int j = 0; j < i; j++) {
+                gram[j * factors + i] = gram[i * factors + j];
+            }
+        }
+        return gram;
+    }
+
+    private final class SolveTask extends RecursiveAction {
+
+        private final float[] target;
+        private final float[] fixed;
+        private final int[] offsets;
+        private final int[] columns;
+        private final float[] confidence;
+        private final double[] gram;
+        private final int from;
+        private final int to;
+
+        SolveTask(float[] target, float[] fixed, int[] offsets, int[] columns, float[] confidence,
+                double[] gram, int from, int to) {
+            this.target = target;
+            this.fixed = fixed;
+            this.offsets = offsets;
+            this.columns = columns;
+            this.confidence = confidence;
+            this.gram = gram;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveTask(target, fixed, offsets, columns, confidence, gram, from, mid),
+                    new SolveTask(target, fixed, offsets, columns, confidence, gram, mid, to));
+                return;
+            }
+
+            double[] a = new double[factors * factors];
+            double[] b = new double[factors];
+            for (int row = from; row < to; row++) {
+                System.arraycopy(gram, 0, a, 0, a.length);
+                Arrays.fill(b, 0);
+                for (int i = 0; i < factors; i++) {
+                    a[i * factors + i] += regularization;
+                }
+                // A = Y^T Y + Y^T (C - I) Y + lambda I,  b = Y^T C p
+                for (int pos = offsets[row]; pos < offsets[row + 1]; pos++) {
+                    int base = columns[pos] * factors;
+                    double c = confidence[pos];
+                    for (int i = 0; i < factors; i++) {
+                        double yi = fixed[base + i];
+                        b[i] += c * yi;
+                        double scaled = (c - 1) * yi;
+                        for (int j = 0; j < factors; j++) {
+                            a[i * factors + j] += scaled * fixed[base + j];
+                        }
+                    }
+                }
+                choleskySolve(a, b, factors);
+                int out = row * factors;
+                for (int i = 0; i < factors; i++) {
+                    target[out + i] = (float) b[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves A x = b in place for symmetric positive definite A; x is left in b.
+     */
+    static void choleskySolve(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= a[i * n + k] * a[j * n + k];
+                }
+                if (i == j) {
+                    a[i * n + i] = Math.sqrt(Math.max(sum, 1e-12));
+                } else {
+                    a[i * n + j] = sum / a[j * n + j];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= a[i * n + k] * b[k];
+            }
+            b[i] = sum / a[i * n + i];
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= a[k * n + i] * b[k];
+            }
+            b[i] = sum / a[i * n + i];
+        }
+    }
+
+    /**
+     * Weighted (user, product) observations, indexed both by user and by product.
+     * Add each pair once with its total weight, then {@link #freeze()}.
+     */
+    public static final class Interactions {
+
+        private final double alpha;
+        private final IntIntHashMap userIndex = new IntIntHashMap();
+        private final IntIntHashMap productIndex = new IntIntHashMap();
+        private int[] userIds = new int[1024];
+        private int[] productIds = new int[1024];
+        private int userCount;
+        private int productCount;
+
+        private int[] entryUsers = new int[1024];
+        private int[] entryProducts = new int[1024];
+        private float[] entryConfidence = new float[1024];
+        private int size;
+
+        int[] userOffsets;
+        int[] userColumns;
+        float[] userConfidence;
+        int[] productOffsets;
+        int[] productColumns;
+        float[] productConfidence;
+
+        public Interactions(double alpha) {
+            this.alpha = alpha;
+        }
+
+        public void add(int userId, int productId, double weight) {
+            if (weight <= 0) {
+                return;
+            }
+            int user = userIndex.putIfAbsent(userId, userCount);
+            if (user == userCount) {
+                if (userCount == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userCount << 1);
+                }
+                userIds[userCount++] = userId;
+            }
+            int product = productIndex.putIfAbsent(productId, productCount);
+            if (product == productCount) {
+                if (productCount == productIds.length) {
+                    productIds = Arrays.copyOf(productIds, productCount << 1);
+                }
+                productIds[productCount++] = productId;
+            }
+            if (size == entryUsers.length) {
+                entryUsers = Arrays.copyOf(entryUsers, size << 1);
+                entryProducts = Arrays.copyOf(entryProducts, size << 1);
+                entryConfidence = Arrays.copyOf(entryConfidence, size << 1);
+            }
+            entryUsers[size] = user;
+            entryProducts[size] = product;
+            entryConfidence[size] = (float) (1 + alpha * Math.log1p(weight));
+            size++;
+        }
+
+        public void freeze() {
+            userIds = Arrays.copyOf(userIds, userCount);
+            productIds = Arrays.copyOf(productIds, productCount);
+
+            userOffsets = new int[userCount + 1];
+            userColumns = new int[size];
+            userConfidence = new float[size];
+            compress(entryUsers, entryProducts, userOffsets, userColumns, userConfidence);
+
+            productOffsets = new int[productCount + 1];
+            productColumns = new int[size];
+            productConfidence = new float[size];
+            compress(entryProducts, entryUsers, productOffsets, productColumns, productConfidence);
+
+            entryUsers = new int[0];
+            entryProducts = new int[0];
+            entryConfidence = new float[0];
+        }
+
+        public int userCount() {
+            return userCount;
+        }
+
+        public int productCount() {
+            return productCount;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private void compress(int[] rows, int[] cols, int[] offsets, int[] outColumns, float[] outConfidence) {
+            for (int i = 0; i < size; i++) {
+                offsets[rows[i] + 1]++;
+            }
+            for (int r = 0; r + 1 < offsets.length; r++) {
+                offsets[r + 1] += offsets[r];
+            }
+            int[] cursor = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < size; i++) {
+                int pos = cursor[rows[i]]++;
+                outColumns[pos] = cols[i];
+                outConfidence[pos] = entryConfidence[i];
+            }
+        }
+    }
+}
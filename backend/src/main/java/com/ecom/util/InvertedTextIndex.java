@@ -0,0 +1,736 @@
+package com.ecom.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Product search index made of immutable memory-mapped {@link SearchSegment}s in one
+ * directory, ranked with BM25 across all of them.
+ *
+ * Every change is written as a new small segment and committed by atomically
+ * replacing a manifest that lists the segments and the deleted documents of each,
+ * so a change survives a restart once the call returns. Opening the index reads the
+ * manifest and the product id column of every segment and nothing else.
+ * {@link #maybeMerge()} folds the smallest segments together once there are more
+ * than mergeFactor of them, or rewrites a segment that is mostly deleted documents;
+ * searches and changes keep using the old segments until the merged one is swapped in.
+ *
+ * Fields are combined BM25F-style: a term's frequency and a document's length are
+ * weighted by field (title 3, category 2, description 1). Document frequencies count
+ * deleted documents until their segment is merged, which only nudges IDF slightly.
+ * Queries match all of their tokens; the last token also matches as a prefix unless
+ * the query ends in a separator, so results appear while a word is still being typed.
+ * {@link #fuzzySearch} also accepts dictionary terms a few edits away from each token,
+ * found through a {@link TermNgramIndex} per segment that is built on first use, or
+ * ahead of the swap for merged and rebuilt segments.
+ *
+ * Thread-safe: searches share a read lock, changes are serialized among themselves
+ * and hold the write lock only while swapping in their result.
+ */
+public final class InvertedTextIndex {
+
+    private static final int MANIFEST_MAGIC = 0x50534D31; // "PSM1"
+    private static final String MANIFEST = "segments.manifest";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // prefix matches rank just below exact matches of the same term
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final int MAX_QUERY_TOKENS = 8;
+    private static final int MAX_PREFIX_TERMS = 64;
+    // dictionary entries scanned per segment for one prefix, bounding one-letter prefixes
+    private static final int MAX_PREFIX_SCAN = 4096;
+    // tokens this long may be one edit, and this long two edits, away from a term
+    private static final int ONE_EDIT_LENGTH = 3;
+    private static final int TWO_EDITS_LENGTH = 6;
+    private static final int MAX_FUZZY_TERMS = 16;
+    // dictionary terms verified per segment for one token
+    private static final int MAX_FUZZY_CANDIDATES = 1024;
+    // fuzzy results rank by total edits, then by log popularity, with BM25 breaking ties
+    private static final double EDIT_RANK = 1000;
+    private static final double BM25_RANK = 0.001;
+
+    private final Path directory;
+    private final int mergeFactor;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object commitLock = new Object();
+    private final AtomicInteger nextGeneration = new AtomicInteger();
+    private final AtomicBoolean merging = new AtomicBoolean(false);
+
+    // guarded by lock for reads, changed under both commitLock and the write lock
+    private List<Segment> segments = new ArrayList<>();
+    private final IntIntHashMap generationOf = new IntIntHashMap();
+    private final IntIntHashMap docOf = new IntIntHashMap();
+    private int liveCount;
+    private long liveLength;
+
+    private InvertedTextIndex(Path directory, int mergeFactor) {
+        this.directory = directory;
+        this.mergeFactor = Math.max(2, mergeFactor);
+    }
+
+    /**
+     * Opens the index in directory, creating an empty one if there is none, and
+     * removes segment files a crash left behind.
+     */
+    public static InvertedTextIndex open(Path directory, int mergeFactor) throws IOException {
+        Files.createDirectories(directory);
+        InvertedTextIndex index = new InvertedTextIndex(directory, mergeFactor);
+        Set<Path> referenced = new HashSet<>();
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            try (InputStream file = Files.newInputStream(manifest); DataInputStream in = new DataInputStream(file)) {
+                if (in.readInt() != MANIFEST_MAGIC) {
+                    throw new IOException("Not a search index manifest: " + manifest);
+                }
+                index.nextGeneration.set(in.readInt());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int generation = in.readInt();
+                    Segment segment = new Segment(generation, SearchSegment.open(index.pathOf(generation)));
+                    int deleted = in.readInt();
+                    for (int d = 0; d < deleted; d++) {
+                        segment.deleted.set(in.readInt());
+                    }
+                    segment.deletedCount = deleted;
+                    index.segments.add(segment);
+                    index.register(segment);
+                    referenced.add(segment.data.path());
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if ((name.endsWith(SEGMENT_SUFFIX) && !referenced.contains(file)) || name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds or replaces one product.
+     */
+    public void put(SearchSegment.Document document) throws IOException {
+        putAll(List.of(document));
+    }
+
+    /**
+     * Adds or replaces products as one new segment.
+     */
+    public void putAll(Collection<SearchSegment.Document> documents) throws IOException {
+        if (documents.isEmpty()) {
+            return;
+        }
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        documents.forEach(builder::add);
+        int generation = nextGeneration.getAndIncrement();
+        Segment segment = new Segment(generation, builder.write(pathOf(generation)));
+        synchronized (commitLock) {
+            lock.writeLock().lock();
+            try {
+                List<Segment> next = new ArrayList<>(segments);
+                next.add(segment);
+                segments = next;
+                register(segment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            writeManifest();
+        }
+    }
+
+    /**
+     * Removes a product; returns false if it was not indexed.
+     */
+    public boolean remove(int productId) throws IOException {
+        synchronized (commitLock) {
+            boolean removed;
+            lock.writeLock().lock();
+            try {
+                removed = kill(productId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (removed) {
+                writeManifest();
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Replaces the whole index with the documents of builder, e.g. after reading the
+     * full catalog.
+     */
+    public void replaceAll(SearchSegment.Builder builder) throws IOException {
+        int generation = nextGeneration.getAndIncrement();
+        Segment segment = new Segment(generation, builder.write(pathOf(generation)));
+        segment.grams();
+        List<Segment> previous;
+        synchronized (commitLock) {
+            lock.writeLock().lock();
+            try {
+                previous = segments;
+                segments = new ArrayList<>(List.of(segment));
+                generationOf.clear();
+                docOf.clear();
+                liveCount = 0;
+                liveLength = 0;
+                register(segment);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            writeManifest();
+        }
+        deleteFiles(previous);
+    }
+
+    /**
+     * Runs one merge if the merge policy asks for one; returns whether it did. Meant
+     * to be called from a background thread after changes; concurrent calls return
+     * false right away while a merge is running.
+     */
+    public boolean maybeMerge() throws IOException {
+        if (!merging.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            List<Segment> sources;
+            List<BitSet> snapshot = new ArrayList<>();
+            synchronized (commitLock) {
+                sources = mergeCandidates();
+                if (sources.isEmpty()) {
+                    return false;
+                }
+                for (Segment source : sources) {
+                    snapshot.add((BitSet) source.deleted.clone());
+                }
+            }
+
+            int generation = nextGeneration.getAndIncrement();
+            List<SearchSegment> data = new ArrayList<>(sources.size());
+            for (Segment source : sources) {
+                data.add(source.data);
+            }
+            int[][] remap = SearchSegment.merge(data, snapshot, pathOf(generation));
+            Segment merged = new Segment(generation, SearchSegment.open(pathOf(generation)));
+            merged.grams();
+
+            synchronized (commitLock) {
+                if (!segments.containsAll(sources)) {
+                    // replaced by replaceAll while merging
+                    deleteFiles(List.of(merged));
+                    return false;
+                }
+                lock.writeLock().lock();
+                try {
+                    // carry over deletes that happened while merging
+                    for (int s = 0; s < sources.size(); s++) {
+                        BitSet late = (BitSet) sources.get(s).deleted.clone();
+                        late.andNot(snapshot.get(s));
+                        for (int doc = late.nextSetBit(0); doc >= 0; doc = late.nextSetBit(doc + 1)) {
+                            merged.deleted.set(remap[s][doc]);
+                            merged.deletedCount++;
+                        }
+                    }
+                    for (int doc = 0; doc < merged.data.docCount(); doc++) {
+                        if (!merged.deleted.get(doc)) {
+                            int productId = merged.data.productId(doc);
+                            generationOf.put(productId, generation);
+                            docOf.put(productId, doc);
+                        }
+                    }
+                    List<Segment> next = new ArrayList<>(segments);
+                    next.removeAll(sources);
+                    if (merged.data.docCount() > 0) {
+                        next.add(merged);
+                    }
+                    segments = next;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                writeManifest();
+            }
+            deleteFiles(sources);
+            if (merged.data.docCount() == 0) {
+                deleteFiles(List.of(merged));
+            }
+            return true;
+        } finally {
+            merging.set(false);
+        }
+    }
+
+    /**
+     * Up to k best matching product ids, highest BM25 score first, along with the
+     * number of all matching products.
+     */
+    public Hits search(String query, boolean activeOnly, int k) {
+        return search(query, activeOnly, k, null, null, null);
+    }
+
+    /**
+     * Like {@link #search(String, boolean, int)}, but only products that filter accepts
+     * are ranked and counted, and every matching product, accepted or not, is passed
+     * to matches, e.g. to count facets over the whole result. Either may be null.
+     */
+    public Hits search(String query, boolean activeOnly, int k, IntPredicate filter, IntConsumer matches) {
+        return search(query, activeOnly, k, null, filter, matches);
+    }
+
+    /**
+     * Like {@link #search}, but a token of at least {@value #ONE_EDIT_LENGTH} characters
+     * also matches the terms one edit away, and of at least {@value #TWO_EDITS_LENGTH}
+     * two edits away, so "lapotp" finds laptops. Products rank by the edits summed
+     * over their matched tokens, then by popularity, with BM25 breaking ties.
+     */
+    public Hits fuzzySearch(String query, boolean activeOnly, int k, IntToDoubleFunction popularity) {
+        return search(query, activeOnly, k, popularity, null, null);
+    }
+
+    /**
+     * Fuzzy search with a filter and a consumer of all matches as in
+     * {@link #search(String, boolean, int, IntPredicate, IntConsumer)}.
+     */
+    public Hits fuzzySearch(String query, boolean activeOnly, int k, IntToDoubleFunction popularity,
+            IntPredicate filter, IntConsumer matches) {
+        return search(query, activeOnly, k, popularity, filter, matches);
+    }
+
+    /**
+     * Prepares the fuzzy lookup of every current segment, so the first fuzzy search
+     * after opening does not build it.
+     */
+    public void prepareFuzzy() {
+        List<Segment> current;
+        lock.readLock().lock();
+        try {
+            current = segments;
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : current) {
+            segment.grams();
+        }
+    }
+
+    /**
+     * Searches with exact and prefix matches only if popularity is null, otherwise
+     * with fuzzy matches ranked as in {@link #fuzzySearch}.
+     */
+    private Hits search(String query, boolean activeOnly, int k, IntToDoubleFunction popularity, IntPredicate filter,
+            IntConsumer matches) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return Hits.EMPTY;
+        }
+        boolean prefixLast = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return Hits.EMPTY;
+            }
+            // expand every token to its matching terms, then visit the rarest token first
+            List<List<Term>> terms = new ArrayList<>(tokens.size());
+            List<long[]> order = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                boolean prefix = prefixLast && i == tokens.size() - 1;
+                List<Term> expanded = popularity == null ? expand(tokens.get(i), prefix)
+                    : expandFuzzy(tokens.get(i), prefix);
+                if (expanded.isEmpty()) {
+                    return Hits.EMPTY;
+                }
+                long frequency = 0;
+                for (Term term : expanded) {
+                    frequency += term.docFrequency();
+                }
+                terms.add(expanded);
+                order.add(new long[] { frequency, i });
+            }
+            order.sort(Comparator.comparingLong(entry -> entry[0]));
+            int[] visitOrder = new int[order.size()];
+            for (int i = 0; i < visitOrder.length; i++) {
+                visitOrder[i] = (int) order.get(i)[1];
+            }
+
+            double averageLength = Math.max(1.0, (double) liveLength / liveCount);
+            TopKSelector top = new TopKSelector(k);
+            int total = 0;
+            for (Segment segment : segments) {
+                total += searchSegment(segment, terms, visitOrder, activeOnly, averageLength, popularity, filter,
+                    matches, top);
+            }
+            return new Hits(top.idsDescending(), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int productId) {
+        lock.readLock().lock();
+        try {
+            return generationOf.get(productId, -1) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            long terms = 0;
+            long deleted = 0;
+            for (Segment segment : segments) {
+                bytes += segment.data.sizeInBytes();
+                terms += segment.data.termCount();
+                deleted += segment.deletedCount;
+            }
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("products", liveCount);
+            stats.put("segments", segments.size());
+            stats.put("deletedDocuments", deleted);
+            stats.put("segmentTerms", terms);
+            stats.put("bytesOnDisk", bytes);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lowercased runs of letters and digits, without duplicates, at most
+     * {@value #MAX_QUERY_TOKENS}.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SearchSegment.tokens(text)) {
+            if (!tokens.contains(token)) {
+                tokens.add(token);
+                if (tokens.size() == MAX_QUERY_TOKENS) {
+                    break;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Scores one segment with dense per-document accumulators: a score, a bit per
+     * matched token and the edits of the matches. After the rarest token only
+     * documents it matched are scored. The terms of a token come closest first, so
+     * the first one to match a document has the fewest edits.
+     */
+    private int searchSegment(Segment segment, List<List<Term>> terms, int[] visitOrder, boolean activeOnly,
+            double averageLength, IntToDoubleFunction popularity, IntPredicate filter, IntConsumer matches,
+            TopKSelector top) {
+        SearchSegment data = segment.data;
+        BitSet deleted = segment.deleted;
+        double[] scores = new double[data.docCount()];
+        int[] matched = new int[data.docCount()];
+        int[] edits = popularity == null ? null : new int[data.docCount()];
+        for (int visit = 0; visit < visitOrder.length; visit++) {
+            int token = visitOrder[visit];
+            boolean first = visit == 0;
+            int bit = 1 << token;
+            for (Term term : terms.get(token)) {
+                int entry = data.findTerm(term.bytes());
+                if (entry < 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveCount - term.docFrequency() + 0.5) / (term.docFrequency() + 0.5));
+                double weight = (term.exact() ? 1.0 : PREFIX_FACTOR) * idf * (K1 + 1);
+                data.forEachPosting(entry, (doc, frequency) -> {
+                    if ((first ? deleted.get(doc) || (activeOnly && !data.active(doc)) : matched[doc] == 0)) {
+                        return;
+                    }
+                    double norm = K1 * (1 - B + B * data.length(doc) / averageLength);
+                    scores[doc] += weight * frequency / (frequency + norm);
+                    if (edits != null && (matched[doc] & bit) == 0) {
+                        edits[doc] += term.distance();
+                    }
+                    matched[doc] |= bit;
+                });
+            }
+        }
+
+        int all = (1 << terms.size()) - 1;
+        int total = 0;
+        for (int doc = 0; doc < matched.length; doc++) {
+            if (matched[doc] != all) {
+                continue;
+            }
+            int productId = data.productId(doc);
+            if (matches != null) {
+                matches.accept(productId);
+            }
+            if (filter != null && !filter.test(productId)) {
+                continue;
+            }
+            total++;
+            if (popularity == null) {
+                top.offer(productId, scores[doc]);
+            } else {
+                double rank = Math.log1p(Math.max(0, popularity.applyAsDouble(productId)));
+                top.offer(productId, rank - EDIT_RANK * edits[doc] + BM25_RANK * scores[doc]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The terms a query token stands for with their document frequency over all
+     * segments: the token itself, or for a prefix the exact term and the most common
+     * completions.
+     */
+    private List<Term> expand(String token, boolean prefix) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (Segment segment : segments) {
+            SearchSegment data = segment.data;
+            if (!prefix) {
+                int entry = data.findTerm(bytes);
+                if (entry >= 0) {
+                    frequencies.merge(token, data.docFrequency(entry), Integer::sum);
+                }
+                continue;
+            }
+            int entry = data.seekCeil(bytes);
+            for (int scanned = 0; scanned < MAX_PREFIX_SCAN && data.termStartsWith(entry, bytes); scanned++, entry++) {
+                frequencies.merge(data.term(entry), data.docFrequency(entry), Integer::sum);
+            }
+        }
+        List<Term> terms = new ArrayList<>(frequencies.size());
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms.add(new Term(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue(),
+                entry.getKey().equals(token), 0));
+        }
+        if (terms.size() > MAX_PREFIX_TERMS) {
+            terms.sort((a, b) -> a.exact() != b.exact() ? (a.exact() ? -1 : 1)
+                : Integer.compare(b.docFrequency(), a.docFrequency()));
+            return new ArrayList<>(terms.subList(0, MAX_PREFIX_TERMS));
+        }
+        return terms;
+    }
+
+    /**
+     * The terms of {@link #expand} plus the most common dictionary terms within the
+     * allowed edits of token, closest first.
+     */
+    private List<Term> expandFuzzy(String token, boolean prefix) {
+        List<Term> terms = expand(token, prefix);
+        int maxEdits = token.length() >= TWO_EDITS_LENGTH ? 2 : token.length() >= ONE_EDIT_LENGTH ? 1 : 0;
+        if (maxEdits == 0) {
+            return terms;
+        }
+        Set<String> expanded = new HashSet<>();
+        for (Term term : terms) {
+            expanded.add(new String(term.bytes(), StandardCharsets.UTF_8));
+        }
+        // term -> document frequency over all segments and distance
+        Map<String, int[]> variants = new HashMap<>();
+        for (Segment segment : segments) {
+            SearchSegment data = segment.data;
+            segment.grams().matches(token, maxEdits, MAX_FUZZY_CANDIDATES, (entry, distance) -> {
+                String term = data.term(entry);
+                if (!expanded.contains(term)) {
+                    variants.computeIfAbsent(term, t -> new int[] { 0, distance })[0] += data.docFrequency(entry);
+                }
+            });
+        }
+        List<Map.Entry<String, int[]>> closest = new ArrayList<>(variants.entrySet());
+        closest.sort((a, b) -> a.getValue()[1] != b.getValue()[1] ? Integer.compare(a.getValue()[1], b.getValue()[1])
+            : Integer.compare(b.getValue()[0], a.getValue()[0]));
+        List<Term> fuzzy = new ArrayList<>(terms);
+        for (Map.Entry<String, int[]> variant : closest.subList(0, Math.min(MAX_FUZZY_TERMS, closest.size()))) {
+            fuzzy.add(new Term(variant.getKey().getBytes(StandardCharsets.UTF_8), variant.getValue()[0], false,
+                variant.getValue()[1]));
+        }
+        return fuzzy;
+    }
+
+    /**
+     * Merges the mergeFactor smallest segments once there are more than mergeFactor,
+     * otherwise the first segment with over a third of its documents deleted.
+     */
+    private List<Segment> mergeCandidates() {
+        if (segments.size() > mergeFactor) {
+            List<Segment> bySize = new ArrayList<>(segments);
+            bySize.sort(Comparator.comparingInt(segment -> segment.data.docCount() - segment.deletedCount));
+            return new ArrayList<>(bySize.subList(0, mergeFactor));
+        }
+        for (Segment segment : segments) {
+            if (segment.deletedCount > 0 && segment.deletedCount * 3 > segment.data.docCount()) {
+                return List.of(segment);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Makes the live documents of segment the current version of their products.
+     */
+    private void register(Segment segment) {
+        SearchSegment data = segment.data;
+        for (int doc = 0; doc < data.docCount(); doc++) {
+            if (segment.deleted.get(doc)) {
+                continue;
+            }
+            int productId = data.productId(doc);
+            kill(productId);
+            generationOf.put(productId, segment.generation);
+            docOf.put(productId, doc);
+            liveCount++;
+            liveLength += data.length(doc);
+        }
+    }
+
+    private boolean kill(int productId) {
+        int generation = generationOf.get(productId, -1);
+        if (generation < 0) {
+            return false;
+        }
+        for (Segment segment : segments) {
+            if (segment.generation == generation) {
+                int doc = docOf.get(productId, -1);
+                segment.deleted.set(doc);
+                segment.deletedCount++;
+                liveCount--;
+                liveLength -= segment.data.length(doc);
+                break;
+            }
+        }
+        generationOf.put(productId, -1);
+        return true;
+    }
+
+    private void writeManifest() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(nextGeneration.get());
+            out.writeInt(segments.size());
+            for (Segment segment : segments) {
+                out.writeInt(segment.generation);
+                out.writeInt(segment.deletedCount);
+                for (int doc = segment.deleted.nextSetBit(0); doc >= 0; doc = segment.deleted.nextSetBit(doc + 1)) {
+                    out.writeInt(doc);
+                }
+            }
+        }
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the files of segments that are no longer referenced. Their mappings stay
+     * readable until collected; where the platform refuses to delete a mapped file, the
+     * next {@link #open} removes it.
+     */
+    private static void deleteFiles(List<Segment> unused) {
+        for (Segment segment : unused) {
+            try {
+                Files.deleteIfExists(segment.data.path());
+            } catch (IOException e) {
+                // retried by the next open
+            }
+        }
+    }
+
+    private Path pathOf(int generation) {
+        return directory.resolve(String.format("segment-%08d%s", generation, SEGMENT_SUFFIX));
+    }
+
+    private static final class Segment {
+
+        private final int generation;
+        private final SearchSegment data;
+        private final BitSet deleted = new BitSet();
+        private int deletedCount;
+        private volatile TermNgramIndex grams;
+
+        Segment(int generation, SearchSegment data) {
+            this.generation = generation;
+            this.data = data;
+        }
+
+        TermNgramIndex grams() {
+            TermNgramIndex built = grams;
+            if (built == null) {
+                synchronized (this) {
+                    built = grams;
+                    if (built == null) {
+                        built = TermNgramIndex.build(data);
+                        grams = built;
+                    }
+                }
+            }
+            return built;
+        }
+    }
+
+    /**
+     * A dictionary term a query token stands for; distance is its number of edits
+     * from the token, 0 for exact and prefix matches.
+     */
+    private record Term(byte[] bytes, int docFrequency, boolean exact, int distance) {
+    }
+
+    /**
+     * Ranked product ids of one result page and the total number of matches.
+     */
+    public record Hits(int[] productIds, int total) {
+
+        public static final Hits EMPTY = new Hits(new int[0], 0);
+    }
+}
@@ -0,0 +1,182 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures of per-product buyer sets, with LSH banding to find candidate pairs.
+ *
+ * Each product gets {@code signatureSize} slots; slot i holds the minimum of hash
+ * function i over the product's buyers. The fraction of equal slots between two
+ * products estimates the Jaccard similarity of their buyer sets. Banding splits the
+ * signature into {@code bands} groups of rows: products whose rows agree on a whole
+ * band land in the same bucket and become candidates, so only likely-similar pairs
+ * are compared. More bands find weaker similarities at the cost of more candidates.
+ */
+public final class MinHashSignatures {
+
+    private final int signatureSize;
+    private final int bands;
+    private final int rowsPerBand;
+    private final long[] hashSeeds;
+
+    private final IntIntHashMap productIndex = new IntIntHashMap();
+    private int[] productIds = new int[1024];
+    private int[] buyerRows = new int[1024];
+    private int[] signatures;
+    private int productCount;
+
+    public MinHashSignatures(int signatureSize, int bands) {
+        if (bands <= 0 || signatureSize < bands || signatureSize % bands != 0) {
+            throw new IllegalArgumentException("signature size " + signatureSize + " must be a multiple of bands " + bands);
+        }
+        this.signatureSize = signatureSize;
+        this.bands = bands;
+        this.rowsPerBand = signatureSize / bands;
+        this.hashSeeds = new long[signatureSize];
+        // fixed seed so repeated runs produce the same candidates
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < signatureSize; i++) {
+            hashSeeds[i] = random.nextLong() | 1;
+        }
+        this.signatures = new int[1024 * signatureSize];
+    }
+
+    public void addPurchase(int userId, int productId) {
+        int index = productIndex.putIfAbsent(productId, productCount);
+        if (index == productCount) {
+            grow();
+            productIds[index] = productId;
+            Arrays.fill(signatures, index * signatureSize, (index + 1) * signatureSize, Integer.MAX_VALUE);
+            productCount++;
+        }
+        buyerRows[index]++;
+        int base = index * signatureSize;
+        for (int i = 0; i < signatureSize; i++) {
+            int hash = hash(userId, hashSeeds[i]);
+            if (hash < signatures[base + i]) {
+                signatures[base + i] = hash;
+            }
+        }
+    }
+
+    public int productCount() {
+        return productCount;
+    }
+
+    /**
+     * Purchase rows seen for productId; an upper bound on its distinct buyers.
+     */
+    public int buyerRows(int productId) {
+        int index = productIndex.get(productId, -1);
+        return index < 0 ? 0 : buyerRows[index];
+    }
+
+    /**
+     * Estimated Jaccard similarity of two products' buyer sets, or 0 if either is unknown.
+     */
+    public double estimateJaccard(int productA, int productB) {
+        int a = productIndex.get(productA, -1);
+        int b = productIndex.get(productB, -1);
+        if (a < 0 || b < 0) {
+            return 0;
+        }
+        return (double) matchingRows(a, b, 0, signatureSize) / signatureSize;
+    }
+
+    /**
+     * Visits every candidate pair once: the first band in which the two products share
+     * a bucket reports them. Buckets larger than {@code maxBucketSize} are skipped, they
+     * come from hash collisions or products bought by almost everyone.
+     *
+     * @return number of buckets skipped for being too large
+     */
+    public int forEachCandidatePair(int maxBucketSize, CandidateConsumer consumer) {
+        long[] keyed = new long[productCount];
+        int skipped = 0;
+        for (int band = 0; band < bands; band++) {
+            int from = band * rowsPerBand;
+            for (int p = 0; p < productCount; p++) {
+                keyed[p] = ((long) bandHash(p, from) << 32) | p;
+            }
+            Arrays.sort(keyed);
+
+            int start = 0;
+            while (start < productCount) {
+                int end = start + 1;
+                while (end < productCount && (keyed[end] >>> 32) == (keyed[start] >>> 32)) {
+                    end++;
+                }
+                if (end - start > maxBucketSize) {
+                    skipped++;
+                } else {
+                    for (int i = start; i < end; i++) {
+                        int a = (int) keyed[i];
+                        for (int j = i + 1; j < end; j++) {
+                            int b = (int) keyed[j];
+                            // a real band match, and no earlier band already reported the pair
+                            if (matchingRows(a, b, from, from + rowsPerBand) == rowsPerBand
+                                    && !sharesEarlierBand(a, b, band)) {
+                                consumer.accept(productIds[a], productIds[b]);
+                            }
+                        }
+                    }
+                }
+                start = end;
+            }
+        }
+        return skipped;
+    }
+
+    private boolean sharesEarlierBand(int a, int b, int band) {
+        for (int earlier = 0; earlier < band; earlier++) {
+            int from = earlier * rowsPerBand;
+            if (matchingRows(a, b, from, from + rowsPerBand) == rowsPerBand) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int matchingRows(int a, int b, int from, int to) {
+        int baseA = a * signatureSize;
+        int baseB = b * signatureSize;
+        int matches = 0;
+        for (int i = from; i < to; i++) {
+            if (signatures[baseA + i] == signatures[baseB + i]) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private int bandHash(int product, int from) {
+        int base = product * signatureSize + from;
+        int hash = 1;
+        for (int i = 0; i < rowsPerBand; i++) {
+            hash = 31 * hash + signatures[base + i];
+        }
+        return hash;
+    }
+
+    private void grow() {
+        if (productCount == productIds.length) {
+            int capacity = productCount << 1;
+            productIds = Arrays.copyOf(productIds, capacity);
+            buyerRows = Arrays.copyOf(buyerRows, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * signatureSize);
+        }
+    }
+
+    private static int hash(int value, long seed) {
+        long h = (value + 0x9E3779B97F4A7C15L) * seed;
+        h ^= h >>> 31;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    @FunctionalInterface
+    public interface CandidateConsumer {
+        void accept(int productA, int productB);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable product id to top-K neighbor lists, stored in compressed sparse row form.
+ * Each row holds distinct neighbor ids with their scores, highest score first.
+ */
+public final class NeighborIndex {
+
+    public static final NeighborIndex EMPTY = new NeighborIndex(new IntIntHashMap(), new int[1], new int[0], new float[0]);
+
+    private final IntIntHashMap rowOf;
+    private final int[] rowOffsets;
+    private final int[] neighborIds;
+    private final float[] scores;
+
+    private NeighborIndex(IntIntHashMap rowOf, int[] rowOffsets, int[] neighborIds, float[] scores) {
+        this.rowOf = rowOf;
+        this.rowOffsets = rowOffsets;
+        this.neighborIds = neighborIds;
+        this.scores = scores;
+    }
+
+    public int productCount() {
+        return rowOffsets.length - 1;
+    }
+
+    public int size() {
+        return neighborIds.length;
+    }
+
+    /**
+     * First position of productId's neighbors; equals {@link #end(int)} if it has none.
+     */
+    public int start(int productId) {
+        int row = rowOf.get(productId, -1);
+        return row < 0 ? 0 : rowOffsets[row];
+    }
+
+    public int end(int productId) {
+        int row = rowOf.get(productId, -1);
+        return row < 0 ? 0 : rowOffsets[row + 1];
+    }
+
+    public int neighborAt(int position) {
+        return neighborIds[position];
+    }
+
+    public float scoreAt(int position) {
+        return scores[position];
+    }
+
+    /**
+     * Collects (product, neighbor, score) entries in any order. Scores are expected
+     * to be non-negative; a neighbor listed twice for a product keeps its best score.
+     */
+    public static final class Builder {
+
+        private int[] entryProducts = new int[1024];
+        private int[] entryNeighbors = new int[1024];
+        private float[] entryScores = new float[1024];
+        private int size;
+
+        public void add(int productId, int neighborId, double score) {
+            if (size == entryProducts.length) {
+                entryProducts = Arrays.copyOf(entryProducts, size << 1);
+                entryNeighbors = Arrays.copyOf(entryNeighbors, size << 1);
+                entryScores = Arrays.copyOf(entryScores, size << 1);
+            }
+            entryProducts[size] = productId;
+            entryNeighbors[size] = neighborId;
+            entryScores[size] = (float) Math.max(0, score);
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param topK neighbors kept per product
+         */
+        public NeighborIndex build(int topK) {
+            IntIntHashMap rowOf = new IntIntHashMap();
+            int[] rowProducts = new int[16];
+            int rowCount = 0;
+            for (int i = 0; i < size; i++) {
+                int row = rowOf.putIfAbsent(entryProducts[i], rowCount);
+                if (row == rowCount) {
+                    if (rowCount == rowProducts.length) {
+                        rowProducts = Arrays.copyOf(rowProducts, rowCount << 1);
+                    }
+                    rowProducts[rowCount++] = entryProducts[i];
+                }
+            }
+
+            // counting sort entries by row; each is packed as (score bits, neighbor) so
+            // sorting a row's longs orders it by score. Non-negative float bits sort like the floats.
+            int[] offsets = new int[rowCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[rowOf.get(entryProducts[i], 0) + 1]++;
+            }
+            for (int r = 0; r < rowCount; r++) {
+                offsets[r + 1] += offsets[r];
+            }
+            int[] cursor = Arrays.copyOf(offsets, rowCount);
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                int row = rowOf.get(entryProducts[i], 0);
+                packed[cursor[row]++] = ((long) Float.floatToIntBits(entryScores[i]) << 32)
+                    | (entryNeighbors[i] & 0xFFFFFFFFL);
+            }
+
+            entryProducts = new int[0];
+            entryNeighbors = new int[0];
+            entryScores = new float[0];
+            size = 0;
+
+            int[] rowOffsets = new int[rowCount + 1];
+            int[] neighbors = new int[Math.min(packed.length, rowCount * Math.max(0, topK))];
+            float[] scores = new float[neighbors.length];
+            // marks the last row a neighbor was taken for, so duplicates are skipped without clearing
+            IntIntHashMap takenInRow = new IntIntHashMap();
+            int write = 0;
+            for (int r = 0; r < rowCount; r++) {
+                int start = offsets[r];
+                int end = offsets[r + 1];
+                Arrays.sort(packed, start, end);
+                rowOffsets[r] = write;
+                int kept = 0;
+                for (int i = end - 1; i >= start && kept < topK; i--) {
+                    int neighbor = (int) packed[i];
+                    if (neighbor == rowProducts[r] || takenInRow.get(neighbor, -1) == r) {
+                        continue;
+                    }
+                    takenInRow.put(neighbor, r);
+                    neighbors[write] = neighbor;
+                    scores[write] = Float.intBitsToFloat((int) (packed[i] >>> 32));
+                    write++;
+                    kept++;
+                }
+            }
+            rowOffsets[rowCount] = write;
+            return new NeighborIndex(rowOf, rowOffsets, Arrays.copyOf(neighbors, write), Arrays.copyOf(scores, write));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+
+/**
+ * Memory-capped counter for unordered (a, b) id pairs, keeping only the heavy hitters.
+ *
+ * A Misra-Gries style summary: at most {@code capacity} pairs are tracked in an
+ * open-addressing table. When it fills up, every count is lowered by the median
+ * count and pairs that reach zero are evicted, which frees at least half the table.
+ * Reported counts are therefore lower bounds, each off by at most {@link #error()},
+ * while pairs that occur often enough are never lost. Ids must be positive.
+ */
+public final class PairCountSketch {
+
+    private static final long FREE_KEY = 0;
+
+    private final int capacity;
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+    private long error;
+
+    public PairCountSketch(int capacity) {
+        this.capacity = Math.max(16, capacity);
+        allocate(this.capacity);
+    }
+
+    public void add(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        long key = a < b ? pack(a, b) : pack(b, a);
+        int slot = mix(key) & mask;
+        while (keys[slot] != FREE_KEY) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == capacity) {
+            evict();
+            add(a, b);
+            return;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Upper bound on how far any reported count is below the true count.
+     */
+    public long error() {
+        return error;
+    }
+
+    public void forEach(PairConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                consumer.accept((int) (keys[i] >>> 32), (int) keys[i], counts[i]);
+            }
+        }
+    }
+
+    private void evict() {
+        int[] live = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE_KEY) {
+                live[n++] = counts[i];
+            }
+        }
+        Arrays.sort(live);
+        int decrement = live[size / 2];
+        error += decrement;
+
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE_KEY && oldCounts[i] > decrement) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i] - decrement;
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int entries) {
+        // load factor stays below 0.75 at full capacity
+        int tableSize = Integer.highestOneBit((int) Math.min(1 << 30, entries / 0.75 + 1) - 1) << 1;
+        keys = new long[tableSize];
+        counts = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static long pack(int low, int high) {
+        return ((long) low << 32) | (high & 0xFFFFFFFFL);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int a, int b, int count);
+    }
+}
@@ -0,0 +1,598 @@
+package com.ecom.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable on-disk slice of the product search index, read through a read-only
+ * memory mapping so opening a segment costs a header read and the page cache
+ * holds the rest.
+ *
+ * Layout, little-endian:
+ * <pre>
+ * header    magic, docCount, termCount, totalLength, section offsets
+ * docs      int productId[docCount], int length[docCount]
+ * values    double price[docCount], int discount[docCount], byte active[docCount]
+ * postings  per term, varint (doc gap, weighted frequency) pairs
+ * terms     termCount + 1 entries of (int termStart, int docFrequency, int postingsStart);
+ *           the last one only marks where the previous term and postings end
+ * termBytes UTF-8 terms, sorted by unsigned bytes
+ * </pre>
+ * Fixed-width term entries allow binary search and prefix scans over the mapping
+ * without loading a dictionary. Documents are numbered 0..docCount-1 in the order
+ * they were added. A segment must stay under 2 GB.
+ */
+public final class SearchSegment {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int CATEGORY_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int MAGIC = 0x50535331; // "PSS1"
+    private static final int HEADER_BYTES = 4 * 4 + 8 + 5 * 4;
+    private static final int TERM_ENTRY_BYTES = 12;
+
+    private final Path path;
+    private final ByteBuffer data;
+    private final int docCount;
+    private final int termCount;
+    private final long totalLength;
+    private final int lengthsAt;
+    private final int pricesAt;
+    private final int discountsAt;
+    private final int activeAt;
+    private final int termsAt;
+    private final int termBytesAt;
+
+    private SearchSegment(Path path, ByteBuffer data) throws IOException {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a search segment: " + path);
+        }
+        docCount = data.getInt(4);
+        termCount = data.getInt(8);
+        totalLength = data.getLong(16);
+        int docsAt = data.getInt(24);
+        lengthsAt = docsAt + 4 * docCount;
+        pricesAt = data.getInt(28);
+        discountsAt = pricesAt + 8 * docCount;
+        activeAt = discountsAt + 4 * docCount;
+        termsAt = data.getInt(36);
+        termBytesAt = data.getInt(40);
+    }
+
+    public static SearchSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Search segment over 2 GB: " + path);
+            }
+            return new SearchSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                .order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Sum of the weighted lengths of all documents, dead or alive.
+     */
+    public long totalLength() {
+        return totalLength;
+    }
+
+    public long sizeInBytes() {
+        return data.capacity();
+    }
+
+    public int productId(int doc) {
+        return data.getInt(HEADER_BYTES + 4 * doc);
+    }
+
+    public int length(int doc) {
+        return data.getInt(lengthsAt + 4 * doc);
+    }
+
+    public double price(int doc) {
+        return data.getDouble(pricesAt + 8 * doc);
+    }
+
+    public int discount(int doc) {
+        return data.getInt(discountsAt + 4 * doc);
+    }
+
+    public boolean active(int doc) {
+        return data.get(activeAt + doc) != 0;
+    }
+
+    /**
+     * Entry of the term, or -1 if no document of this segment contains it.
+     */
+    public int findTerm(byte[] term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = compareTerm(middle, term);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First entry whose term is not below prefix; entries from there on start with
+     * prefix as long as {@link #termStartsWith} holds.
+     */
+    public int seekCeil(byte[] prefix) {
+        int low = 0;
+        int high = termCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareTerm(middle, prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public boolean termStartsWith(int entry, byte[] prefix) {
+        if (entry >= termCount) {
+            return false;
+        }
+        int start = termStart(entry);
+        if (termStart(entry + 1) - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String term(int entry) {
+        return new String(termBytes(entry), StandardCharsets.UTF_8);
+    }
+
+    public int docFrequency(int entry) {
+        return data.getInt(termsAt + entry * TERM_ENTRY_BYTES + 4);
+    }
+
+    public void forEachPosting(int entry, PostingConsumer consumer) {
+        int position = postingsStart(entry);
+        int end = postingsStart(entry + 1);
+        int doc = -1;
+        while (position < end) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(position++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = data.get(position++);
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += gap;
+            consumer.accept(doc, frequency);
+        }
+    }
+
+    /**
+     * Writes the live documents of sources, in order, into one new segment at path.
+     * Postings are copied over with renumbered documents; nothing is re-tokenized.
+     *
+     * @param deleted per source, the documents to leave out
+     * @return per source, the new number of every old document, -1 for dropped ones
+     */
+    public static int[][] merge(List<SearchSegment> sources, List<BitSet> deleted, Path path) throws IOException {
+        int[][] remap = new int[sources.size()][];
+        int next = 0;
+        long totalLength = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            SearchSegment source = sources.get(s);
+            remap[s] = new int[source.docCount];
+            for (int doc = 0; doc < source.docCount; doc++) {
+                if (deleted.get(s).get(doc)) {
+                    remap[s][doc] = -1;
+                } else {
+                    remap[s][doc] = next++;
+                    totalLength += source.length(doc);
+                }
+            }
+        }
+
+        try (Writer out = new Writer(path, next, totalLength)) {
+            for (int s = 0; s < sources.size(); s++) {
+                for (int doc = 0; doc < sources.get(s).docCount; doc++) {
+                    if (remap[s][doc] >= 0) {
+                        out.putInt(sources.get(s).productId(doc));
+                    }
+                }
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                for (int doc = 0; doc < sources.get(s).docCount; doc++) {
+                    if (remap[s][doc] >= 0) {
+                        out.putInt(sources.get(s).length(doc));
+                    }
+                }
+            }
+            out.startValues();
+            for (int s = 0; s < sources.size(); s++) {
+                for (int doc = 0; doc < sources.get(s).docCount; doc++) {
+                    if (remap[s][doc] >= 0) {
+                        out.putDouble(sources.get(s).price(doc));
+                    }
+                }
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                for (int doc = 0; doc < sources.get(s).docCount; doc++) {
+                    if (remap[s][doc] >= 0) {
+                        out.putInt(sources.get(s).discount(doc));
+                    }
+                }
+            }
+            for (int s = 0; s < sources.size(); s++) {
+                for (int doc = 0; doc < sources.get(s).docCount; doc++) {
+                    if (remap[s][doc] >= 0) {
+                        out.put((byte) (sources.get(s).active(doc) ? 1 : 0));
+                    }
+                }
+            }
+            out.startPostings();
+
+            // k-way merge of the sorted term dictionaries; sources are visited in order so documents stay sorted
+            int[] cursors = new int[sources.size()];
+            Postings merged = new Postings();
+            while (true) {
+                byte[] smallest = null;
+                for (int s = 0; s < sources.size(); s++) {
+                    if (cursors[s] < sources.get(s).termCount) {
+                        byte[] term = sources.get(s).termBytes(cursors[s]);
+                        if (smallest == null || Arrays.compareUnsigned(term, smallest) < 0) {
+                            smallest = term;
+                        }
+                    }
+                }
+                if (smallest == null) {
+                    break;
+                }
+                merged.clear();
+                for (int s = 0; s < sources.size(); s++) {
+                    SearchSegment source = sources.get(s);
+                    if (cursors[s] < source.termCount && source.compareTerm(cursors[s], smallest) == 0) {
+                        int[] docs = remap[s];
+                        source.forEachPosting(cursors[s], (doc, frequency) -> {
+                            if (docs[doc] >= 0) {
+                                merged.append(docs[doc], frequency);
+                            }
+                        });
+                        cursors[s]++;
+                    }
+                }
+                if (merged.docFrequency > 0) {
+                    out.addTerm(smallest, merged);
+                }
+            }
+        }
+        return remap;
+    }
+
+    private int compareTerm(int entry, byte[] term) {
+        int start = termStart(entry);
+        int length = termStart(entry + 1) - start;
+        int common = Math.min(length, term.length);
+        for (int i = 0; i < common; i++) {
+            int compared = Integer.compare(data.get(start + i) & 0xFF, term[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, term.length);
+    }
+
+    private byte[] termBytes(int entry) {
+        int start = termStart(entry);
+        byte[] term = new byte[termStart(entry + 1) - start];
+        data.get(start, term);
+        return term;
+    }
+
+    private int termStart(int entry) {
+        return termBytesAt + data.getInt(termsAt + entry * TERM_ENTRY_BYTES);
+    }
+
+    private int postingsStart(int entry) {
+        return data.getInt(termsAt + entry * TERM_ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Lowercased runs of letters and digits, in text order, with duplicates.
+     */
+    public static String[] tokens(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String[] split = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        return split.length > 0 && split[0].isEmpty() ? Arrays.copyOfRange(split, 1, split.length) : split;
+    }
+
+    @FunctionalInterface
+    public interface PostingConsumer {
+        void accept(int doc, int frequency);
+    }
+
+    /**
+     * One product as it is indexed.
+     */
+    public record Document(int productId, boolean active, double price, int discount, String title,
+            String category, String description) {
+    }
+
+    /**
+     * Collects documents in memory and writes them as one segment.
+     */
+    public static final class Builder {
+
+        private final List<Document> documents = new ArrayList<>();
+        private final Map<String, Postings> postings = new HashMap<>();
+        private final List<Integer> lengths = new ArrayList<>();
+        private long totalLength;
+
+        public Builder add(Document document) {
+            int doc = documents.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = addTokens(frequencies, document.title(), TITLE_WEIGHT)
+                + addTokens(frequencies, document.category(), CATEGORY_WEIGHT)
+                + addTokens(frequencies, document.description(), DESCRIPTION_WEIGHT);
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), t -> new Postings()).append(doc, entry.getValue());
+            }
+            documents.add(document);
+            lengths.add(length);
+            totalLength += length;
+            return this;
+        }
+
+        public int size() {
+            return documents.size();
+        }
+
+        public SearchSegment write(Path path) throws IOException {
+            try (Writer out = new Writer(path, documents.size(), totalLength)) {
+                for (Document document : documents) {
+                    out.putInt(document.productId());
+                }
+                for (Integer length : lengths) {
+                    out.putInt(length);
+                }
+                out.startValues();
+                for (Document document : documents) {
+                    out.putDouble(document.price());
+                }
+                for (Document document : documents) {
+                    out.putInt(document.discount());
+                }
+                for (Document document : documents) {
+                    out.put((byte) (document.active() ? 1 : 0));
+                }
+                out.startPostings();
+
+                List<Map.Entry<byte[], Postings>> terms = new ArrayList<>(postings.size());
+                for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                    terms.add(Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+                }
+                terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+                for (Map.Entry<byte[], Postings> term : terms) {
+                    out.addTerm(term.getKey(), term.getValue());
+                }
+            }
+            return open(path);
+        }
+
+        private static int addTokens(Map<String, Integer> frequencies, String text, int weight) {
+            String[] tokens = tokens(text);
+            for (String token : tokens) {
+                frequencies.merge(token, weight, Integer::sum);
+            }
+            return tokens.length * weight;
+        }
+    }
+
+    /**
+     * Growable delta + varint posting list; documents must be appended in increasing order.
+     */
+    private static final class Postings {
+
+        byte[] data = new byte[8];
+        int length;
+        int lastDoc = -1;
+        int docFrequency;
+
+        void append(int doc, int frequency) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            lastDoc = doc;
+            docFrequency++;
+        }
+
+        void clear() {
+            length = 0;
+            lastDoc = -1;
+            docFrequency = 0;
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * Streams a segment file section by section: docs and values through a buffer,
+     * postings as terms are added, then the term entries and bytes kept in memory,
+     * and finally the header. The file is forced to disk on close.
+     */
+    private static final class Writer implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final int docCount;
+        private final long totalLength;
+        private long position = HEADER_BYTES;
+        private int valuesAt;
+        private int postingsAt;
+        private int termCount;
+        private int[] entries = new int[3 * 1024];
+        private byte[] termBytes = new byte[8192];
+        private int termBytesLength;
+
+        Writer(Path path, int docCount, long totalLength) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.docCount = docCount;
+            this.totalLength = totalLength;
+            channel.position(HEADER_BYTES);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void startValues() {
+            valuesAt = checkedPosition();
+        }
+
+        void startPostings() {
+            postingsAt = checkedPosition();
+        }
+
+        void addTerm(byte[] term, Postings postings) throws IOException {
+            if (3 * (termCount + 2) > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            if (termBytesLength + term.length > termBytes.length) {
+                termBytes = Arrays.copyOf(termBytes, Math.max(termBytes.length * 2, termBytesLength + term.length));
+            }
+            entries[3 * termCount] = termBytesLength;
+            entries[3 * termCount + 1] = postings.docFrequency;
+            entries[3 * termCount + 2] = checkedPosition();
+            System.arraycopy(term, 0, termBytes, termBytesLength, term.length);
+            termBytesLength += term.length;
+            termCount++;
+
+            int written = 0;
+            while (written < postings.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(buffer.remaining(), postings.length - written);
+                buffer.put(postings.data, written, chunk);
+                written += chunk;
+            }
+            position += postings.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                entries[3 * termCount] = termBytesLength;
+                entries[3 * termCount + 1] = 0;
+                entries[3 * termCount + 2] = checkedPosition();
+                int termsAt = checkedPosition();
+                for (int i = 0; i < 3 * (termCount + 1); i++) {
+                    putInt(entries[i]);
+                }
+                int termBytesAt = checkedPosition();
+                for (int i = 0; i < termBytesLength; i++) {
+                    put(termBytes[i]);
+                }
+                checkedPosition();
+                flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(docCount).putInt(termCount).putInt(0).putLong(totalLength)
+                    .putInt(HEADER_BYTES).putInt(valuesAt).putInt(postingsAt).putInt(termsAt).putInt(termBytesAt);
+                header.flip();
+                channel.write(header, 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            position += bytes;
+        }
+
+        private int checkedPosition() {
+            if (position > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Search segment would exceed 2 GB");
+            }
+            return (int) position;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.ecom.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import com.ecom.model.ActivityEvent;
+
+/**
+ * Append-only activity log stored as fixed-size, memory-mapped segment files.
+ *
+ * Record layout: {@code [int length][int crc32][payload]} where the payload is
+ * {@code userId, productId, epochMillis, score, actionCode[, action], sessionId}.
+ * A zero length marks unwritten space, -1 marks the end of a full segment. Positions
+ * are {@code segmentIndex << 32 | offset}, so they order naturally across segments.
+ *
+ * One writer thread and one reader thread may use the log concurrently; the reader
+ * never goes past the last position the writer published.
+ */
+public final class SegmentedActivityLog implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SUFFIX = ".seg";
+    private static final String[] ACTIONS = { "VIEW", "CLICK", "ADD_TO_CART", "PURCHASE" };
+    private static final byte CUSTOM_ACTION = (byte) 0xFF;
+    // session ids and actions are short columns; this just bounds a record
+    private static final int MAX_STRING_BYTES = 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // writer state
+    private long writeSegment;
+    private MappedByteBuffer writeBuffer;
+    private final ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+    private final CRC32 writeCrc = new CRC32();
+    private volatile long committedPosition;
+
+    // reader state
+    private long readSegment = -1;
+    private MappedByteBuffer readBuffer;
+    private final CRC32 readCrc = new CRC32();
+
+    public SegmentedActivityLog(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        List<Long> segments = segmentIndexes();
+        if (segments.isEmpty()) {
+            openWriteSegment(0);
+            committedPosition = position(0, 0);
+            return;
+        }
+
+        long last = segments.get(segments.size() - 1);
+        openWriteSegment(last);
+        int end = recoverEnd(writeBuffer);
+        if (end < 0) {
+            openWriteSegment(last + 1);
+            end = 0;
+        }
+        writeBuffer.position(end);
+        committedPosition = position(writeSegment, end);
+    }
+
+    public static long position(long segment, int offset) {
+        return (segment << 32) | offset;
+    }
+
+    public static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    public static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Appends one event. Single writer thread only.
+     */
+    public void append(ActivityEvent event) throws IOException {
+        scratch.clear();
+        encode(event, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        if (HEADER_BYTES + length + 4 > segmentSize) {
+            throw new IOException("Activity record of " + length + " bytes does not fit a segment");
+        }
+
+        // keep room for the end marker
+        if (writeBuffer.position() + HEADER_BYTES + length + 4 > segmentSize) {
+            writeBuffer.putInt(writeBuffer.position(), END_OF_SEGMENT);
+            writeBuffer.force();
+            openWriteSegment(writeSegment + 1);
+        }
+
+        writeCrc.reset();
+        writeCrc.update(scratch.duplicate());
+        int start = writeBuffer.position();
+        writeBuffer.position(start + HEADER_BYTES);
+        writeBuffer.put(scratch);
+        writeBuffer.putInt(start + 4, (int) writeCrc.getValue());
+        // length last: a record is only visible once it is complete
+        writeBuffer.putInt(start, length);
+        committedPosition = position(writeSegment, writeBuffer.position());
+    }
+
+    /**
+     * Forces written records of the active segment to disk.
+     */
+    public void sync() {
+        writeBuffer.force();
+    }
+
+    public long committedPosition() {
+        return committedPosition;
+    }
+
+    /**
+     * Reads up to maxEvents records starting at position. Single reader thread only.
+     *
+     * @return position just after the last record handed to the consumer
+     */
+    public long read(long position, int maxEvents, Consumer<ActivityEvent> consumer) throws IOException {
+        long limit = committedPosition;
+        long current = position;
+        int count = 0;
+
+        while (count < maxEvents && current < limit) {
+            long segment = segmentOf(current);
+            int offset = offsetOf(current);
+            MappedByteBuffer buffer = readSegment(segment);
+            if (buffer == null) {
+                // segment was never written or already removed; continue with the next one
+                current = position(segment + 1, 0);
+                continue;
+            }
+
+            int length = offset + HEADER_BYTES <= segmentSize ? buffer.getInt(offset) : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT || length == 0) {
+                if (segment >= segmentOf(limit)) {
+                    break;
+                }
+                current = position(segment + 1, 0);
+                continue;
+            }
+
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+            readCrc.reset();
+            readCrc.update(payload.duplicate());
+            if ((int) readCrc.getValue() != buffer.getInt(offset + 4)) {
+                throw new IOException("Corrupt activity record at segment " + segment + " offset " + offset);
+            }
+            consumer.accept(decode(payload));
+            current = position(segment, offset + HEADER_BYTES + length);
+            count++;
+        }
+        return current;
+    }
+
+    /**
+     * Deletes segments that lie entirely before position, except the one being written.
+     */
+    public int deleteSegmentsBefore(long position) throws IOException {
+        int deleted = 0;
+        long keepFrom = Math.min(segmentOf(position), writeSegment);
+        for (long segment : segmentIndexes()) {
+            if (segment < keepFrom) {
+                Files.deleteIfExists(segmentPath(segment));
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public long firstPosition() throws IOException {
+        List<Long> segments = segmentIndexes();
+        return segments.isEmpty() ? 0 : position(segments.get(0), 0);
+    }
+
+    @Override
+    public void close() {
+        if (writeBuffer != null) {
+            writeBuffer.force();
+        }
+    }
+
+    private void openWriteSegment(long segment) throws IOException {
+        writeBuffer = map(segment, true);
+        writeSegment = segment;
+    }
+
+    private MappedByteBuffer readSegment(long segment) throws IOException {
+        if (segment != readSegment) {
+            readBuffer = Files.exists(segmentPath(segment)) ? map(segment, false) : null;
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer map(long segment, boolean write) throws IOException {
+        Path path = segmentPath(segment);
+        StandardOpenOption[] options = write
+            ? new StandardOpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE }
+            : new StandardOpenOption[] { StandardOpenOption.READ };
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            // mappings stay valid after the channel is closed
+            return channel.map(write ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0,
+                write ? segmentSize : Math.min(segmentSize, channel.size()));
+        }
+    }
+
+    /**
+     * Scans a segment for the first unwritten or torn record.
+     *
+     * @return end offset, or -1 if the segment was closed with an end marker
+     */
+    private int recoverEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        CRC32 crc = new CRC32();
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length == END_OF_SEGMENT) {
+                return -1;
+            }
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(offset + HEADER_BYTES).limit(offset + HEADER_BYTES + length);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        // wipe a torn tail so the next append starts from clean space
+        for (int i = offset; i < Math.min(segmentSize, offset + HEADER_BYTES); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        return offset;
+    }
+
+    private List<Long> segmentIndexes() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                .filter(name -> name.endsWith(SUFFIX))
+                .forEach(name -> segments.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%020d%s", segment, SUFFIX));
+    }
+
+    private static void encode(ActivityEvent event, ByteBuffer out) {
+        out.putInt(event.userId());
+        out.putInt(event.productId());
+        out.putLong(event.timestamp().toEpochMilli());
+        out.putDouble(event.score());
+        byte code = actionCode(event.action());
+        out.put(code);
+        if (code == CUSTOM_ACTION) {
+            putString(out, event.action());
+        }
+        putString(out, event.sessionId());
+    }
+
+    private static ActivityEvent decode(ByteBuffer in) {
+        int userId = in.getInt();
+        int productId = in.getInt();
+        Instant timestamp = Instant.ofEpochMilli(in.getLong());
+        double score = in.getDouble();
+        byte code = in.get();
+        String action = code == CUSTOM_ACTION ? getString(in) : ACTIONS[code];
+        String sessionId = getString(in);
+        return new ActivityEvent(userId, productId, action, timestamp, sessionId, score);
+    }
+
+    private static byte actionCode(String action) {
+        for (int i = 0; i < ACTIONS.length; i++) {
+            if (ACTIONS[i].equals(action)) {
+                return (byte) i;
+            }
+        }
+        return CUSTOM_ACTION;
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_STRING_BYTES);
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
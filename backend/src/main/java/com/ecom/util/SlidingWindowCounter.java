@@ -0,0 +1,89 @@
+package com.ecom.util;
+
+import java.time.Duration;
+
+/**
+ * Per-key event counts over a sliding time window, kept as a ring of fixed-width
+ * buckets. Each bucket holds the counts of one time slice; when the window moves
+ * past a bucket its counts are subtracted from the running totals and the bucket
+ * is reused, so adds and expiry never rescan history.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public final class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    // slot i holds the bucket whose absolute index (epochMillis / bucketMillis) is i mod length
+    private final IntIntHashMap[] buckets;
+    private final IntIntHashMap totals = new IntIntHashMap();
+    private long newestBucket = Long.MIN_VALUE;
+
+    public SlidingWindowCounter(Duration window, Duration bucket) {
+        this.bucketMillis = bucket.toMillis();
+        int bucketCount = (int) Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis);
+        this.buckets = new IntIntHashMap[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new IntIntHashMap();
+        }
+    }
+
+    /**
+     * Counts one event for key at timestampMillis. Events older than the window are ignored.
+     */
+    public void add(int key, long timestampMillis) {
+        long index = timestampMillis / bucketMillis;
+        if (index > newestBucket) {
+            advanceTo(timestampMillis);
+        }
+        if (index <= newestBucket - buckets.length) {
+            return;
+        }
+        buckets[slot(index)].addTo(key, 1);
+        totals.addTo(key, 1);
+    }
+
+    /**
+     * Moves the window so it ends at nowMillis, expiring buckets that fell out of it.
+     */
+    public void advanceTo(long nowMillis) {
+        long index = nowMillis / bucketMillis;
+        if (index <= newestBucket) {
+            return;
+        }
+        if (newestBucket == Long.MIN_VALUE || index - newestBucket >= buckets.length) {
+            totals.clear();
+            for (IntIntHashMap bucket : buckets) {
+                bucket.clear();
+            }
+        } else {
+            for (long next = newestBucket + 1; next <= index; next++) {
+                int slot = slot(next);
+                buckets[slot].forEach((key, count) -> totals.addTo(key, -count));
+                buckets[slot].clear();
+            }
+        }
+        newestBucket = index;
+    }
+
+    public int count(int key) {
+        return totals.get(key, 0);
+    }
+
+    /**
+     * Keys with the k highest window counts, highest first. Uses a bounded min-heap,
+     * O(n log k) over the keys with a non-zero count.
+     */
+    public int[] top(int k) {
+        TopKSelector top = new TopKSelector(k);
+        totals.forEach((key, count) -> {
+            if (count > 0) {
+                top.offer(key, count);
+            }
+        });
+        return top.idsDescending();
+    }
+
+    private int slot(long index) {
+        return (int) Math.floorMod(index, (long) buckets.length);
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sparse 0/1 (or multiplicity) matrix in compressed sparse row form.
+ * Rows and columns are dense int indexes; callers map database ids onto them
+ * with an {@link IntIntHashMap}.
+ */
+public final class SparseIncidenceMatrix {
+
+    private final int[] rowOffsets;
+    private final int[] columns;
+
+    private SparseIncidenceMatrix(int[] rowOffsets, int[] columns) {
+        this.rowOffsets = rowOffsets;
+        this.columns = columns;
+    }
+
+    public int rows() {
+        return rowOffsets.length - 1;
+    }
+
+    public int nonZeros() {
+        return rowOffsets[rowOffsets.length - 1];
+    }
+
+    public int rowStart(int row) {
+        return rowOffsets[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowOffsets[row + 1];
+    }
+
+    public int rowLength(int row) {
+        return rowOffsets[row + 1] - rowOffsets[row];
+    }
+
+    public int column(int position) {
+        return columns[position];
+    }
+
+    /**
+     * Collects (row, column) entries in insertion order and compresses them
+     * with a counting sort on build.
+     */
+    public static final class Builder {
+
+        private int[] entryRows = new int[1024];
+        private int[] entryColumns = new int[1024];
+        private int size;
+
+        public void add(int row, int column) {
+            if (size == entryRows.length) {
+                entryRows = Arrays.copyOf(entryRows, size << 1);
+                entryColumns = Arrays.copyOf(entryColumns, size << 1);
+            }
+            entryRows[size] = row;
+            entryColumns[size] = column;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param rowCount number of rows (at least max row index + 1)
+         * @param distinct collapse repeated (row, column) entries into one
+         */
+        public SparseIncidenceMatrix build(int rowCount, boolean distinct) {
+            int[] offsets = new int[rowCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[entryRows[i] + 1]++;
+            }
+            for (int r = 0; r < rowCount; r++) {
+                offsets[r + 1] += offsets[r];
+            }
+
+            int[] cursor = Arrays.copyOf(offsets, rowCount);
+            int[] cols = new int[size];
+            for (int i = 0; i < size; i++) {
+                cols[cursor[entryRows[i]]++] = entryColumns[i];
+            }
+
+            // release the coordinate buffers before the optional compaction pass
+            entryRows = new int[0];
+            entryColumns = new int[0];
+            size = 0;
+
+            if (!distinct) {
+                return new SparseIncidenceMatrix(offsets, cols);
+            }
+
+            int write = 0;
+            int start = 0;
+            for (int r = 0; r < rowCount; r++) {
+                int end = offsets[r + 1];
+                Arrays.sort(cols, start, end);
+                offsets[r] = write;
+                for (int i = start; i < end; i++) {
+                    if (i == start || cols[i] != cols[i - 1]) {
+                        cols[write++] = cols[i];
+                    }
+                }
+                start = end;
+            }
+            offsets[rowCount] = write;
+            return new SparseIncidenceMatrix(offsets, Arrays.copyOf(cols, write));
+        }
+    }
+}
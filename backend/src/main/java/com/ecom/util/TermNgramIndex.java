@@ -0,0 +1,222 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+
+/**
+ * Character bigram index over the term dictionary of one {@link SearchSegment}, for
+ * finding the terms within a few edits of a misspelled query token.
+ *
+ * Every term is split into its distinct bigrams, padded at both ends so the first and
+ * last characters count too, and each bigram lists the terms containing it. One edit
+ * destroys at most two bigrams, so a term within k edits of a token shares at least
+ * (distinct bigrams of the token - 2k) of them; only terms that pass this count and
+ * a length check are verified with a Levenshtein distance that gives up past k.
+ * Terms sharing no bigram at all are never candidates, so a token with at most 2k
+ * distinct bigrams, such as "aaa" at two edits, can miss some of them.
+ * Bigrams found in very many terms are not scanned and lower the required count
+ * instead, which keeps a lookup bounded on large dictionaries.
+ *
+ * Built in memory from a segment and immutable afterwards.
+ */
+public final class TermNgramIndex {
+
+    private static final char PAD = '\u0001';
+    // bigrams shared by more terms than this are skipped, each lowering the required overlap by one
+    private static final int MAX_GRAM_TERMS = 16_384;
+
+    private final char[] chars;
+    private final int[] termStart;
+    private final IntIntHashMap gramOrdinals;
+    private final int[] gramStart;
+    private final int[] gramTerms;
+
+    private TermNgramIndex(char[] chars, int[] termStart, IntIntHashMap gramOrdinals, int[] gramStart,
+            int[] gramTerms) {
+        this.chars = chars;
+        this.termStart = termStart;
+        this.gramOrdinals = gramOrdinals;
+        this.gramStart = gramStart;
+        this.gramTerms = gramTerms;
+    }
+
+    public static TermNgramIndex build(SearchSegment segment) {
+        int termCount = segment.termCount();
+        StringBuilder pool = new StringBuilder();
+        int[] termStart = new int[termCount + 1];
+        IntIntHashMap gramOrdinals = new IntIntHashMap();
+        // distinct bigram ordinals of every term, term by term
+        int[] termGrams = new int[Math.max(16, termCount * 8)];
+        int[] termGramStart = new int[termCount + 1];
+        int[] counts = new int[64];
+        int[] keys = new int[32];
+        int used = 0;
+        for (int entry = 0; entry < termCount; entry++) {
+            String term = segment.term(entry);
+            termStart[entry] = pool.length();
+            pool.append(term);
+            termGramStart[entry] = used;
+            if (keys.length < term.length() + 1) {
+                keys = new int[term.length() + 1];
+            }
+            int distinct = gramKeys(term, keys);
+            if (used + distinct > termGrams.length) {
+                termGrams = Arrays.copyOf(termGrams, Math.max(used + distinct, termGrams.length * 2));
+            }
+            for (int i = 0; i < distinct; i++) {
+                int ordinal = gramOrdinals.putIfAbsent(keys[i], gramOrdinals.size());
+                if (ordinal == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+                counts[ordinal]++;
+                termGrams[used++] = ordinal;
+            }
+        }
+        termStart[termCount] = pool.length();
+        termGramStart[termCount] = used;
+
+        int gramCount = gramOrdinals.size();
+        int[] gramStart = new int[gramCount + 1];
+        for (int ordinal = 0; ordinal < gramCount; ordinal++) {
+            gramStart[ordinal + 1] = gramStart[ordinal] + counts[ordinal];
+        }
+        // terms are visited in dictionary order, so every list comes out sorted
+        int[] next = Arrays.copyOf(gramStart, gramCount);
+        int[] gramTerms = new int[used];
+        for (int entry = 0; entry < termCount; entry++) {
+            for (int i = termGramStart[entry]; i < termGramStart[entry + 1]; i++) {
+                gramTerms[next[termGrams[i]]++] = entry;
+            }
+        }
+        char[] chars = new char[pool.length()];
+        pool.getChars(0, chars.length, chars, 0);
+        return new TermNgramIndex(chars, termStart, gramOrdinals, gramStart, gramTerms);
+    }
+
+    public int termCount() {
+        return termStart.length - 1;
+    }
+
+    /**
+     * Rough heap footprint of the arrays.
+     */
+    public long sizeInBytes() {
+        return 2L * chars.length + 4L * termStart.length + 12L * gramStart.length + 4L * gramTerms.length;
+    }
+
+    /**
+     * Passes the dictionary entries within maxEdits of token, with their distance, to
+     * consumer. At most maxCandidates entries, those sharing the most bigrams with the
+     * token, are verified.
+     */
+    public void matches(String token, int maxEdits, int maxCandidates, MatchConsumer consumer) {
+        int length = token.length();
+        int[] keys = new int[length + 1];
+        int distinct = gramKeys(token, keys);
+        IntIntHashMap shared = new IntIntHashMap(256);
+        int required = distinct - 2 * maxEdits;
+        for (int i = 0; i < distinct; i++) {
+            int ordinal = gramOrdinals.get(keys[i], -1);
+            if (ordinal < 0) {
+                continue;
+            }
+            int from = gramStart[ordinal];
+            int to = gramStart[ordinal + 1];
+            if (to - from > MAX_GRAM_TERMS) {
+                required--;
+                continue;
+            }
+            for (int t = from; t < to; t++) {
+                shared.addTo(gramTerms[t], 1);
+            }
+        }
+
+        int minShared = Math.max(1, required);
+        TopKSelector candidates = new TopKSelector(maxCandidates);
+        shared.forEach((entry, count) -> {
+            if (count >= minShared && Math.abs(termStart[entry + 1] - termStart[entry] - length) <= maxEdits) {
+                candidates.offer(entry, count);
+            }
+        });
+        int[] previous = new int[length + maxEdits + 2];
+        int[] current = new int[previous.length];
+        for (int entry : candidates.idsDescending()) {
+            int distance = distance(token, termStart[entry], termStart[entry + 1] - termStart[entry], maxEdits,
+                previous, current);
+            if (distance <= maxEdits) {
+                consumer.accept(entry, distance);
+            }
+        }
+    }
+
+    /**
+     * Levenshtein distance between a and the pooled term at start, or max + 1 once it
+     * is certain to exceed max. Only the diagonal band of width 2 * max + 1 is filled
+     * and a row whose cells all exceed max ends the computation. The two rows must
+     * hold length + 1 cells.
+     */
+    private int distance(String a, int start, int length, int max, int[] previous, int[] current) {
+        int n = a.length();
+        if (Math.abs(n - length) > max) {
+            return max + 1;
+        }
+        for (int j = 0; j <= length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(length, i + max);
+            int rowMin;
+            if (from == 1) {
+                current[0] = i;
+                rowMin = i;
+            } else {
+                current[from - 1] = max + 1;
+                rowMin = max + 1;
+            }
+            char c = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c == chars[start + j - 1] ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (to < length) {
+                current[to + 1] = max + 1;
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[length], max + 1);
+    }
+
+    /**
+     * Writes the distinct padded bigrams of text to keys, two chars per int, and
+     * returns how many there are. keys must hold text.length() + 1 values.
+     */
+    private static int gramKeys(String text, int[] keys) {
+        int length = text.length();
+        char previous = PAD;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : PAD;
+            keys[i] = previous << 16 | c;
+            previous = c;
+        }
+        Arrays.sort(keys, 0, length + 1);
+        int distinct = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[distinct++] = keys[i];
+            }
+        }
+        return distinct;
+    }
+
+    @FunctionalInterface
+    public interface MatchConsumer {
+        void accept(int entry, int distance);
+    }
+}
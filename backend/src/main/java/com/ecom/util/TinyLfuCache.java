@@ -0,0 +1,259 @@
+package com.ecom.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded int-keyed cache with expiry and W-TinyLFU admission.
+ *
+ * New entries land in a small LRU window (1% of the capacity). An entry pushed out of
+ * the window only enters the main region if a 4-bit count-min sketch says its key
+ * was requested more often than the main region's eviction victim; otherwise the
+ * newcomer is dropped. The main region is a segmented LRU: hits in probation promote
+ * to protected (80% of main), so one-off lookups cannot flush frequently used entries.
+ * The sketch halves all counters every {@code 10 * maximumSize} increments, letting
+ * old popularity fade.
+ *
+ * All operations take the cache's monitor; each is O(1).
+ */
+public final class TinyLfuCache<V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final long ttlMillis;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final Map<Integer, Node<V>> data = new HashMap<>();
+    private final FrequencySketch sketch;
+
+    // per segment: sentinel of a circular doubly linked list, head.next is least recent
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Node<V>[] segments = new Node[3];
+    private final int[] segmentSizes = new int[3];
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public TinyLfuCache(int maximumSize, long ttlMillis) {
+        int capacity = Math.max(2, maximumSize);
+        this.ttlMillis = ttlMillis;
+        this.windowMax = Math.max(1, capacity / 100);
+        this.mainMax = capacity - windowMax;
+        this.protectedMax = mainMax * 4 / 5;
+        this.sketch = new FrequencySketch(capacity);
+        for (int s = 0; s < segments.length; s++) {
+            Node<V> sentinel = new Node<>(0, null, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            segments[s] = sentinel;
+        }
+    }
+
+    /**
+     * Cached value for key, or null if absent or expired.
+     */
+    public synchronized V get(int key) {
+        sketch.increment(key);
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        if (node.expiresAt <= System.currentTimeMillis()) {
+            remove(node);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        onHit(node);
+        return node.value;
+    }
+
+    public synchronized void put(int key, V value) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        Node<V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            onHit(node);
+            return;
+        }
+        node = new Node<>(key, value, expiresAt);
+        data.put(key, node);
+        append(WINDOW, node);
+        if (segmentSizes[WINDOW] > windowMax) {
+            admit(segments[WINDOW].next);
+        }
+    }
+
+    public synchronized void invalidate(int key) {
+        Node<V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        invalidations += data.size();
+        data.clear();
+        for (int s = 0; s < segments.length; s++) {
+            segments[s].prev = segments[s];
+            segments[s].next = segments[s];
+            segmentSizes[s] = 0;
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long requests = hits + misses;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", data.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hits / requests);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    /**
+     * Moves the window's oldest entry into probation if the main region has room or
+     * the entry is more popular than the main region's victim; otherwise drops it.
+     */
+    private void admit(Node<V> candidate) {
+        unlink(candidate);
+        if (segmentSizes[PROBATION] + segmentSizes[PROTECTED] < mainMax) {
+            append(PROBATION, candidate);
+            return;
+        }
+        Node<V> victim = segmentSizes[PROBATION] > 0 ? segments[PROBATION].next : segments[PROTECTED].next;
+        if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+            remove(victim);
+            append(PROBATION, candidate);
+        } else {
+            data.remove(candidate.key);
+        }
+        evictions++;
+    }
+
+    private void onHit(Node<V> node) {
+        int segment = node.segment;
+        unlink(node);
+        if (segment == PROBATION) {
+            append(PROTECTED, node);
+            if (segmentSizes[PROTECTED] > protectedMax) {
+                Node<V> demoted = segments[PROTECTED].next;
+                unlink(demoted);
+                append(PROBATION, demoted);
+            }
+        } else {
+            append(segment, node);
+        }
+    }
+
+    private void remove(Node<V> node) {
+        unlink(node);
+        data.remove(node.key);
+    }
+
+    private void append(int segment, Node<V> node) {
+        Node<V> sentinel = segments[segment];
+        node.segment = segment;
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+        segmentSizes[segment]++;
+    }
+
+    private void unlink(Node<V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        segmentSizes[node.segment]--;
+    }
+
+    private static final class Node<V> {
+
+        final int key;
+        V value;
+        long expiresAt;
+        int segment;
+        Node<V> prev;
+        Node<V> next;
+
+        Node(int key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, 16 per long, four rows.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+        };
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int length = Integer.highestOneBit(Math.max(8, maximumSize) - 1) << 1;
+            this.table = new long[length];
+            this.sampleSize = 10 * maximumSize;
+        }
+
+        void increment(int key) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long hash = hash(key, row);
+                int slot = (int) hash & (table.length - 1);
+                int shift = (int) (hash >>> 60) << 2;
+                if (((table[slot] >>> shift) & 0xF) < 15) {
+                    table[slot] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(int key) {
+            int frequency = 15;
+            for (int row = 0; row < SEEDS.length; row++) {
+                long hash = hash(key, row);
+                int slot = (int) hash & (table.length - 1);
+                int shift = (int) (hash >>> 60) << 2;
+                frequency = Math.min(frequency, (int) ((table[slot] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            }
+            additions /= 2;
+        }
+
+        private static long hash(int key, int row) {
+            long h = (key + 1L) * SEEDS[row];
+            return h ^ (h >>> 29);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecom.util;
+
+/**
+ * Keeps the k highest scoring int ids seen so far in a bounded min-heap of
+ * primitive arrays: O(n log k) for n offers and no boxing.
+ */
+public final class TopKSelector {
+
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    public TopKSelector(int k) {
+        this.ids = new int[Math.max(0, k)];
+        this.scores = new double[ids.length];
+    }
+
+    public void offer(int id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Kept ids, highest score first. Empties the selector.
+     */
+    public int[] idsDescending() {
+        int[] result = new int[size];
+        for (int n = size; n > 0; n--) {
+            result[n - 1] = ids[0];
+            size = n - 1;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecom.util;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^exponent.
+ *
+ * The cumulative distribution is precomputed once, so a sample is one binary search.
+ * Immutable; callers pass their own random source, so one sampler can be shared
+ * across threads.
+ */
+public final class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive: " + n);
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        return sample(random.nextDouble());
+    }
+
+    /**
+     * The rank at a given point in [0, 1) of the distribution, e.g. for a hashed key.
+     */
+    public int sample(double uniform) {
+        int index = Arrays.binarySearch(cdf, uniform);
+        return Math.min(cdf.length - 1, index < 0 ? -index - 1 : index);
+    }
+
+    public int size() {
+        return cdf.length;
+    }
+}
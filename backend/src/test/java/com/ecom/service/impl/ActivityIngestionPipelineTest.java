@@ -0,0 +1,104 @@
+package com.ecom.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.ecom.model.ActivityEvent;
+import com.ecom.util.BoundedRingBuffer;
+
+/**
+ * Overflow policies of the ingestion ring. The flusher is never started, so the ring
+ * only empties when a test polls it.
+ */
+class ActivityIngestionPipelineTest {
+
+    private BoundedRingBuffer<ActivityEvent> ring;
+
+    private ActivityIngestionPipeline pipeline(ActivityIngestionPipeline.OverflowPolicy policy, int capacity) {
+        ActivityIngestionPipeline pipeline = new ActivityIngestionPipeline();
+        ring = new BoundedRingBuffer<>(capacity);
+        ReflectionTestUtils.setField(pipeline, "ring", ring);
+        ReflectionTestUtils.setField(pipeline, "overflowPolicy", policy);
+        ReflectionTestUtils.setField(pipeline, "flushBatchSize", Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(pipeline, "sampleRate", 0.0);
+        ReflectionTestUtils.setField(pipeline, "blockTimeoutMs", 20L);
+        return pipeline;
+    }
+
+    private static ActivityEvent event(String action) {
+        return new ActivityEvent(1, 1, action, Instant.now(), null, 1.0);
+    }
+
+    @Test
+    void dropRejectsEventsOnceTheRingIsFull() {
+        ActivityIngestionPipeline pipeline = pipeline(ActivityIngestionPipeline.OverflowPolicy.DROP, 4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.submit(event("VIEW")));
+        }
+        assertFalse(pipeline.submit(event("PURCHASE")));
+
+        Map<String, Object> stats = pipeline.stats();
+        assertEquals(4L, stats.get("accepted"));
+        assertEquals(1L, stats.get("dropped"));
+        assertEquals(0L, stats.get("sampledOut"));
+    }
+
+    @Test
+    void sampleThinsLowValueEventsAboveThreeQuartersFull() {
+        ActivityIngestionPipeline pipeline = pipeline(ActivityIngestionPipeline.OverflowPolicy.SAMPLE, 8);
+        for (int i = 0; i < 6; i++) {
+            assertTrue(pipeline.submit(event("VIEW")));
+        }
+        // 6 of 8 slots used: low-value events are sampled out, others still queue
+        assertFalse(pipeline.submit(event("CLICK")));
+        assertTrue(pipeline.submit(event("PURCHASE")));
+        assertTrue(pipeline.submit(event("CART")));
+        assertFalse(pipeline.submit(event("PURCHASE")));
+
+        Map<String, Object> stats = pipeline.stats();
+        assertEquals(8L, stats.get("accepted"));
+        assertEquals(1L, stats.get("sampledOut"));
+        assertEquals(1L, stats.get("dropped"));
+    }
+
+    @Test
+    void sampleKeepsEverythingBelowThreeQuartersFull() {
+        ActivityIngestionPipeline pipeline = pipeline(ActivityIngestionPipeline.OverflowPolicy.SAMPLE, 64);
+        for (int i = 0; i < 40; i++) {
+            assertTrue(pipeline.submit(event("VIEW")));
+        }
+        assertEquals(0L, pipeline.stats().get("sampledOut"));
+    }
+
+    @Test
+    void blockWaitsForSpaceThenDropsAfterTheTimeout() throws Exception {
+        ActivityIngestionPipeline pipeline = pipeline(ActivityIngestionPipeline.OverflowPolicy.BLOCK, 4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pipeline.submit(event("VIEW")));
+        }
+        assertFalse(pipeline.submit(event("PURCHASE")));
+        assertEquals(1L, pipeline.stats().get("dropped"));
+
+        ReflectionTestUtils.setField(pipeline, "blockTimeoutMs", 10_000L);
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            ring.poll();
+        });
+        consumer.start();
+        assertTrue(pipeline.submit(event("PURCHASE")));
+        consumer.join();
+
+        Map<String, Object> stats = pipeline.stats();
+        assertEquals(5L, stats.get("accepted"));
+        assertEquals(1L, stats.get("dropped"));
+    }
+}
@@ -0,0 +1,76 @@
+package com.ecom.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import com.ecom.model.Product;
+import com.ecom.model.UserActivity;
+import com.ecom.repository.ProductRepository;
+import com.ecom.repository.ProductSimilarityRepository;
+import com.ecom.repository.UserActivityRepository;
+
+/**
+ * Runs the similarity job against the h2 profile's embedded database, which rejects
+ * the MySQL-only streaming fetch size and staging table DDL.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:similarity;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+        + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1",
+    "recommendation.als.enabled=false",
+    "recommendation.ann.enabled=false",
+    "search.index.enabled=false",
+    "search.suggest.enabled=false",
+    "search.facets.enabled=false"
+})
+@ActiveProfiles("h2")
+class SimilarityJobH2SmokeTest {
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserActivityRepository activityRepository;
+
+    @Autowired
+    private ProductSimilarityRepository similarityRepository;
+
+    @Test
+    void computesAndPublishesSimilarities() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            products.add(productRepository.save(new Product(null, "Product " + i, null, i < 3 ? "Books" : "Toys",
+                100.0, 10, null, 0, 100.0, true)));
+        }
+        Instant now = Instant.now();
+        List<UserActivity> activities = new ArrayList<>();
+        for (int userId = 1; userId <= 5; userId++) {
+            for (int i = 0; i < 2; i++) {
+                Integer productId = products.get(i).getId();
+                Instant at = now.minus(userId, ChronoUnit.DAYS).plus(i, ChronoUnit.MINUTES);
+                activities.add(new UserActivity(null, userId, productId, "PURCHASE", at, null, 10.0));
+                activities.add(new UserActivity(null, userId, productId, "VIEW", at, "session-" + userId, 1.0));
+            }
+        }
+        activityRepository.saveAll(activities);
+
+        recommendationService.computeProductSimilarities();
+
+        Integer first = products.get(0).getId();
+        assertFalse(similarityRepository.findByProductIdAndBasis(first, "CATEGORY").isEmpty());
+        assertFalse(similarityRepository.findByProductIdAndBasis(first, "CO_PURCHASE").isEmpty());
+        assertFalse(similarityRepository.findByProductIdAndBasis(first, "CO_VIEW").isEmpty());
+        assertTrue(recommendationService.getSimilarProducts(first, 5).stream()
+            .anyMatch(p -> p.getId().equals(products.get(1).getId())));
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecom.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.ecom.model.Product;
+import com.ecom.model.UserActivity;
+import com.ecom.repository.ProductRepository;
+import com.ecom.repository.UserActivityRepository;
+import com.ecom.util.CoPurchaseMatrix;
+
+/**
+ * Runs the sparse engine and the legacy per-product loop over the same fixture and
+ * expects identical similarity rows.
+ */
+class SparseSimilarityEngineTest {
+
+    private static final String[] CATEGORIES = { "Books", "Toys", "Kitchen", null };
+
+    private final List<Product> products = new ArrayList<>();
+    private final List<UserActivity> activities = new ArrayList<>();
+
+    private UserActivityRepository activityRepository;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(3);
+        Instant now = Instant.now();
+        for (int id = 1; id <= 40; id++) {
+            products.add(new Product(id, "Product " + id, null, CATEGORIES[id % CATEGORIES.length], 100.0,
+                10, null, 0, 100.0, id % 9 != 0));
+        }
+        for (int i = 0; i < 1500; i++) {
+            int userId = 1 + random.nextInt(60);
+            // a few popular products so that co-purchase counts go above one
+            int productId = random.nextDouble() < 0.5 ? 1 + random.nextInt(6) : 1 + random.nextInt(40);
+            String action = random.nextDouble() < 0.4 ? "PURCHASE" : "VIEW";
+            // well inside or well outside the 90-day co-purchase window
+            long daysAgo = random.nextBoolean() ? random.nextInt(80) : 100 + random.nextInt(100);
+            activities.add(activity(userId, productId, action, now.minus(daysAgo, ChronoUnit.DAYS)));
+        }
+
+        activityRepository = mock(UserActivityRepository.class);
+        productRepository = mock(ProductRepository.class);
+        when(activityRepository.streamAllPurchases()).thenAnswer(invocation -> purchases()
+            .map(a -> new Object[] { a.getUserId(), a.getProductId(), a.getTimestamp() }));
+        when(activityRepository.findPurchasesByProduct(anyInt())).thenAnswer(invocation -> purchases()
+            .filter(a -> a.getProductId().equals(invocation.getArgument(0)))
+            .collect(Collectors.toList()));
+        when(activityRepository.findByUserIdAndTimestampAfter(any(), any())).thenAnswer(invocation -> activities
+            .stream()
+            .filter(a -> a.getUserId().equals(invocation.getArgument(0)))
+            .filter(a -> a.getTimestamp().isAfter(invocation.getArgument(1)))
+            .collect(Collectors.toList()));
+        when(productRepository.findByCategory(anyString())).thenAnswer(invocation -> products.stream()
+            .filter(p -> Objects.equals(p.getCategory(), invocation.getArgument(0)))
+            .collect(Collectors.toList()));
+    }
+
+    @Test
+    void matchesLegacyScores() {
+        List<Product> activeProducts = products.stream().filter(Product::getIsActive).collect(Collectors.toList());
+
+        Map<String, Double> legacy = new TreeMap<>();
+        RecommendationService service = new RecommendationService();
+        ReflectionTestUtils.setField(service, "activityRepository", activityRepository);
+        ReflectionTestUtils.setField(service, "productRepository", productRepository);
+        service.computeLegacySimilarities(activeProducts, collectInto(legacy));
+
+        Map<String, Double> sparse = new TreeMap<>();
+        SparseSimilarityEngine engine = new SparseSimilarityEngine();
+        ReflectionTestUtils.setField(engine, "activityRepository", activityRepository);
+        CoPurchaseMatrix matrix = engine.loadPurchaseMatrix(Instant.now().minus(90, ChronoUnit.DAYS));
+        long emitted = engine.computeSimilarities(matrix, activeProducts, collectInto(sparse));
+
+        assertTrue(legacy.keySet().stream().anyMatch(key -> key.endsWith("CO_PURCHASE")),
+            "fixture should produce co-purchase rows");
+        assertEquals(legacy.keySet(), sparse.keySet());
+        assertEquals(sparse.size(), emitted);
+        for (Map.Entry<String, Double> row : legacy.entrySet()) {
+            assertEquals(row.getValue(), sparse.get(row.getKey()), 1e-12, row.getKey());
+        }
+    }
+
+    private Stream<UserActivity> purchases() {
+        return activities.stream().filter(a -> "PURCHASE".equals(a.getAction()));
+    }
+
+    private static SimilaritySink collectInto(Map<String, Double> rows) {
+        return (productId, similarProductId, score, basis) -> {
+            Double previous = rows.put(productId + "->" + similarProductId + " " + basis, score);
+            assertNull(previous, "duplicate row " + productId + "->" + similarProductId + " " + basis);
+        };
+    }
+
+    private static UserActivity activity(int userId, int productId, String action, Instant timestamp) {
+        return new UserActivity(null, userId, productId, action, timestamp, null, "PURCHASE".equals(action) ? 10.0 : 1.0);
+    }
+}
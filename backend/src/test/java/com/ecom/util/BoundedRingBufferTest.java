@@ -0,0 +1,117 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+class BoundedRingBufferTest {
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(4, new BoundedRingBuffer<Integer>(1).capacity());
+        assertEquals(8, new BoundedRingBuffer<Integer>(8).capacity());
+        assertEquals(16, new BoundedRingBuffer<Integer>(9).capacity());
+    }
+
+    @Test
+    void fullRingRejectsOffersUntilPolled() {
+        BoundedRingBuffer<Integer> ring = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        assertFalse(ring.offer(5));
+
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(2, ring.drain(drained::add, 2));
+        assertEquals(List.of(1, 2), drained);
+        assertEquals(2, ring.drain(drained::add, 10));
+        assertEquals(List.of(1, 2, 3, 4), drained);
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void keepsOrderAcrossManyWraps() {
+        BoundedRingBuffer<Integer> ring = new BoundedRingBuffer<>(4);
+        int next = 0;
+        for (int round = 0; round < 1000; round++) {
+            assertTrue(ring.offer(round * 3));
+            assertTrue(ring.offer(round * 3 + 1));
+            assertTrue(ring.offer(round * 3 + 2));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(next++, ring.poll());
+            }
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void concurrentProducersLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        BoundedRingBuffer<Integer> ring = new BoundedRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.currentTimeMillis() + 30_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int first = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int value = first; value < first + perProducer; value++) {
+                    // yield rather than spin so the consumer gets scheduled on small machines
+                    while (!ring.offer(value)) {
+                        if (System.currentTimeMillis() > deadline) {
+                            return;
+                        }
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        BitSet seen = new BitSet();
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        start.countDown();
+        while (received < producers * perProducer && System.currentTimeMillis() < deadline) {
+            Integer value = ring.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertFalse(seen.get(value), "duplicate " + value);
+            seen.set(value);
+            // each producer's values arrive in the order it offered them
+            int producer = value / perProducer;
+            assertTrue(value > lastPerProducer[producer], "out of order " + value);
+            lastPerProducer[producer] = value;
+            received++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * perProducer, received);
+        assertEquals(producers * perProducer, seen.cardinality());
+        assertNull(ring.poll());
+    }
+}
@@ -0,0 +1,81 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompletionTrieTest {
+
+    @Test
+    void topKByWeightUnderPrefix() {
+        CompletionTrie trie = new CompletionTrie.Builder()
+            .add("apple iphone 15", 1, 9f)
+            .add("apple watch", 2, 5f)
+            .add("apricot jam", 3, 7f)
+            .add("banana chips", 4, 8f)
+            .add("iphone 15", 1, 8.1f)
+            .build();
+
+        float[] weights = new float[3];
+        assertArrayEquals(new int[] { 1, 3, 2 }, trie.top("ap", 3, id -> true, weights));
+        assertArrayEquals(new float[] { 9f, 7f, 5f }, weights);
+        assertArrayEquals(new int[] { 1, 2 }, trie.top("apple", 5, id -> true, null));
+        assertArrayEquals(new int[] { 1 }, trie.top("iph", 5, id -> true, null));
+        assertArrayEquals(new int[] { 3, 2 }, trie.top("ap", 2, id -> id != 1, null));
+        assertArrayEquals(new int[0], trie.top("cherry", 5, id -> true, null));
+        assertArrayEquals(new int[] { 1, 4, 3, 2 }, trie.top("", 10, id -> true, null));
+    }
+
+    @Test
+    void matchesBruteForceOnRandomKeys() {
+        Random random = new Random(5);
+        CompletionTrie.Builder builder = new CompletionTrie.Builder();
+        List<String> keys = new ArrayList<>();
+        List<Float> keyWeights = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            String key = randomKey(random);
+            float weight = random.nextInt(1_000_000);
+            builder.add(key, id, weight);
+            keys.add(key);
+            keyWeights.add(weight);
+        }
+        CompletionTrie trie = builder.build();
+        assertEquals(3000, trie.entryCount());
+
+        for (String prefix : new String[] { "a", "ab", "ba", "cab", "c", "abc", "zz" }) {
+            Map<Integer, Float> expected = new HashMap<>();
+            for (int id = 0; id < keys.size(); id++) {
+                if (keys.get(id).startsWith(prefix)) {
+                    expected.put(id, keyWeights.get(id));
+                }
+            }
+            int[] expectedTop = expected.entrySet().stream()
+                .sorted((a, b) -> Float.compare(b.getValue(), a.getValue()))
+                .limit(10)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+            float[] weights = new float[10];
+            int[] actual = trie.top(prefix, 10, id -> true, weights);
+            assertEquals(expectedTop.length, actual.length, prefix);
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals(expected.get(expectedTop[i]), weights[i], 0f, prefix);
+                assertEquals(expected.get(actual[i]), weights[i], 0f, prefix);
+            }
+        }
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
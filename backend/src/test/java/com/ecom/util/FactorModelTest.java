@@ -0,0 +1,97 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FactorModelTest {
+
+    private static final int FACTORS = 4;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndReadRoundTrip() throws IOException {
+        FactorModel model = randomModel(new Random(9), 30, 50);
+        Path path = directory.resolve("models").resolve("als.bin");
+        model.write(path);
+        FactorModel read = FactorModel.read(path);
+
+        assertEquals(FACTORS, read.factors());
+        assertEquals(30, read.userCount());
+        assertEquals(50, read.productCount());
+        float[] expected = new float[FACTORS];
+        float[] actual = new float[FACTORS];
+        for (int productId = 1000; productId < 1050; productId++) {
+            assertTrue(model.productVector(productId, expected));
+            assertTrue(read.productVector(productId, actual));
+            assertArrayEquals(expected, actual);
+        }
+        for (int userId = 0; userId < 30; userId++) {
+            assertEquals(model.score(userId, 1007), read.score(userId, 1007));
+            assertArrayEquals(model.topProducts(userId, 5, id -> true), read.topProducts(userId, 5, id -> true));
+        }
+        assertFalse(read.hasUser(30));
+        assertEquals(0.0, read.score(30, 1000));
+    }
+
+    @Test
+    void writeReplacesAnExistingFile() throws IOException {
+        Path path = directory.resolve("als.bin");
+        randomModel(new Random(1), 10, 10).write(path);
+        randomModel(new Random(2), 3, 4).write(path);
+
+        FactorModel read = FactorModel.read(path);
+        assertEquals(3, read.userCount());
+        assertEquals(4, read.productCount());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1L, files.count());
+        }
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedFiles() throws IOException {
+        Path foreign = directory.resolve("foreign.bin");
+        Files.write(foreign, new byte[64]);
+        assertThrows(IOException.class, () -> FactorModel.read(foreign));
+
+        Path path = directory.resolve("als.bin");
+        randomModel(new Random(3), 5, 5).write(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Path truncated = directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> FactorModel.read(truncated));
+    }
+
+    private static FactorModel randomModel(Random random, int users, int products) {
+        int[] userIds = new int[users];
+        int[] productIds = new int[products];
+        float[] userFactors = new float[users * FACTORS];
+        float[] productFactors = new float[products * FACTORS];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = i;
+        }
+        for (int i = 0; i < products; i++) {
+            productIds[i] = 1000 + i;
+        }
+        for (int i = 0; i < userFactors.length; i++) {
+            userFactors[i] = (float) random.nextGaussian();
+        }
+        for (int i = 0; i < productFactors.length; i++) {
+            productFactors[i] = (float) random.nextGaussian();
+        }
+        return new FactorModel(FACTORS, userIds, productIds, userFactors, productFactors);
+    }
+}
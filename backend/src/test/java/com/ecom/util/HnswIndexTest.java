@@ -0,0 +1,124 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recallAgainstBruteForce() {
+        Random random = new Random(1);
+        float[][] vectors = new float[2000][];
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        for (int id = 0; id < vectors.length; id++) {
+            vectors[id] = randomUnit(random);
+            index.add(id, vectors[id]);
+        }
+        assertEquals(vectors.length, index.size());
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnit(random);
+            int[] expected = bruteForce(vectors, query, 10);
+            int[] actual = index.search(query, 10, 64, id -> true);
+            assertEquals(10, actual.length);
+            for (int id : actual) {
+                for (int e : expected) {
+                    if (e == id) {
+                        found++;
+                    }
+                }
+            }
+        }
+        double recall = found / (queries * 10.0);
+        assertTrue(recall >= 0.9, "recall@10 " + recall);
+    }
+
+    @Test
+    void replaceAndRemoveHideOldNodes() {
+        Random random = new Random(2);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int id = 0; id < 200; id++) {
+            index.add(id, randomUnit(random));
+        }
+        float[] moved = randomUnit(random);
+        index.add(5, moved);
+        assertEquals(200, index.size());
+        assertEquals(1, index.deletedCount());
+        assertArrayEquals(moved, index.vector(5));
+        assertEquals(5, index.search(moved, 1, 50, id -> true)[0]);
+
+        assertTrue(index.remove(7));
+        assertFalse(index.remove(7));
+        assertFalse(index.contains(7));
+        assertNull(index.vector(7));
+        assertEquals(199, index.size());
+        assertEquals(2, index.deletedCount());
+        for (int id : index.search(moved, 199, 400, candidate -> true)) {
+            assertTrue(id != 7, "removed id returned");
+        }
+        assertEquals(6, index.search(index.vector(6), 1, 50, id -> id != 5)[0]);
+    }
+
+    @Test
+    void writeAndReadKeepDeletions() throws Exception {
+        Random random = new Random(3);
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int id = 1; id <= 300; id++) {
+            index.add(id, randomUnit(random));
+        }
+        index.remove(10);
+        index.add(20, randomUnit(random));
+        Path file = directory.resolve("graph.bin");
+        index.write(file);
+
+        HnswIndex loaded = HnswIndex.read(file);
+        assertEquals(DIMENSION, loaded.dimension());
+        assertEquals(index.size(), loaded.size());
+        assertEquals(index.deletedCount(), loaded.deletedCount());
+        assertFalse(loaded.contains(10));
+        assertArrayEquals(index.vector(20), loaded.vector(20));
+        float[] query = randomUnit(random);
+        assertArrayEquals(index.search(query, 10, 64, id -> true), loaded.search(query, 10, 64, id -> true));
+    }
+
+    private static float[] randomUnit(Random random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static int[] bruteForce(float[][] vectors, float[] query, int k) {
+        TopKSelector top = new TopKSelector(k);
+        for (int id = 0; id < vectors.length; id++) {
+            float dot = 0;
+            for (int i = 0; i < DIMENSION; i++) {
+                dot += vectors[id][i] * query[i];
+            }
+            top.offer(id, dot);
+        }
+        return top.idsDescending();
+    }
+}
@@ -0,0 +1,91 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class ImplicitAlsTrainerTest {
+
+    @Test
+    void choleskySolveMatchesAKnownSolution() {
+        // A = [[4, 2], [2, 3]], x = [1, -2]
+        double[] a = { 4, 2, 2, 3 };
+        double[] b = { 0, -4 };
+        ImplicitAlsTrainer.choleskySolve(a, b, 2);
+        assertEquals(1.0, b[0], 1e-12);
+        assertEquals(-2.0, b[1], 1e-12);
+    }
+
+    @Test
+    void choleskySolveInvertsRandomPositiveDefiniteSystems() {
+        Random random = new Random(5);
+        int n = 12;
+        for (int trial = 0; trial < 20; trial++) {
+            // M^T M + n I is symmetric positive definite
+            double[] m = new double[n * n];
+            for (int i = 0; i < m.length; i++) {
+                m[i] = random.nextGaussian();
+            }
+            double[] a = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double sum = i == j ? n : 0;
+                    for (int k = 0; k < n; k++) {
+                        sum += m[k * n + i] * m[k * n + j];
+                    }
+                    a[i * n + j] = sum;
+                }
+            }
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = random.nextGaussian();
+            }
+            double[] b = new double[n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    b[i] += a[i * n + j] * x[j];
+                }
+            }
+
+            ImplicitAlsTrainer.choleskySolve(a.clone(), b, n);
+            for (int i = 0; i < n; i++) {
+                assertEquals(x[i], b[i], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void ranksObservedProductsAboveTheOtherGroup() {
+        // two taste groups: users 0-9 buy products 100-104, users 10-19 buy 200-204
+        ImplicitAlsTrainer.Interactions data = new ImplicitAlsTrainer.Interactions(40);
+        for (int user = 0; user < 20; user++) {
+            int base = user < 10 ? 100 : 200;
+            for (int product = base; product < base + 5; product++) {
+                if ((user + product) % 5 != 0) {
+                    data.add(user, product, 1 + (user % 3));
+                }
+            }
+        }
+        data.freeze();
+        FactorModel model = new ImplicitAlsTrainer(8, 0.1, 40, 10, ForkJoinPool.commonPool()).train(data);
+
+        assertEquals(20, model.userCount());
+        assertEquals(10, model.productCount());
+        for (int user = 0; user < 20; user++) {
+            int group = user < 10 ? 100 : 200;
+            int other = user < 10 ? 200 : 100;
+            double worstObserved = Double.MAX_VALUE;
+            double bestOther = -Double.MAX_VALUE;
+            for (int offset = 0; offset < 5; offset++) {
+                if ((user + group + offset) % 5 != 0) {
+                    worstObserved = Math.min(worstObserved, model.score(user, group + offset));
+                }
+                bestOther = Math.max(bestOther, model.score(user, other + offset));
+            }
+            assertTrue(worstObserved > bestOther, "user " + user);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class InvertedTextIndexTest {
+
+    private static final String[] QUERIES = { "laptop", "wireless", "phone case", "blue", "lapt", "bag " };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mergeKeepsSearchResults() throws Exception {
+        InvertedTextIndex index = InvertedTextIndex.open(directory, 3);
+        fill(index);
+        List<int[]> before = searchAll(index);
+
+        int merges = 0;
+        while (index.maybeMerge()) {
+            merges++;
+        }
+        assertTrue(merges > 0, "expected a merge with more than mergeFactor segments");
+        assertTrue((Integer) index.stats().get("segments") <= 3);
+        // merging drops deleted documents from the term statistics, which may reorder hits
+        List<int[]> after = searchAll(index);
+        for (int q = 0; q < QUERIES.length; q++) {
+            assertArrayEquals(sorted(before.get(q)), sorted(after.get(q)), QUERIES[q]);
+        }
+    }
+
+    @Test
+    void reopenRestoresSegmentsAndDeletes() throws Exception {
+        InvertedTextIndex index = InvertedTextIndex.open(directory, 3);
+        fill(index);
+        index.maybeMerge();
+        List<int[]> before = searchAll(index);
+        int size = index.size();
+
+        InvertedTextIndex reopened = InvertedTextIndex.open(directory, 3);
+        assertEquals(size, reopened.size());
+        assertFalse(reopened.contains(4));
+        for (int q = 0; q < QUERIES.length; q++) {
+            assertArrayEquals(before.get(q), searchAll(reopened).get(q), QUERIES[q]);
+        }
+    }
+
+    @Test
+    void putReplacesAndRemoveDeletes() throws Exception {
+        InvertedTextIndex index = InvertedTextIndex.open(directory, 8);
+        fill(index);
+        assertEquals(7, index.size());
+        assertArrayEquals(new int[] { 2 }, index.search("phone case", false, 10).productIds());
+        // product 2 was re-put as a phone case, its old "Wireless mouse" text is gone
+        assertFalse(contains(index.search("mouse", false, 10).productIds(), 2));
+        assertFalse(contains(index.search("laptop", false, 10).productIds(), 4));
+        assertEquals(0, index.search("tote", true, 10).total());
+        assertEquals(1, index.search("tote", false, 10).total());
+
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        builder.add(document(100, true, "Only product"));
+        index.replaceAll(builder);
+        assertEquals(1, index.size());
+        assertEquals(0, index.search("laptop", false, 10).total());
+        assertEquals(1, InvertedTextIndex.open(directory, 8).size());
+    }
+
+    @Test
+    void fuzzySearchFindsMisspelledTerms() throws Exception {
+        InvertedTextIndex index = InvertedTextIndex.open(directory, 8);
+        fill(index);
+        assertEquals(0, index.search("lapotp", true, 10).total());
+        int[] found = index.fuzzySearch("lapotp", true, 10, id -> 0).productIds();
+        assertTrue(found.length > 0 && contains(found, 1), Arrays.toString(found));
+    }
+
+    /**
+     * Seven live products over several segments: one re-put, one removed and one inactive.
+     */
+    private static void fill(InvertedTextIndex index) throws Exception {
+        index.put(document(1, true, "Gaming laptop 15 inch"));
+        index.put(document(2, true, "Wireless mouse"));
+        index.put(document(3, true, "Blue wireless headphones"));
+        index.putAll(List.of(document(4, true, "Laptop stand"), document(5, true, "Laptop bag blue")));
+        index.put(document(6, false, "Canvas tote bag"));
+        index.put(document(7, true, "Wireless charger"));
+        index.put(document(2, true, "Blue phone case"));
+        index.put(document(8, true, "Leather bag"));
+        assertTrue(index.remove(4));
+        assertFalse(index.remove(4));
+    }
+
+    private static List<int[]> searchAll(InvertedTextIndex index) {
+        return Arrays.stream(QUERIES).map(query -> index.search(query, true, 10).productIds()).toList();
+    }
+
+    private static int[] sorted(int[] ids) {
+        int[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        return Arrays.stream(ids).anyMatch(candidate -> candidate == id);
+    }
+
+    private static SearchSegment.Document document(int id, boolean active, String title) {
+        return new SearchSegment.Document(id, active, 100, 0, title, "Category", null);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks RoaringBitmap against a TreeSet, with groups on both sides of the
+ * 4096-value switch between array and bitmap containers.
+ */
+class RoaringBitmapTest {
+
+    private static final int ARRAY_MAX = 4096;
+
+    @Test
+    void addAndRemoveAcrossTheArrayLimit() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value < ARRAY_MAX; value++) {
+            bitmap.add(value * 2);
+        }
+        assertEquals(ARRAY_MAX, bitmap.cardinality());
+
+        bitmap.add(1);
+        assertEquals(ARRAY_MAX + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertTrue(bitmap.contains(2 * (ARRAY_MAX - 1)));
+        assertFalse(bitmap.contains(3));
+
+        bitmap.remove(1);
+        bitmap.remove(0);
+        assertEquals(ARRAY_MAX - 1, bitmap.cardinality());
+        assertFalse(bitmap.contains(0));
+        assertFalse(bitmap.contains(1));
+        assertTrue(bitmap.contains(2));
+
+        for (int value = 1; value < ARRAY_MAX; value++) {
+            bitmap.remove(value * 2);
+        }
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void setOperationsMatchTreeSet() {
+        Random random = new Random(7);
+        // per group: sparse (array), dense (bitmap), and right at the limit on either side
+        int[] groupSizes = { 100, 20_000, ARRAY_MAX, ARRAY_MAX + 1, 3000 };
+        for (int left = 0; left < groupSizes.length; left++) {
+            for (int right = 0; right < groupSizes.length; right++) {
+                TreeSet<Integer> a = new TreeSet<>();
+                TreeSet<Integer> b = new TreeSet<>();
+                RoaringBitmap x = fill(random, a, groupSizes[left], groupSizes[right]);
+                RoaringBitmap y = fill(random, b, groupSizes[right], groupSizes[left]);
+
+                TreeSet<Integer> intersection = new TreeSet<>(a);
+                intersection.retainAll(b);
+                TreeSet<Integer> union = new TreeSet<>(a);
+                union.addAll(b);
+
+                assertContents(intersection, RoaringBitmap.and(x, y));
+                assertContents(union, RoaringBitmap.or(x, y));
+                assertEquals(intersection.size(), RoaringBitmap.andCardinality(x, y));
+                assertEquals(intersection.size(), RoaringBitmap.andCardinality(x.toDense(), y));
+                assertEquals(intersection.size(), RoaringBitmap.andCardinality(x, y.toDense()));
+                assertContents(a, x);
+                assertContents(b, y);
+            }
+        }
+    }
+
+    @Test
+    void toArraySelectsPagesAcrossContainers() {
+        Random random = new Random(11);
+        TreeSet<Integer> expected = new TreeSet<>();
+        RoaringBitmap bitmap = fill(random, expected, ARRAY_MAX + 1, 500);
+        int[] all = toInts(expected);
+
+        for (int offset : new int[] { 0, 1, ARRAY_MAX - 1, ARRAY_MAX, ARRAY_MAX + 1, all.length - 3, all.length }) {
+            for (int count : new int[] { 0, 1, 10, all.length }) {
+                int end = Math.min(all.length, offset + count);
+                int[] page = new int[Math.max(0, end - offset)];
+                System.arraycopy(all, Math.min(offset, all.length), page, 0, page.length);
+                assertArrayEquals(page, bitmap.toArray(offset, count), "offset " + offset + ", count " + count);
+            }
+        }
+        assertArrayEquals(new int[0], bitmap.toArray(all.length + 5, 10));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int value = 0; value <= ARRAY_MAX; value++) {
+            bitmap.add(value);
+        }
+        RoaringBitmap copy = bitmap.copy();
+        copy.remove(5);
+        copy.add(1 << 20);
+        assertTrue(bitmap.contains(5));
+        assertFalse(bitmap.contains(1 << 20));
+        assertEquals(ARRAY_MAX + 1, bitmap.cardinality());
+        assertEquals(ARRAY_MAX + 1, copy.cardinality());
+    }
+
+    /**
+     * Two groups of values, firstGroup in the low 16-bit group and secondGroup in the
+     * next one, plus a few values in a group of their own.
+     */
+    private static RoaringBitmap fill(Random random, TreeSet<Integer> expected, int firstGroup, int secondGroup) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        addGroup(random, bitmap, expected, 0, firstGroup);
+        addGroup(random, bitmap, expected, 1, secondGroup);
+        addGroup(random, bitmap, expected, 2 + random.nextInt(3), 3);
+        return bitmap;
+    }
+
+    private static void addGroup(Random random, RoaringBitmap bitmap, TreeSet<Integer> expected, int group, int count) {
+        TreeSet<Integer> values = new TreeSet<>();
+        while (values.size() < count) {
+            values.add((group << 16) | random.nextInt(1 << 16));
+        }
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        expected.addAll(values);
+    }
+
+    private static void assertContents(TreeSet<Integer> expected, RoaringBitmap actual) {
+        assertEquals(expected.size(), actual.cardinality());
+        assertArrayEquals(toInts(expected), actual.toArray(0, actual.cardinality() + 1));
+    }
+
+    private static int[] toInts(TreeSet<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
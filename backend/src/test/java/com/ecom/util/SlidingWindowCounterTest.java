@@ -0,0 +1,70 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void countsExpireBucketByBucket() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(10), Duration.ofMinutes(1));
+        long start = 1_000 * MINUTE;
+        counter.add(1, start);
+        counter.add(1, start + 30_000);
+        counter.add(2, start + 5 * MINUTE);
+        assertEquals(2, counter.count(1));
+        assertEquals(1, counter.count(2));
+
+        counter.advanceTo(start + 9 * MINUTE);
+        assertEquals(2, counter.count(1));
+        counter.advanceTo(start + 10 * MINUTE);
+        assertEquals(0, counter.count(1));
+        assertEquals(1, counter.count(2));
+        counter.advanceTo(start + 15 * MINUTE);
+        assertEquals(0, counter.count(2));
+    }
+
+    @Test
+    void ignoresEventsOlderThanTheWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(10), Duration.ofMinutes(1));
+        long now = 1_000 * MINUTE;
+        counter.advanceTo(now);
+        counter.add(1, now - 10 * MINUTE);
+        counter.add(1, now - 9 * MINUTE);
+        assertEquals(1, counter.count(1));
+    }
+
+    @Test
+    void jumpPastTheWholeWindowClearsEverything() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(10), Duration.ofMinutes(1));
+        long start = 1_000 * MINUTE;
+        for (int key = 0; key < 100; key++) {
+            counter.add(key, start + key * 1_000);
+        }
+        counter.add(7, start + 20 * MINUTE);
+        assertEquals(1, counter.count(7));
+        assertEquals(0, counter.count(8));
+    }
+
+    @Test
+    void topOrdersByCount() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(10), Duration.ofMinutes(1));
+        long now = 1_000 * MINUTE;
+        for (int key = 1; key <= 5; key++) {
+            for (int i = 0; i < key * 3; i++) {
+                counter.add(key, now + i);
+            }
+        }
+        assertArrayEquals(new int[] { 5, 4, 3 }, counter.top(3));
+
+        // key 5's events expire, key 1 gets new ones
+        counter.advanceTo(now + 10 * MINUTE);
+        counter.add(1, now + 10 * MINUTE);
+        assertArrayEquals(new int[] { 1 }, counter.top(3));
+    }
+}
@@ -0,0 +1,115 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TermNgramIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsKnownMisspellings() throws Exception {
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        builder.add(document(1, "Laptop sleeve"));
+        builder.add(document(2, "Gaming laptops"));
+        builder.add(document(3, "Wireless headphones"));
+        SearchSegment segment = builder.write(directory.resolve("known.seg"));
+        TermNgramIndex grams = TermNgramIndex.build(segment);
+
+        Map<String, Integer> oneEdit = matches(grams, segment, "laptpo", 2);
+        assertEquals(2, oneEdit.get("laptop"));
+        assertEquals(2, oneEdit.get("laptops"));
+        assertEquals(Map.of("headphones", 1), matches(grams, segment, "headphone", 1));
+        assertTrue(matches(grams, segment, "keyboard", 2).isEmpty());
+    }
+
+    @Test
+    void matchesBruteForceLevenshtein() throws Exception {
+        Random random = new Random(9);
+        SearchSegment.Builder builder = new SearchSegment.Builder();
+        for (int id = 1; id <= 2000; id++) {
+            builder.add(document(id, randomWord(random, 3, 9) + " " + randomWord(random, 3, 9)));
+        }
+        SearchSegment segment = builder.write(directory.resolve("random.seg"));
+        TermNgramIndex grams = TermNgramIndex.build(segment);
+        assertEquals(segment.termCount(), grams.termCount());
+
+        int compared = 0;
+        while (compared < 200) {
+            String token = randomWord(random, 3, 9);
+            int maxEdits = 1 + compared % 2;
+            // a term sharing no bigram with the token is never a candidate, so only tokens
+            // with more distinct bigrams than 2 * maxEdits are guaranteed exact matches
+            if (paddedBigrams(token).size() <= 2 * maxEdits) {
+                continue;
+            }
+            compared++;
+            Map<String, Integer> expected = new TreeMap<>();
+            for (int entry = 0; entry < segment.termCount(); entry++) {
+                int distance = levenshtein(token, segment.term(entry));
+                if (distance <= maxEdits) {
+                    expected.put(segment.term(entry), distance);
+                }
+            }
+            assertEquals(expected, matches(grams, segment, token, maxEdits), token);
+        }
+    }
+
+    private static Map<String, Integer> matches(TermNgramIndex grams, SearchSegment segment, String token,
+            int maxEdits) {
+        Map<String, Integer> found = new TreeMap<>();
+        grams.matches(token, maxEdits, Math.max(1, segment.termCount()), (entry, distance) -> found.put(segment.term(entry), distance));
+        return found;
+    }
+
+    private static Set<String> paddedBigrams(String token) {
+        String padded = "^" + token + "$";
+        Set<String> bigrams = new HashSet<>();
+        for (int i = 0; i + 2 <= padded.length(); i++) {
+            bigrams.add(padded.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+
+    private static SearchSegment.Document document(int id, String title) {
+        return new SearchSegment.Document(id, true, 100, 0, title, null, null);
+    }
+
+    private static String randomWord(Random random, int minLength, int maxLength) {
+        StringBuilder word = new StringBuilder();
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,69 @@
+package com.ecom.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+    @Test
+    void getPutAndInvalidate() {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(100, 60_000);
+        assertNull(cache.get(1));
+        cache.put(1, "one");
+        cache.put(2, "two");
+        assertEquals("one", cache.get(1));
+        cache.put(1, "uno");
+        assertEquals("uno", cache.get(1));
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+        assertEquals("two", cache.get(2));
+        cache.invalidateAll();
+        assertNull(cache.get(2));
+        assertEquals(0, cache.stats().get("size"));
+    }
+
+    @Test
+    void expiredEntriesAreMisses() {
+        TinyLfuCache<String> cache = new TinyLfuCache<>(100, 0);
+        cache.put(1, "one");
+        assertNull(cache.get(1));
+        assertEquals(1L, cache.stats().get("expirations"));
+    }
+
+    @Test
+    void staysWithinMaximumSize() {
+        TinyLfuCache<Integer> cache = new TinyLfuCache<>(100, 60_000);
+        for (int key = 0; key < 10_000; key++) {
+            cache.put(key, key);
+        }
+        assertTrue((Integer) cache.stats().get("size") <= 100, "size " + cache.stats().get("size"));
+    }
+
+    @Test
+    void oneOffKeysDoNotFlushFrequentOnes() {
+        TinyLfuCache<Integer> cache = new TinyLfuCache<>(100, 60_000);
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        for (int key = 1000; key < 11_000; key++) {
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        int kept = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                kept++;
+            }
+        }
+        assertTrue(kept >= 45, "frequent keys kept " + kept);
+    }
+}